@@ -36,6 +36,8 @@ android {
     }
 
     compileOptions {
+        // java.time (reminder recurrence) on API levels below 26
+        isCoreLibraryDesugaringEnabled = true
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
@@ -44,6 +46,17 @@ android {
         jvmTarget = "11"
     }
 
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all { test ->
+                if (!project.hasProperty("runBenchmarks")) {
+                    test.useJUnit { excludeCategories("com.example.kidtrack.Benchmark") }
+                }
+            }
+        }
+    }
+
     packaging {
         resources {
             excludes += "/META-INF/DEPENDENCIES"
@@ -77,6 +90,9 @@ dependencies {
     implementation("androidx.room:room-runtime:2.6.1")
     ksp("androidx.room:room-compiler:2.6.1")
     implementation("androidx.room:room-ktx:2.6.1")
+    implementation("androidx.paging:paging-runtime-ktx:3.2.1")
+    implementation("androidx.work:work-runtime-ktx:2.9.0")
+    coreLibraryDesugaring("com.android.tools:desugar_jdk_libs:2.0.4")
     implementation("androidx.navigation:navigation-fragment-ktx:2.7.0")
     implementation("androidx.navigation:navigation-ui-ktx:2.7.0")
     implementation("com.squareup.retrofit2:retrofit:2.9.0")
@@ -88,4 +104,11 @@ dependencies {
     
     // PDF generation
     implementation("com.itextpdf:itext7-core:7.2.5")
+
+    // Unit tests (JVM + Robolectric)
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.11.1")
+    testImplementation("androidx.test:core-ktx:1.5.0")
+    testImplementation("androidx.room:room-testing:2.6.1")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
 }
\ No newline at end of file
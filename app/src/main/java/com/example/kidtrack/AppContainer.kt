@@ -0,0 +1,39 @@
+package com.example.kidtrack
+
+import android.content.Context
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.repository.ActivityIndex
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.data.repository.ProfileCache
+import com.example.kidtrack.data.repository.QueryResultCache
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+
+/**
+ * Application-scoped dependency graph.
+ * Holds the single database, repository and in-memory caches for the process, so every
+ * screen, receiver and widget shares the same caches instead of building its own repository.
+ * Each dependency is created on first use.
+ *
+ * @param context Any context; only the application context is kept
+ */
+class AppContainer(context: Context) {
+
+    private val appContext = context.applicationContext
+
+    /**
+     * Scope for work that should outlive any single screen, such as cache warm-up
+     */
+    val applicationScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+    val database: KidTrackDatabase by lazy { KidTrackDatabase.build(appContext) }
+
+    val activityIndex: ActivityIndex by lazy { ActivityIndex(database) }
+
+    val profileCache: ProfileCache by lazy { ProfileCache(database) }
+
+    val queryCache: QueryResultCache by lazy { QueryResultCache(database) }
+
+    val repository: KidTrackRepository by lazy { KidTrackRepository(database, activityIndex, profileCache, queryCache) }
+}
@@ -0,0 +1,51 @@
+package com.example.kidtrack
+
+import android.app.Application
+import android.content.Context
+import android.util.Log
+import com.example.kidtrack.utils.ReminderScheduler
+import com.example.kidtrack.workers.DatabaseMaintenanceWorker
+import kotlinx.coroutines.launch
+
+/**
+ * Application class owning the process-wide [AppContainer].
+ */
+class KidTrackApplication : Application() {
+
+    companion object {
+        private const val TAG = "KidTrackApplication"
+    }
+
+    /**
+     * Dependencies shared by every screen, receiver and widget in this process
+     */
+    val container: AppContainer by lazy { AppContainer(this) }
+
+    override fun onCreate() {
+        super.onCreate()
+        // Load profiles while the first screen inflates; dialogs and notifications read them from memory
+        container.applicationScope.launch {
+            try {
+                container.repository.warmProfileCache()
+            } catch (e: Exception) {
+                // Not fatal; the cache loads on first use instead
+                Log.w(TAG, "Profile cache warm-up failed", e)
+            }
+        }
+        // Arm the reminder alarm for the earliest pending reminder and keep it armed as reminders change
+        ReminderScheduler.watch(this)
+        // Purge old tombstones and vacuum once a day in the background
+        try {
+            DatabaseMaintenanceWorker.schedule(this)
+        } catch (e: IllegalStateException) {
+            // WorkManager is not initialized, e.g. in tests; deleted rows are simply kept longer
+            Log.w(TAG, "Could not schedule database maintenance", e)
+        }
+    }
+}
+
+/**
+ * The process-wide dependency container
+ */
+val Context.appContainer: AppContainer
+    get() = (applicationContext as KidTrackApplication).container
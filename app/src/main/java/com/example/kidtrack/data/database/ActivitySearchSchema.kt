@@ -0,0 +1,95 @@
+package com.example.kidtrack.data.database
+
+import android.util.Log
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL that keeps the activities_fts full-text index in step with activities and categories.
+ *
+ * The index holds its own copy of each activity's description, notes and category name,
+ * keyed by docid = activities.id, because the name is no longer a column of activities.
+ * Triggers on activities look the name up by categoryId as they index a row, and renaming
+ * a category re-indexes the category text of its activities; no activity row is written.
+ * Like the other triggers these are installed on open, whenever any is missing.
+ */
+object ActivitySearchSchema {
+
+    private const val TAG = "ActivitySearchSchema"
+
+    private const val TABLE = "activities_fts"
+
+    private fun categoryName(row: String) =
+        "COALESCE((SELECT name FROM categories WHERE id = $row.categoryId), '')"
+
+    private val TRIGGERS = linkedMapOf(
+        // A replaced row is inserted again without a delete trigger firing, so clear its docid first
+        "activities_fts_AFTER_INSERT" to
+            "AFTER INSERT ON activities BEGIN " +
+                "DELETE FROM $TABLE WHERE docid = NEW.id; " +
+                "INSERT INTO $TABLE (docid, description, category, notes) " +
+                "VALUES (NEW.id, NEW.description, ${categoryName("NEW")}, NEW.notes); END",
+        "activities_fts_AFTER_UPDATE" to
+            "AFTER UPDATE OF description, notes, categoryId ON activities BEGIN " +
+                "UPDATE $TABLE SET description = NEW.description, category = ${categoryName("NEW")}, notes = NEW.notes " +
+                "WHERE docid = NEW.id; END",
+        "activities_fts_AFTER_DELETE" to
+            "AFTER DELETE ON activities BEGIN DELETE FROM $TABLE WHERE docid = OLD.id; END",
+        "activities_fts_category_AFTER_UPDATE" to
+            "AFTER UPDATE OF name ON categories BEGIN " +
+                "UPDATE $TABLE SET category = NEW.name WHERE docid IN (SELECT id FROM activities WHERE categoryId = NEW.id); END"
+    )
+
+    /**
+     * Create the triggers, if missing, and re-index every activity
+     * @param db Database that already has the activities_fts table
+     */
+    fun install(db: SupportSQLiteDatabase) {
+        for ((name, body) in TRIGGERS) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS $name $body")
+        }
+        db.execSQL("DELETE FROM $TABLE")
+        db.execSQL(
+            """
+            INSERT INTO $TABLE (docid, description, category, notes)
+            SELECT activities.id, activities.description, categories.name, activities.notes
+            FROM activities
+            JOIN categories ON categories.id = activities.categoryId
+            """.trimIndent()
+        )
+    }
+
+    /**
+     * Drop the triggers, so a migration can have changed versions installed under the same names
+     * @param db Open database
+     */
+    fun dropTriggers(db: SupportSQLiteDatabase) {
+        for (name in TRIGGERS.keys) {
+            db.execSQL("DROP TRIGGER IF EXISTS $name")
+        }
+    }
+
+    /**
+     * Install the triggers if any is missing; a no-op on an up-to-date database
+     * @param db Open database
+     */
+    fun ensureInstalled(db: SupportSQLiteDatabase) {
+        val names = TRIGGERS.keys.toTypedArray()
+        val installed = db.query(
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN (${names.joinToString { "?" }})",
+            names
+        ).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+        if (installed < names.size) {
+            Log.i(TAG, "Installing full-text index triggers")
+            db.beginTransaction()
+            try {
+                install(db)
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.kidtrack.data.database
+
+import android.util.Log
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL for a change counter on the activities and activities_archive tables, read by
+ * [com.example.kidtrack.data.repository.ActivityIndex] to tell whether its copy is current.
+ *
+ * activity_version holds a single row whose version is bumped by triggers on every insert,
+ * update and delete of either table, whoever makes it. Reading the version in the same
+ * transaction as a write ties that write to an exact version; reading it before and after
+ * some reads outside a transaction tells whether any change committed in between.
+ * Like the other triggers the table is not a Room entity, so it is installed here, on open,
+ * whenever it or any trigger is missing.
+ */
+object ActivityVersionSchema {
+
+    private const val TAG = "ActivityVersionSchema"
+
+    private const val TABLE = "activity_version"
+
+    private const val BUMP = "UPDATE $TABLE SET version = version + 1 WHERE id = 0;"
+
+    private val TRIGGERS = linkedMapOf(
+        "activity_version_AFTER_INSERT" to "AFTER INSERT ON activities BEGIN $BUMP END",
+        "activity_version_AFTER_UPDATE" to "AFTER UPDATE ON activities BEGIN $BUMP END",
+        "activity_version_AFTER_DELETE" to "AFTER DELETE ON activities BEGIN $BUMP END",
+        "activity_version_archive_AFTER_INSERT" to "AFTER INSERT ON activities_archive BEGIN $BUMP END",
+        "activity_version_archive_AFTER_UPDATE" to "AFTER UPDATE ON activities_archive BEGIN $BUMP END",
+        "activity_version_archive_AFTER_DELETE" to "AFTER DELETE ON activities_archive BEGIN $BUMP END"
+    )
+
+    /**
+     * Create the table, its row and the triggers, if missing
+     * @param db Database that already has both activity tables
+     */
+    fun install(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS $TABLE (id INTEGER PRIMARY KEY CHECK (id = 0), version INTEGER NOT NULL)")
+        db.execSQL("INSERT OR IGNORE INTO $TABLE (id, version) VALUES (0, 0)")
+        for ((name, body) in TRIGGERS) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS $name $body")
+        }
+    }
+
+    /**
+     * Drop the triggers, so a migration can rebuild the activity tables
+     * @param db Open database
+     */
+    fun dropTriggers(db: SupportSQLiteDatabase) {
+        for (name in TRIGGERS.keys) {
+            db.execSQL("DROP TRIGGER IF EXISTS $name")
+        }
+    }
+
+    /**
+     * Install the table and triggers if any is missing; a no-op on an up-to-date database
+     * @param db Open database
+     */
+    fun ensureInstalled(db: SupportSQLiteDatabase) {
+        val names = TRIGGERS.keys.toTypedArray()
+        val installed = db.query(
+            "SELECT COUNT(*) FROM sqlite_master WHERE (type = 'trigger' AND name IN (${names.joinToString { "?" }})) " +
+                "OR (type = 'table' AND name = '$TABLE')",
+            names
+        ).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+        if (installed < names.size + 1) {
+            Log.i(TAG, "Installing activity version triggers")
+            db.beginTransaction()
+            try {
+                install(db)
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+        }
+    }
+
+    /**
+     * Read the current version of the activity tables
+     * @param db Open database; inside a transaction, the version as of that transaction
+     * @return Number of changes made to either table since the counter was installed
+     */
+    fun read(db: SupportSQLiteDatabase): Long =
+        db.query("SELECT version FROM $TABLE WHERE id = 0").use { cursor ->
+            if (cursor.moveToFirst()) cursor.getLong(0) else 0L
+        }
+}
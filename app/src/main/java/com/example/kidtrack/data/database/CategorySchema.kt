@@ -0,0 +1,42 @@
+package com.example.kidtrack.data.database
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.example.kidtrack.utils.PredefinedTasks
+
+/**
+ * SQL for the categories table that Room cannot declare.
+ *
+ * Activities reference categories by id only, and queries join the table for names, so a
+ * rename is a one-row update with nothing to carry over. What is left here is seeding the
+ * predefined categories, and dropping the triggers that kept a per-activity copy of the name
+ * in step on databases from before that copy was removed.
+ */
+object CategorySchema {
+
+    // Installed up to version 14 of the database
+    private val LEGACY_TRIGGERS = listOf(
+        "activities_category_AFTER_INSERT",
+        "activities_category_AFTER_UPDATE",
+        "categories_name_AFTER_UPDATE"
+    )
+
+    /**
+     * Add the predefined categories that are missing
+     * @param db Database that already has the categories table
+     */
+    fun seed(db: SupportSQLiteDatabase) {
+        for (name in PredefinedTasks.getCategories()) {
+            db.execSQL("INSERT OR IGNORE INTO categories (name) VALUES (?)", arrayOf(name))
+        }
+    }
+
+    /**
+     * Drop the triggers that copied category names onto activities
+     * @param db Open database
+     */
+    fun dropTriggers(db: SupportSQLiteDatabase) {
+        for (name in LEGACY_TRIGGERS) {
+            db.execSQL("DROP TRIGGER IF EXISTS $name")
+        }
+    }
+}
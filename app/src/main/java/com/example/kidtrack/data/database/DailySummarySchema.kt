@@ -0,0 +1,131 @@
+package com.example.kidtrack.data.database
+
+import android.util.Log
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL that keeps daily_activity_summary in step with the activities and activities_archive tables.
+ *
+ * Room creates the table from [com.example.kidtrack.data.model.DailyActivitySummary] but has no
+ * support for ordinary triggers, so they are installed here, on open, whenever any is missing.
+ * Migrations that change the triggers drop them and leave the install to that check, so the
+ * SQL here can always assume the latest schema.
+ * Rows are keyed by category id, so a category rename does not touch them.
+ * Rows whose count drops to zero are deleted, so the table only holds days with activities.
+ * Soft-deleted activities (deletedAt set) are not counted: tombstoning a row takes it out of
+ * the summary and restoring it puts it back. Both tiers are counted the same way, so moving
+ * an activity to the archive leaves the summary unchanged and reports keep the full history.
+ */
+object DailySummarySchema {
+
+    private const val TAG = "DailySummarySchema"
+
+    private const val TABLE = "daily_activity_summary"
+
+    // Tables counted by the summary, with the prefix of their trigger names
+    private val SOURCES = linkedMapOf(
+        "activities" to "daily_activity_summary",
+        "activities_archive" to "daily_activity_summary_archive"
+    )
+
+    private val TRIGGER_NAMES = SOURCES.values.flatMap { prefix ->
+        listOf("${prefix}_AFTER_INSERT", "${prefix}_AFTER_DELETE", "${prefix}_AFTER_UPDATE")
+    }
+
+    /**
+     * SQL expression for the local calendar day of a millisecond timestamp, as days since
+     * 1970-01-01. Matches [com.example.kidtrack.utils.DateTimeUtils.toEpochDay].
+     * @param timestamp SQL expression for the timestamp, e.g. NEW.dateTimestamp
+     */
+    fun epochDaySql(timestamp: String): String =
+        "CAST(julianday($timestamp / 1000, 'unixepoch', 'localtime', 'start of day') - 2440587.5 AS INTEGER)"
+
+    // Each statement checks the row is live, so one trigger can handle tombstoning and restoring
+    private fun increment(row: String) = """
+        INSERT OR IGNORE INTO $TABLE (epochDay, profileId, categoryId, count)
+        SELECT ${epochDaySql("$row.dateTimestamp")}, $row.profileId, $row.categoryId, 0
+        WHERE $row.deletedAt IS NULL;
+        UPDATE $TABLE SET count = count + 1
+        WHERE epochDay = ${epochDaySql("$row.dateTimestamp")} AND profileId = $row.profileId AND categoryId = $row.categoryId
+          AND $row.deletedAt IS NULL;
+    """
+
+    private fun decrement(row: String) = """
+        UPDATE $TABLE SET count = count - 1
+        WHERE epochDay = ${epochDaySql("$row.dateTimestamp")} AND profileId = $row.profileId AND categoryId = $row.categoryId
+          AND $row.deletedAt IS NULL;
+        DELETE FROM $TABLE
+        WHERE epochDay = ${epochDaySql("$row.dateTimestamp")} AND profileId = $row.profileId AND categoryId = $row.categoryId
+          AND count <= 0;
+    """
+
+    /**
+     * Create the triggers, if missing, and rebuild the summary from both activity tables
+     * @param db Database that already has the daily_activity_summary and activities_archive tables
+     */
+    fun install(db: SupportSQLiteDatabase) {
+        for ((table, prefix) in SOURCES) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS ${prefix}_AFTER_INSERT AFTER INSERT ON $table BEGIN ${increment("NEW")} END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS ${prefix}_AFTER_DELETE AFTER DELETE ON $table BEGIN ${decrement("OLD")} END")
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS ${prefix}_AFTER_UPDATE AFTER UPDATE OF dateTimestamp, profileId, categoryId, deletedAt ON $table " +
+                    "BEGIN ${decrement("OLD")} ${increment("NEW")} END"
+            )
+        }
+        rebuild(db)
+    }
+
+    /**
+     * Drop the triggers, so a migration can install changed versions under the same names
+     * @param db Open database
+     */
+    fun dropTriggers(db: SupportSQLiteDatabase) {
+        for (name in TRIGGER_NAMES) {
+            db.execSQL("DROP TRIGGER IF EXISTS $name")
+        }
+    }
+
+    /**
+     * Install the triggers if any is missing; a no-op on an up-to-date database
+     * @param db Open database
+     */
+    fun ensureInstalled(db: SupportSQLiteDatabase) {
+        val installed = db.query(
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN (${TRIGGER_NAMES.joinToString { "?" }})",
+            TRIGGER_NAMES.toTypedArray()
+        ).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+        if (installed < TRIGGER_NAMES.size) {
+            Log.i(TAG, "Installing daily summary triggers")
+            db.beginTransaction()
+            try {
+                install(db)
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+        }
+    }
+
+    /**
+     * Recount the summary from both activity tables
+     * @param db Open database
+     */
+    fun rebuild(db: SupportSQLiteDatabase) {
+        db.execSQL("DELETE FROM $TABLE")
+        db.execSQL(
+            """
+            INSERT INTO $TABLE (epochDay, profileId, categoryId, count)
+            SELECT ${epochDaySql("dateTimestamp")}, profileId, categoryId, COUNT(*)
+            FROM (
+                SELECT dateTimestamp, profileId, categoryId FROM activities WHERE deletedAt IS NULL
+                UNION ALL
+                SELECT dateTimestamp, profileId, categoryId FROM activities_archive WHERE deletedAt IS NULL
+            )
+            GROUP BY 1, 2, 3
+            """.trimIndent()
+        )
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.kidtrack.data.database
+
+import androidx.room.RoomDatabase
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Threading and journal settings shared by every KidTrack database instance.
+ *
+ * In WAL mode readers work from a snapshot and are not blocked by the writer,
+ * so reads get a small pool of their own while all writes are serialised on a
+ * single transaction thread. A slow import then never delays dashboard queries.
+ */
+object DatabaseConfig {
+
+    // SQLite serves readers in parallel, but more than a few threads only adds contention on a phone
+    private val QUERY_THREADS = Runtime.getRuntime().availableProcessors().coerceIn(2, 4)
+    private const val KEEP_ALIVE_SECONDS = 30L
+
+    /**
+     * Executor for non-transactional queries, bounded to [QUERY_THREADS] threads
+     */
+    val queryExecutor: ExecutorService by lazy {
+        ThreadPoolExecutor(
+            QUERY_THREADS, QUERY_THREADS,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            LinkedBlockingQueue(),
+            namedThreads("kidtrack-db-query")
+        ).apply { allowCoreThreadTimeOut(true) }
+    }
+
+    /**
+     * Single-thread executor for transactions; SQLite allows one writer at a time anyway
+     */
+    val transactionExecutor: ExecutorService by lazy {
+        Executors.newSingleThreadExecutor(namedThreads("kidtrack-db-write"))
+    }
+
+    /**
+     * Apply WAL journaling, the shared executors and the schema callback to a database builder.
+     * The callback installs the triggers Room cannot declare, so every instance built here,
+     * file-backed or in-memory, keeps its summary and search tables in step.
+     * @param builder Builder for a file-backed or in-memory database
+     * @return The same builder, for chaining
+     */
+    fun configure(builder: RoomDatabase.Builder<KidTrackDatabase>): RoomDatabase.Builder<KidTrackDatabase> =
+        builder
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .setQueryExecutor(queryExecutor)
+            .setTransactionExecutor(transactionExecutor)
+            .addCallback(KidTrackDatabase.SCHEMA_CALLBACK)
+
+    private fun namedThreads(prefix: String): ThreadFactory {
+        val count = AtomicInteger()
+        return ThreadFactory { runnable ->
+            Thread(runnable, "$prefix-${count.incrementAndGet()}").apply { isDaemon = true }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.kidtrack.data.database
+
+import androidx.sqlite.db.SimpleSQLiteQuery
+import com.example.kidtrack.data.model.ActivityListItem
+
+/**
+ * Helpers for building FTS MATCH expressions and the ranked search over their results.
+ */
+object FtsSearch {
+
+    // Relative weight of each activities_fts column, in declaration order:
+    // description, category, notes
+    private val COLUMN_WEIGHTS = doubleArrayOf(2.0, 1.5, 1.0)
+
+    // Alias of the matched rows in the ranked search
+    const val HITS = "fts_hits"
+
+    private const val HEX_DIGITS = "'0123456789ABCDEF'"
+
+    private val TOKEN_SEPARATOR = Regex("[^\\p{L}\\p{N}]+")
+
+    /**
+     * Turn free text typed by the user into a prefix MATCH expression.
+     * Every word must match the start of a token, so "swim les" finds "Swimming lesson".
+     * Punctuation is dropped, which also keeps FTS operators out of the query.
+     * @param query Raw search text
+     * @return MATCH expression, or null if the text contains no searchable words
+     */
+    fun prefixQuery(query: String): String? {
+        val tokens = query.split(TOKEN_SEPARATOR).filter { it.isNotEmpty() }
+        if (tokens.isEmpty()) return null
+        return tokens.joinToString(" ") { "$it*" }
+    }
+
+    /**
+     * Build the search over activities_fts, returning [ActivityListItem] rows best match first.
+     * Every matching activity is scored in SQL by [rankSql] and sorted before the LIMIT, so the
+     * best rows come back however many activities match.
+     * @param match MATCH expression of space-separated phrases, e.g. "swim* les*"
+     * @param categoryId Category to filter by, or null for all categories
+     * @param limit Maximum number of activities to return
+     * @return Query for [com.example.kidtrack.data.database.dao.ActivityDao.searchActivities]
+     */
+    fun rankedSearch(match: String, categoryId: Long?, limit: Int): SimpleSQLiteQuery {
+        val phraseCount = match.split(' ').count { it.isNotEmpty() }
+        val args = ArrayList<Any>()
+        // LIMIT -1 keeps SQLite from flattening the subquery into the join, which would
+        // run matchinfo again for every reference to it in the ranking expression
+        val sql = StringBuilder(ActivityListItem.SELECT_ITEMS)
+            .append("JOIN (SELECT docid, hex(matchinfo(activities_fts, 'pcx')) AS info ")
+            .append("FROM activities_fts WHERE activities_fts MATCH ? LIMIT -1) AS $HITS ")
+            .append("ON $HITS.docid = activities.id ")
+            .append("WHERE activities.deletedAt IS NULL ")
+        args.add(match)
+        if (categoryId != null) {
+            sql.append("AND activities.categoryId = ? ")
+            args.add(categoryId)
+        }
+        sql.append("ORDER BY ${rankSql(phraseCount)} DESC, activities.id DESC LIMIT ?")
+        args.add(limit)
+        return SimpleSQLiteQuery(sql.toString(), args.toTypedArray())
+    }
+
+    /**
+     * SQL scoring a row from hex(matchinfo(activities_fts, 'pcx')), read from [HITS].info.
+     * Each phrase hit in a column counts in proportion to how rare that phrase is
+     * across the whole table, weighted by the column.
+     * @param phraseCount Number of phrases in the MATCH expression
+     * @return Expression for the relevance score, higher is better
+     */
+    fun rankSql(phraseCount: Int): String {
+        if (phraseCount <= 0) return "0"
+        val columnCount = COLUMN_WEIGHTS.size
+        val terms = ArrayList<String>(phraseCount * columnCount)
+        for (phrase in 0 until phraseCount) {
+            for (column in 0 until columnCount) {
+                // 'pcx' holds the phrase and column counts, then three values per phrase and column:
+                // hits in this row, hits in all rows and rows with a hit
+                val offset = 2 + 3 * (phrase * columnCount + column)
+                terms.add("${COLUMN_WEIGHTS[column]} * ${intSql(offset)} / MAX(${intSql(offset + 1)}, 1)")
+            }
+        }
+        return terms.joinToString(" + ")
+    }
+
+    // The 32-bit value at an index of the matchinfo array, from its hex. Values are in the
+    // platform's byte order, little-endian on every Android ABI.
+    private fun intSql(index: Int): String {
+        val bytes = (0 until 4).map { byte ->
+            val position = 8 * index + 2 * byte + 1
+            val value = "(${nibbleSql(position)} * 16 + ${nibbleSql(position + 1)})"
+            if (byte == 0) value else "$value * ${1L shl (8 * byte)}"
+        }
+        return bytes.joinToString(" + ", "(", ")")
+    }
+
+    private fun nibbleSql(position: Int) = "(instr($HEX_DIGITS, substr($HITS.info, $position, 1)) - 1)"
+}
@@ -6,27 +6,35 @@ import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
 import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
-import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityFts
+import com.example.kidtrack.data.model.ActivityRecord
+import com.example.kidtrack.data.model.ArchivedActivity
+import com.example.kidtrack.data.model.Category
+import com.example.kidtrack.data.model.DailyActivitySummary
 import com.example.kidtrack.data.model.Reminder
 import com.example.kidtrack.data.model.UserProfile
 import com.example.kidtrack.data.database.dao.ActivityDao
+import com.example.kidtrack.data.database.dao.ArchiveDao
+import com.example.kidtrack.data.database.dao.CategoryDao
 import com.example.kidtrack.data.database.dao.ReminderDao
 import com.example.kidtrack.data.database.dao.ProfileDao
+import com.example.kidtrack.data.database.dao.ReportDao
 import com.example.kidtrack.data.database.converters.DateConverter
+import com.example.kidtrack.utils.ReminderRecurrence
 import android.content.Context
 
-@Database(entities = [Activity::class, Reminder::class, UserProfile::class], version = 5, exportSchema = false)
+@Database(entities = [ActivityRecord::class, ActivityFts::class, ArchivedActivity::class, Category::class, DailyActivitySummary::class, Reminder::class, UserProfile::class], version = 15, exportSchema = false)
 @TypeConverters(DateConverter::class)
 abstract class KidTrackDatabase : RoomDatabase() {
 
     abstract fun activityDao(): ActivityDao
+    abstract fun archiveDao(): ArchiveDao
+    abstract fun categoryDao(): CategoryDao
     abstract fun reminderDao(): ReminderDao
     abstract fun profileDao(): ProfileDao
+    abstract fun reportDao(): ReportDao
 
     companion object {
-        @Volatile
-        private var INSTANCE: KidTrackDatabase? = null
-        
         private val MIGRATION_1_2 = object : Migration(1, 2) {
             override fun migrate(database: SupportSQLiteDatabase) {
                 // Add profileId column to activities table
@@ -108,20 +116,222 @@ abstract class KidTrackDatabase : RoomDatabase() {
                 database.execSQL("ALTER TABLE reminders ADD COLUMN snoozeEnabled INTEGER NOT NULL DEFAULT 1")
             }
         }
+        
+        private val MIGRATION_5_6 = object : Migration(5, 6) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Add indexes backing the sorted and filtered DAO queries
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_profileId_dateTimestamp_timeMinutes` ON `activities` (`profileId`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_dateTimestamp_timeMinutes` ON `activities` (`dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_timeMinutes` ON `reminders` (`timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_profileId_timeMinutes` ON `reminders` (`profileId`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_associatedActivityId` ON `reminders` (`associatedActivityId`)")
+            }
+        }
+        
+        private val MIGRATION_6_7 = object : Migration(6, 7) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Index category for the report breakdown and category filters
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_category` ON `activities` (`category`)")
+            }
+        }
 
-        fun getDatabase(context: Context): KidTrackDatabase {
-            return INSTANCE ?: synchronized(this) {
-                val instance = Room.databaseBuilder(
-                    context.applicationContext,
-                    KidTrackDatabase::class.java,
-                    "kidtrack_database"
-                )
-                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+        private val MIGRATION_7_8 = object : Migration(7, 8) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Full-text index over activities, stored as an external content table
+                database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `activities_fts` USING FTS4(`description` TEXT NOT NULL, `category` TEXT NOT NULL, `notes` TEXT NOT NULL, content=`activities`)")
+                // Keep the index in sync with the content table (same triggers Room generates)
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_activities_fts_BEFORE_UPDATE BEFORE UPDATE ON `activities` BEGIN DELETE FROM `activities_fts` WHERE `docid`=OLD.`rowid`; END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_activities_fts_BEFORE_DELETE BEFORE DELETE ON `activities` BEGIN DELETE FROM `activities_fts` WHERE `docid`=OLD.`rowid`; END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_activities_fts_AFTER_UPDATE AFTER UPDATE ON `activities` BEGIN INSERT INTO `activities_fts`(`docid`, `description`, `category`, `notes`) VALUES (NEW.`rowid`, NEW.`description`, NEW.`category`, NEW.`notes`); END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_activities_fts_AFTER_INSERT AFTER INSERT ON `activities` BEGIN INSERT INTO `activities_fts`(`docid`, `description`, `category`, `notes`) VALUES (NEW.`rowid`, NEW.`description`, NEW.`category`, NEW.`notes`); END")
+                // Index the activities that already exist
+                database.execSQL("INSERT INTO `activities_fts`(`activities_fts`) VALUES('rebuild')")
+            }
+        }
+
+        private val MIGRATION_8_9 = object : Migration(8, 9) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Per-day counts maintained by triggers, read by the reports
+                database.execSQL("CREATE TABLE IF NOT EXISTS `daily_activity_summary` (`epochDay` INTEGER NOT NULL, `profileId` INTEGER NOT NULL, `category` TEXT NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`epochDay`, `profileId`, `category`))")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_daily_activity_summary_category_count` ON `daily_activity_summary` (`category`, `count`)")
+                // The triggers and the backfill are installed by SCHEMA_CALLBACK once every
+                // migration has run, so their SQL can assume the latest schema
+            }
+        }
+
+        private val MIGRATION_9_10 = object : Migration(9, 10) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Categories get integer ids; activities keep the name for search and the summary
+                database.execSQL("CREATE TABLE IF NOT EXISTS `categories` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL)")
+                database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_categories_name` ON `categories` (`name`)")
+                database.execSQL("ALTER TABLE activities ADD COLUMN `categoryId` INTEGER REFERENCES `categories`(`id`) ON UPDATE NO ACTION ON DELETE RESTRICT")
+                // Filters now compare ids, so the name index is replaced
+                database.execSQL("DROP INDEX IF EXISTS `index_activities_category`")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_categoryId_dateTimestamp_timeMinutes` ON `activities` (`categoryId`, `dateTimestamp`, `timeMinutes`)")
+                // Seed the predefined categories, add the existing ones and link every activity
+                CategorySchema.seed(database)
+                database.execSQL("INSERT OR IGNORE INTO categories (name) SELECT DISTINCT category FROM activities")
+                database.execSQL("UPDATE activities SET categoryId = (SELECT id FROM categories WHERE name = activities.category)")
+            }
+        }
+
+        private val MIGRATION_10_11 = object : Migration(10, 11) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Deletes leave tombstones, purged later by DatabaseMaintenanceWorker
+                database.execSQL("ALTER TABLE activities ADD COLUMN deletedAt INTEGER")
+                database.execSQL("ALTER TABLE reminders ADD COLUMN deletedAt INTEGER")
+                database.execSQL("ALTER TABLE profiles ADD COLUMN deletedAt INTEGER")
+                // deletedAt follows the equality columns, so live rows stay one contiguous index range
+                database.execSQL("DROP INDEX IF EXISTS `index_activities_profileId_dateTimestamp_timeMinutes`")
+                database.execSQL("DROP INDEX IF EXISTS `index_activities_dateTimestamp_timeMinutes`")
+                database.execSQL("DROP INDEX IF EXISTS `index_activities_categoryId_dateTimestamp_timeMinutes`")
+                database.execSQL("DROP INDEX IF EXISTS `index_reminders_timeMinutes`")
+                database.execSQL("DROP INDEX IF EXISTS `index_reminders_profileId_timeMinutes`")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_profileId_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`profileId`, `deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_categoryId_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`categoryId`, `deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_deletedAt_timeMinutes` ON `reminders` (`deletedAt`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_profileId_deletedAt_timeMinutes` ON `reminders` (`profileId`, `deletedAt`, `timeMinutes`)")
+                // The summary triggers now skip tombstones; SCHEMA_CALLBACK installs the new ones
+                DailySummarySchema.dropTriggers(database)
+            }
+        }
+
+        private val MIGRATION_11_12 = object : Migration(11, 12) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Cold tier for activities older than the archive horizon
+                database.execSQL("CREATE TABLE IF NOT EXISTS `activities_archive` (`id` INTEGER NOT NULL, `category` TEXT NOT NULL, `description` TEXT NOT NULL, `notes` TEXT NOT NULL, `dateTimestamp` INTEGER NOT NULL, `timeMinutes` INTEGER NOT NULL, `profileId` INTEGER NOT NULL, `categoryId` INTEGER, `deletedAt` INTEGER, PRIMARY KEY(`id`))")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_archive_deletedAt_dateTimestamp_timeMinutes` ON `activities_archive` (`deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_archive_profileId_deletedAt` ON `activities_archive` (`profileId`, `deletedAt`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_archive_categoryId` ON `activities_archive` (`categoryId`)")
+                // Summary and category triggers now cover the archive; SCHEMA_CALLBACK installs the new ones
+                DailySummarySchema.dropTriggers(database)
+                CategorySchema.dropTriggers(database)
+            }
+        }
+
+        private val MIGRATION_12_13 = object : Migration(12, 13) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Alarm queue: reminders keep their next fire time, and only the earliest is armed
+                database.execSQL("ALTER TABLE reminders ADD COLUMN nextFireAt INTEGER")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_deletedAt_nextFireAt` ON `reminders` (`deletedAt`, `nextFireAt`)")
+                // Queue the live reminders as their per-reminder alarms would have fired
+                val now = System.currentTimeMillis()
+                val recurrence = ReminderRecurrence()
+                val queued = ArrayList<Pair<Long, Long>>()
+                database.query("SELECT id, timeMinutes, frequency, daysBefore, eventDateTimestamp FROM reminders WHERE deletedAt IS NULL").use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val reminder = Reminder(
+                            id = cursor.getLong(0),
+                            timeMinutes = cursor.getInt(1),
+                            frequency = cursor.getString(2),
+                            associatedActivityId = 0,
+                            daysBefore = cursor.getInt(3),
+                            eventDateTimestamp = cursor.getLong(4)
+                        )
+                        recurrence.firstOccurrence(reminder, now)?.let { queued.add(reminder.id to it) }
+                    }
+                }
+                for ((id, nextFireAt) in queued) {
+                    database.execSQL("UPDATE reminders SET nextFireAt = ? WHERE id = ?", arrayOf<Any>(nextFireAt, id))
+                }
+            }
+        }
+
+        private val MIGRATION_13_14 = object : Migration(13, 14) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Repeating reminders count their occurrences from the day they started
+                database.execSQL("ALTER TABLE reminders ADD COLUMN startDateTimestamp INTEGER NOT NULL DEFAULT 0")
+                // Existing series continue from their pending occurrence
+                database.execSQL("UPDATE reminders SET startDateTimestamp = nextFireAt WHERE nextFireAt IS NOT NULL AND NOT (eventDateTimestamp > 0 AND daysBefore > 0)")
+            }
+        }
+
+        private val MIGRATION_14_15 = object : Migration(14, 15) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                // Activities keep only the category id; names are joined from categories, so a
+                // rename is one row. Triggers go first, since they name the tables rebuilt below.
+                DailySummarySchema.dropTriggers(database)
+                CategorySchema.dropTriggers(database)
+                ActivitySearchSchema.dropTriggers(database)
+                ActivityVersionSchema.dropTriggers(database)
+                for (trigger in listOf("BEFORE_UPDATE", "BEFORE_DELETE", "AFTER_UPDATE", "AFTER_INSERT")) {
+                    database.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_activities_fts_$trigger")
+                }
+                // The index now stores its own text; SCHEMA_CALLBACK fills it
+                database.execSQL("DROP TABLE IF EXISTS `activities_fts`")
+                database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `activities_fts` USING FTS4(`description` TEXT NOT NULL, `category` TEXT NOT NULL, `notes` TEXT NOT NULL)")
+
+                // Link any row still missing its id before the name goes
+                for (table in listOf("activities", "activities_archive")) {
+                    database.execSQL("INSERT OR IGNORE INTO categories (name) SELECT DISTINCT category FROM $table WHERE categoryId IS NULL")
+                    database.execSQL("UPDATE $table SET categoryId = (SELECT id FROM categories WHERE name = $table.category) WHERE categoryId IS NULL")
+                }
+
+                // Rebuilding the table resets its AUTOINCREMENT counter; keep ids from being reused
+                val sequence = database.query("SELECT seq FROM sqlite_sequence WHERE name = 'activities'").use { cursor ->
+                    if (cursor.moveToFirst()) cursor.getLong(0) else 0L
+                }
+                database.execSQL("CREATE TABLE IF NOT EXISTS `activities_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `description` TEXT NOT NULL, `notes` TEXT NOT NULL, `dateTimestamp` INTEGER NOT NULL, `timeMinutes` INTEGER NOT NULL, `profileId` INTEGER NOT NULL, `categoryId` INTEGER NOT NULL, `deletedAt` INTEGER, FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) ON UPDATE NO ACTION ON DELETE RESTRICT )")
+                database.execSQL("INSERT INTO activities_new (id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt) SELECT id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt FROM activities")
+                database.execSQL("DROP TABLE activities")
+                database.execSQL("ALTER TABLE activities_new RENAME TO activities")
+                if (sequence > 0) {
+                    database.execSQL("DELETE FROM sqlite_sequence WHERE name = 'activities'")
+                    database.execSQL("INSERT INTO sqlite_sequence (name, seq) VALUES ('activities', ?)", arrayOf<Any>(sequence))
+                }
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_profileId_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`profileId`, `deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_categoryId_deletedAt_dateTimestamp_timeMinutes` ON `activities` (`categoryId`, `deletedAt`, `dateTimestamp`, `timeMinutes`)")
+
+                database.execSQL("CREATE TABLE IF NOT EXISTS `activities_archive_new` (`id` INTEGER NOT NULL, `description` TEXT NOT NULL, `notes` TEXT NOT NULL, `dateTimestamp` INTEGER NOT NULL, `timeMinutes` INTEGER NOT NULL, `profileId` INTEGER NOT NULL, `categoryId` INTEGER NOT NULL, `deletedAt` INTEGER, PRIMARY KEY(`id`))")
+                database.execSQL("INSERT INTO activities_archive_new (id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt) SELECT id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt FROM activities_archive")
+                database.execSQL("DROP TABLE activities_archive")
+                database.execSQL("ALTER TABLE activities_archive_new RENAME TO activities_archive")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_archive_deletedAt_dateTimestamp_timeMinutes` ON `activities_archive` (`deletedAt`, `dateTimestamp`, `timeMinutes`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_activities_archive_profileId_deletedAt` ON `activities_archive` (`profileId`, `deletedAt`)")
+
+                // Summary rows are keyed by category id; SCHEMA_CALLBACK recounts them
+                database.execSQL("DROP TABLE IF EXISTS `daily_activity_summary`")
+                database.execSQL("CREATE TABLE IF NOT EXISTS `daily_activity_summary` (`epochDay` INTEGER NOT NULL, `profileId` INTEGER NOT NULL, `categoryId` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`epochDay`, `profileId`, `categoryId`))")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_daily_activity_summary_categoryId_count` ON `daily_activity_summary` (`categoryId`, `count`)")
+            }
+        }
+
+        /**
+         * Installs what Room cannot declare: the predefined categories when the database is
+         * created, and on every open any missing trigger, on databases that were created fresh
+         * or rebuilt by a destructive migration rather than migrated.
+         * Added by [DatabaseConfig.configure], which every instance is built through.
+         */
+        val SCHEMA_CALLBACK = object : RoomDatabase.Callback() {
+            override fun onCreate(db: SupportSQLiteDatabase) {
+                CategorySchema.seed(db)
+            }
+
+            override fun onOpen(db: SupportSQLiteDatabase) {
+                DailySummarySchema.ensureInstalled(db)
+                ActivitySearchSchema.ensureInstalled(db)
+                ActivityVersionSchema.ensureInstalled(db)
+            }
+        }
+
+        /**
+         * Open the app's database file. Each call builds a new instance; the app keeps its
+         * single one in [com.example.kidtrack.AppContainer].
+         * @param context Any context; only the application context is used
+         * @return A new database instance
+         */
+        fun build(context: Context): KidTrackDatabase {
+            val builder = Room.databaseBuilder(
+                context.applicationContext,
+                KidTrackDatabase::class.java,
+                "kidtrack_database"
+            )
+            return DatabaseConfig.configure(builder)
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14, MIGRATION_14_15)
                 .fallbackToDestructiveMigration() // Only for development - remove for production
                 .build()
-                INSTANCE = instance
-                instance
-            }
         }
     }
 }
\ No newline at end of file
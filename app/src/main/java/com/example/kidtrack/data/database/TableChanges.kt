@@ -0,0 +1,29 @@
+package com.example.kidtrack.data.database
+
+import androidx.room.InvalidationTracker
+import androidx.room.RoomDatabase
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flowOn
+
+/**
+ * Emits once on collection and again each time one of the given tables changes.
+ * Bursts of writes are conflated, so a slow collector re-queries once for the
+ * whole burst rather than once per write.
+ * @param tables Tables to observe
+ * @return Flow of the invalidated table names (the observed tables on the first emission)
+ */
+fun RoomDatabase.tableChanges(vararg tables: String): Flow<Set<String>> = callbackFlow {
+    val observer = object : InvalidationTracker.Observer(tables) {
+        override fun onInvalidated(changed: Set<String>) {
+            trySend(changed)
+        }
+    }
+    trySend(tables.toSet())
+    // Registering syncs the tracker's triggers, which touches the database
+    invalidationTracker.addObserver(observer)
+    awaitClose { invalidationTracker.removeObserver(observer) }
+}.conflate().flowOn(Dispatchers.IO)
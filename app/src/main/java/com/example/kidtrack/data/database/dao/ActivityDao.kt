@@ -4,29 +4,217 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
+import androidx.room.RawQuery
+import androidx.room.Update
+import androidx.sqlite.db.SupportSQLiteQuery
+import com.example.kidtrack.data.database.FtsSearch
 import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.data.model.ActivityRecord
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 interface ActivityDao {
 
+    /**
+     * Insert an activity
+     * @return Row id of the inserted activity
+     */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    suspend fun insertActivity(activity: Activity)
+    suspend fun insertActivity(activity: ActivityRecord): Long
 
-    @Query("SELECT * FROM activities WHERE id = :activityId")
+    /**
+     * Insert a batch of new activities. Call inside a transaction so the batch
+     * is committed once instead of once per row.
+     * @return Row ids, in input order
+     */
+    @Insert
+    suspend fun insertActivities(activities: List<ActivityRecord>): List<Long>
+
+    /**
+     * Update an existing activity in place.
+     * Edits must not go through REPLACE: it deletes the old row without firing
+     * delete triggers, which would leave a stale entry in activities_fts.
+     */
+    @Update
+    suspend fun updateActivity(activity: ActivityRecord)
+
+    @Query(Activity.SELECT_ACTIVITIES + "WHERE activities.id = :activityId AND activities.deletedAt IS NULL")
     suspend fun getActivityById(activityId: Long): Activity?
 
-    @Query("SELECT * FROM activities ORDER BY dateTimestamp ASC, timeMinutes ASC")
+    @Query(Activity.SELECT_ACTIVITIES + "WHERE activities.deletedAt IS NULL ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC")
     suspend fun getAllActivities(): List<Activity>
+
+    @Query(ActivityListItem.SELECT_ITEMS + "WHERE activities.deletedAt IS NULL ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC")
+    fun observeAllActivities(): Flow<List<ActivityListItem>>
     
-    @Query("SELECT * FROM activities WHERE profileId = :profileId ORDER BY dateTimestamp ASC, timeMinutes ASC")
+    @Query(Activity.SELECT_ACTIVITIES + "WHERE activities.profileId = :profileId AND activities.deletedAt IS NULL ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC")
     suspend fun getActivitiesByProfile(profileId: Long): List<Activity>
     
-    @Query("SELECT * FROM activities WHERE dateTimestamp >= :startTimestamp AND dateTimestamp <= :endTimestamp ORDER BY dateTimestamp ASC, timeMinutes ASC")
+    @Query(Activity.SELECT_ACTIVITIES + "WHERE activities.deletedAt IS NULL AND activities.dateTimestamp >= :startTimestamp AND activities.dateTimestamp <= :endTimestamp ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC")
     suspend fun getActivitiesByDateRange(startTimestamp: Long, endTimestamp: Long): List<Activity>
 
-    @Query("DELETE FROM activities WHERE id = :activityId")
-    suspend fun deleteActivity(activityId: Long)
-    
-    @Query("DELETE FROM activities WHERE profileId = :profileId")
-    suspend fun deleteActivitiesByProfile(profileId: Long)
+    /**
+     * List items dated between two timestamps, inclusive, sorted by date and time.
+     * Used to load one calendar month at a time.
+     */
+    @Query(ActivityListItem.SELECT_ITEMS + """
+        WHERE activities.deletedAt IS NULL
+          AND activities.dateTimestamp >= :startTimestamp AND activities.dateTimestamp <= :endTimestamp
+        ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC
+    """)
+    suspend fun getActivityItemsByDateRange(startTimestamp: Long, endTimestamp: Long): List<ActivityListItem>
+
+    /**
+     * Activities strictly after the given (date, time, id) position, in ascending order.
+     * The redundant leading range lets SQLite walk the date/time index without sorting.
+     */
+    @Query(Activity.SELECT_ACTIVITIES + """
+        WHERE activities.deletedAt IS NULL
+          AND activities.dateTimestamp >= :afterTimestamp
+          AND (activities.dateTimestamp > :afterTimestamp
+               OR (activities.dateTimestamp = :afterTimestamp
+                   AND (activities.timeMinutes > :afterMinutes OR (activities.timeMinutes = :afterMinutes AND activities.id > :afterId))))
+        ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC, activities.id ASC
+        LIMIT :limit
+    """)
+    suspend fun getActivitiesAfter(afterTimestamp: Long, afterMinutes: Int, afterId: Long, limit: Int): List<Activity>
+
+    /**
+     * List items after the given position, as in [getActivitiesAfter]; re-queried whenever activities change.
+     */
+    @Query(ActivityListItem.SELECT_ITEMS + """
+        WHERE activities.deletedAt IS NULL
+          AND activities.dateTimestamp >= :afterTimestamp
+          AND (activities.dateTimestamp > :afterTimestamp
+               OR (activities.dateTimestamp = :afterTimestamp
+                   AND (activities.timeMinutes > :afterMinutes OR (activities.timeMinutes = :afterMinutes AND activities.id > :afterId))))
+        ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC, activities.id ASC
+        LIMIT :limit
+    """)
+    fun observeActivitiesAfter(afterTimestamp: Long, afterMinutes: Int, afterId: Long, limit: Int): Flow<List<ActivityListItem>>
+
+    /**
+     * Activities strictly before the given (date, time, id) position, most recent first.
+     */
+    @Query(Activity.SELECT_ACTIVITIES + """
+        WHERE activities.deletedAt IS NULL
+          AND activities.dateTimestamp <= :beforeTimestamp
+          AND (activities.dateTimestamp < :beforeTimestamp
+               OR (activities.dateTimestamp = :beforeTimestamp
+                   AND (activities.timeMinutes < :beforeMinutes OR (activities.timeMinutes = :beforeMinutes AND activities.id < :beforeId))))
+        ORDER BY activities.dateTimestamp DESC, activities.timeMinutes DESC, activities.id DESC
+        LIMIT :limit
+    """)
+    suspend fun getActivitiesBefore(beforeTimestamp: Long, beforeMinutes: Int, beforeId: Long, limit: Int): List<Activity>
+
+    /**
+     * List items before the given position, as in [getActivitiesBefore]; re-queried whenever activities change.
+     */
+    @Query(ActivityListItem.SELECT_ITEMS + """
+        WHERE activities.deletedAt IS NULL
+          AND activities.dateTimestamp <= :beforeTimestamp
+          AND (activities.dateTimestamp < :beforeTimestamp
+               OR (activities.dateTimestamp = :beforeTimestamp
+                   AND (activities.timeMinutes < :beforeMinutes OR (activities.timeMinutes = :beforeMinutes AND activities.id < :beforeId))))
+        ORDER BY activities.dateTimestamp DESC, activities.timeMinutes DESC, activities.id DESC
+        LIMIT :limit
+    """)
+    fun observeActivitiesBefore(beforeTimestamp: Long, beforeMinutes: Int, beforeId: Long, limit: Int): Flow<List<ActivityListItem>>
+
+    /**
+     * Page of the activities list after the given position.
+     * A null category id disables the category filter.
+     */
+    @Query(ActivityListItem.SELECT_ITEMS + """
+        WHERE activities.deletedAt IS NULL
+          AND (:categoryId IS NULL OR activities.categoryId = :categoryId)
+          AND activities.dateTimestamp >= :afterTimestamp
+          AND (activities.dateTimestamp > :afterTimestamp
+               OR (activities.dateTimestamp = :afterTimestamp
+                   AND (activities.timeMinutes > :afterMinutes OR (activities.timeMinutes = :afterMinutes AND activities.id > :afterId))))
+        ORDER BY activities.dateTimestamp ASC, activities.timeMinutes ASC, activities.id ASC
+        LIMIT :limit
+    """)
+    suspend fun pageActivitiesAfter(
+        afterTimestamp: Long,
+        afterMinutes: Int,
+        afterId: Long,
+        categoryId: Long?,
+        limit: Int
+    ): List<ActivityListItem>
+
+    /**
+     * Page of the activities list before the given position, most recent first.
+     * Used when scrolling back up from a restored position.
+     */
+    @Query(ActivityListItem.SELECT_ITEMS + """
+        WHERE activities.deletedAt IS NULL
+          AND (:categoryId IS NULL OR activities.categoryId = :categoryId)
+          AND activities.dateTimestamp <= :beforeTimestamp
+          AND (activities.dateTimestamp < :beforeTimestamp
+               OR (activities.dateTimestamp = :beforeTimestamp
+                   AND (activities.timeMinutes < :beforeMinutes OR (activities.timeMinutes = :beforeMinutes AND activities.id < :beforeId))))
+        ORDER BY activities.dateTimestamp DESC, activities.timeMinutes DESC, activities.id DESC
+        LIMIT :limit
+    """)
+    suspend fun pageActivitiesBefore(
+        beforeTimestamp: Long,
+        beforeMinutes: Int,
+        beforeId: Long,
+        categoryId: Long?,
+        limit: Int
+    ): List<ActivityListItem>
+
+    /**
+     * Full-text search over description, category and notes, best match first.
+     * Every match is ranked in SQL, so only the [limit] best rows are read back.
+     * @param match FTS MATCH expression, e.g. "swim* les*"
+     * @param categoryId Category to filter by, or null for all categories
+     * @param limit Maximum number of activities to return
+     */
+    suspend fun searchActivities(match: String, categoryId: Long?, limit: Int): List<ActivityListItem> =
+        searchActivities(FtsSearch.rankedSearch(match, categoryId, limit))
+
+    /**
+     * Run a search built by [FtsSearch.rankedSearch]; its ranking expression depends on the
+     * number of phrases, so the statement is built per query
+     */
+    @RawQuery
+    suspend fun searchActivities(query: SupportSQLiteQuery): List<ActivityListItem>
+
+    /**
+     * Mark an activity deleted; it stays in the table as a tombstone until purged
+     * @return Number of activities deleted, 0 if it was already deleted
+     */
+    @Query("UPDATE activities SET deletedAt = :deletedAt WHERE id = :activityId AND deletedAt IS NULL")
+    suspend fun softDeleteActivity(activityId: Long, deletedAt: Long): Int
+
+    @Query("UPDATE activities SET deletedAt = :deletedAt WHERE profileId = :profileId AND deletedAt IS NULL")
+    suspend fun softDeleteActivitiesByProfile(profileId: Long, deletedAt: Long): Int
+
+    /**
+     * Bring back a deleted activity that has not been purged yet
+     * @return Number of activities restored, 0 if it is live or already purged
+     */
+    @Query("UPDATE activities SET deletedAt = NULL WHERE id = :activityId AND deletedAt IS NOT NULL")
+    suspend fun restoreActivity(activityId: Long): Int
+
+    /**
+     * Bring back the activities deleted together with their profile, leaving earlier deletions alone.
+     * Call before restoring the profile, whose deletedAt they are matched against.
+     */
+    @Query("""
+        UPDATE activities SET deletedAt = NULL
+        WHERE profileId = :profileId
+          AND deletedAt = (SELECT deletedAt FROM profiles WHERE id = :profileId)
+    """)
+    suspend fun restoreActivitiesByProfile(profileId: Long): Int
+
+    /**
+     * Physically delete up to [limit] activities deleted before [cutoff]
+     * @return Number of rows removed; fewer than [limit] means none are left
+     */
+    @Query("DELETE FROM activities WHERE id IN (SELECT id FROM activities WHERE deletedAt < :cutoff LIMIT :limit)")
+    suspend fun purgeDeletedActivities(cutoff: Long, limit: Int): Int
 }
\ No newline at end of file
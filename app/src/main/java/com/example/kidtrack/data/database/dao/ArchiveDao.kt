@@ -0,0 +1,118 @@
+package com.example.kidtrack.data.database.dao
+
+import android.database.Cursor
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
+
+/**
+ * Access to activities_archive, the cold tier holding activities older than the archive horizon.
+ * Day-to-day screens read only the activities table; the repository adds these rows when a
+ * requested range reaches back into the archive.
+ */
+@Dao
+interface ArchiveDao {
+
+    /**
+     * Ids of the oldest live activities dated before [horizon], at most [limit] of them
+     */
+    @Query("""
+        SELECT id FROM activities
+        WHERE deletedAt IS NULL AND dateTimestamp < :horizon
+        ORDER BY dateTimestamp ASC, timeMinutes ASC
+        LIMIT :limit
+    """)
+    suspend fun getArchivableIds(horizon: Long, limit: Int): List<Long>
+
+    @Query("""
+        INSERT INTO activities_archive (id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt)
+        SELECT id, description, notes, dateTimestamp, timeMinutes, profileId, categoryId, deletedAt
+        FROM activities WHERE id IN (:ids)
+    """)
+    suspend fun copyToArchive(ids: List<Long>)
+
+    @Query("DELETE FROM activities WHERE id IN (:ids)")
+    suspend fun deleteFromActivities(ids: List<Long>)
+
+    /**
+     * Move a batch of old activities into the archive in one transaction.
+     * Summary triggers count the insert and the delete against each other, so reports are unchanged.
+     * @param horizon Activities dated before this timestamp are archived
+     * @param limit Maximum number of activities to move
+     * @return Ids of the moved activities; fewer than [limit] means none are left to move
+     */
+    @Transaction
+    suspend fun archiveBatch(horizon: Long, limit: Int): List<Long> {
+        val ids = getArchivableIds(horizon, limit)
+        if (ids.isNotEmpty()) {
+            copyToArchive(ids)
+            deleteFromActivities(ids)
+        }
+        return ids
+    }
+
+    /**
+     * Timestamp of the newest archived activity, or null if the archive is empty.
+     * Ranges starting after it can skip the archive.
+     */
+    @Query("SELECT dateTimestamp FROM activities_archive WHERE deletedAt IS NULL ORDER BY dateTimestamp DESC LIMIT 1")
+    suspend fun getLatestArchivedTimestamp(): Long?
+
+    @Query("""
+        SELECT activities_archive.*, categories.name AS category
+        FROM activities_archive
+        JOIN categories ON categories.id = activities_archive.categoryId
+        WHERE activities_archive.deletedAt IS NULL
+          AND activities_archive.dateTimestamp >= :startTimestamp AND activities_archive.dateTimestamp <= :endTimestamp
+        ORDER BY activities_archive.dateTimestamp ASC, activities_archive.timeMinutes ASC
+    """)
+    suspend fun getActivitiesByDateRange(startTimestamp: Long, endTimestamp: Long): List<Activity>
+
+    /**
+     * List items dated between two timestamps, as in [ActivityDao.getActivityItemsByDateRange].
+     * Reminders of archived activities have long since fired, so none are joined.
+     */
+    @Query("""
+        SELECT activities_archive.*,
+               categories.name AS category,
+               profiles.name AS profileName,
+               NULL AS reminderName,
+               NULL AS reminderSnoozeEnabled
+        FROM activities_archive
+        JOIN categories ON categories.id = activities_archive.categoryId
+        LEFT JOIN profiles ON profiles.id = activities_archive.profileId
+        WHERE activities_archive.deletedAt IS NULL
+          AND activities_archive.dateTimestamp >= :startTimestamp AND activities_archive.dateTimestamp <= :endTimestamp
+        ORDER BY activities_archive.dateTimestamp ASC, activities_archive.timeMinutes ASC
+    """)
+    suspend fun getActivityItemsByDateRange(startTimestamp: Long, endTimestamp: Long): List<ActivityListItem>
+
+    /**
+     * The archived counterpart of [ReportDao.getAnalyticsCursor]. Blocking; the caller closes the cursor.
+     */
+    @Query("SELECT dateTimestamp, timeMinutes, profileId, categoryId FROM activities_archive WHERE deletedAt IS NULL ORDER BY dateTimestamp, timeMinutes")
+    fun getAnalyticsCursor(): Cursor
+
+    @Query("UPDATE activities_archive SET deletedAt = :deletedAt WHERE profileId = :profileId AND deletedAt IS NULL")
+    suspend fun softDeleteByProfile(profileId: Long, deletedAt: Long): Int
+
+    /**
+     * Bring back the archived activities deleted together with their profile.
+     * Call before restoring the profile, whose deletedAt they are matched against.
+     */
+    @Query("""
+        UPDATE activities_archive SET deletedAt = NULL
+        WHERE profileId = :profileId
+          AND deletedAt = (SELECT deletedAt FROM profiles WHERE id = :profileId)
+    """)
+    suspend fun restoreByProfile(profileId: Long): Int
+
+    /**
+     * Physically delete up to [limit] archived activities deleted before [cutoff]
+     * @return Number of rows removed; fewer than [limit] means none are left
+     */
+    @Query("DELETE FROM activities_archive WHERE id IN (SELECT id FROM activities_archive WHERE deletedAt < :cutoff LIMIT :limit)")
+    suspend fun purgeDeleted(cutoff: Long, limit: Int): Int
+}
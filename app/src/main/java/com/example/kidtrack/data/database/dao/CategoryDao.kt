@@ -0,0 +1,53 @@
+package com.example.kidtrack.data.database.dao
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import com.example.kidtrack.data.model.Category
+
+@Dao
+interface CategoryDao {
+
+    /**
+     * Insert a category unless one with the same name exists
+     * @return Row id of the inserted category, or -1 if the name was taken
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertCategory(category: Category): Long
+
+    @Query("SELECT id FROM categories WHERE name = :name")
+    suspend fun getCategoryId(name: String): Long?
+
+    @Query("SELECT * FROM categories ORDER BY name")
+    suspend fun getAllCategories(): List<Category>
+
+    /**
+     * Categories used by at least one live activity, sorted by name
+     */
+    @Query("""
+        SELECT * FROM categories
+        WHERE EXISTS (SELECT 1 FROM activities WHERE activities.categoryId = categories.id AND activities.deletedAt IS NULL)
+        ORDER BY name
+    """)
+    suspend fun getCategoriesInUse(): List<Category>
+
+    /**
+     * Rename a category. Activities reference it by id, so this one row is the only data changed;
+     * a trigger refreshes the category text of its activities' full-text entries
+     * @return Number of categories renamed, 0 if there is no such category
+     */
+    @Query("UPDATE categories SET name = :name WHERE id = :id")
+    suspend fun renameCategory(id: Long, name: String): Int
+
+    /**
+     * Get the id of a category, creating the category if needed
+     * @param name Category name
+     * @return The category's id
+     */
+    @Transaction
+    suspend fun getOrCreateCategoryId(name: String): Long {
+        return getCategoryId(name) ?: insertCategory(Category(name = name))
+    }
+}
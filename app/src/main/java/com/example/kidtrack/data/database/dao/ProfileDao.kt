@@ -5,19 +5,45 @@ import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import com.example.kidtrack.data.model.UserProfile
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 interface ProfileDao {
 
+    /**
+     * Insert or replace a profile
+     * @return Row id of the inserted profile
+     */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    suspend fun insertProfile(profile: UserProfile)
+    suspend fun insertProfile(profile: UserProfile): Long
 
-    @Query("SELECT * FROM profiles WHERE id = :id")
+    @Query("SELECT * FROM profiles WHERE id = :id AND deletedAt IS NULL")
     suspend fun getProfileById(id: Long): UserProfile?
 
-    @Query("SELECT * FROM profiles")
+    @Query("SELECT * FROM profiles WHERE deletedAt IS NULL")
     suspend fun getAllProfiles(): List<UserProfile>
 
-    @Query("DELETE FROM profiles WHERE id = :id")
-    suspend fun deleteProfileById(id: Long)
+    @Query("SELECT * FROM profiles WHERE deletedAt IS NULL")
+    fun observeAllProfiles(): Flow<List<UserProfile>>
+
+    /**
+     * Mark a profile deleted; it stays in the table as a tombstone until purged
+     * @return Number of profiles deleted, 0 if it was already deleted
+     */
+    @Query("UPDATE profiles SET deletedAt = :deletedAt WHERE id = :id AND deletedAt IS NULL")
+    suspend fun softDeleteProfile(id: Long, deletedAt: Long): Int
+
+    /**
+     * Bring back a deleted profile that has not been purged yet
+     * @return Number of profiles restored, 0 if it is live or already purged
+     */
+    @Query("UPDATE profiles SET deletedAt = NULL WHERE id = :id AND deletedAt IS NOT NULL")
+    suspend fun restoreProfile(id: Long): Int
+
+    /**
+     * Physically delete up to [limit] profiles deleted before [cutoff]
+     * @return Number of rows removed; fewer than [limit] means none are left
+     */
+    @Query("DELETE FROM profiles WHERE id IN (SELECT id FROM profiles WHERE deletedAt < :cutoff LIMIT :limit)")
+    suspend fun purgeDeletedProfiles(cutoff: Long, limit: Int): Int
 }
\ No newline at end of file
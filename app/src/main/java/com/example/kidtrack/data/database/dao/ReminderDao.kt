@@ -5,31 +5,133 @@ import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.data.model.ReminderNotice
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 interface ReminderDao {
 
+    /**
+     * Insert or replace a reminder
+     * @return Row id of the inserted reminder
+     */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    suspend fun insertReminder(reminder: Reminder)
+    suspend fun insertReminder(reminder: Reminder): Long
 
-    @Query("SELECT * FROM reminders WHERE id = :id")
+    /**
+     * Insert a batch of new reminders. Call inside a transaction so the batch
+     * is committed once instead of once per row.
+     * @return Row ids, in input order
+     */
+    @Insert
+    suspend fun insertReminders(reminders: List<Reminder>): List<Long>
+
+    @Query("SELECT * FROM reminders WHERE id = :id AND deletedAt IS NULL")
     suspend fun getReminderById(id: Long): Reminder?
 
-    @Query("SELECT * FROM reminders ORDER BY timeMinutes ASC")
+    @Query("SELECT * FROM reminders WHERE deletedAt IS NULL ORDER BY timeMinutes ASC")
     suspend fun getAllReminders(): List<Reminder>
+
+    @Query("SELECT * FROM reminders WHERE deletedAt IS NULL ORDER BY timeMinutes ASC")
+    fun observeAllReminders(): Flow<List<Reminder>>
     
-    @Query("SELECT * FROM reminders WHERE profileId = :profileId ORDER BY timeMinutes ASC")
+    @Query("SELECT * FROM reminders WHERE profileId = :profileId AND deletedAt IS NULL ORDER BY timeMinutes ASC")
     suspend fun getRemindersByProfile(profileId: Long): List<Reminder>
     
-    @Query("SELECT * FROM reminders WHERE associatedActivityId = :activityId")
+    @Query("SELECT * FROM reminders WHERE associatedActivityId = :activityId AND deletedAt IS NULL")
     suspend fun getRemindersByActivity(activityId: Long): List<Reminder>
 
-    @Query("DELETE FROM reminders WHERE id = :id")
-    suspend fun deleteReminderById(id: Long)
-    
-    @Query("DELETE FROM reminders WHERE profileId = :profileId")
-    suspend fun deleteRemindersByProfile(profileId: Long)
+    /**
+     * First reminder linked to an activity, the same one shown in activity lists
+     */
+    @Query("SELECT * FROM reminders WHERE associatedActivityId = :activityId AND deletedAt IS NULL ORDER BY id LIMIT 1")
+    suspend fun getFirstReminderForActivity(activityId: Long): Reminder?
+
+    /**
+     * Earliest pending fire time, the one the reminder alarm is armed for
+     * @return Fire time in milliseconds, or null if no reminder is pending
+     */
+    @Query("SELECT nextFireAt FROM reminders WHERE deletedAt IS NULL AND nextFireAt IS NOT NULL ORDER BY nextFireAt ASC LIMIT 1")
+    suspend fun getEarliestFireTime(): Long?
+
+    /**
+     * Reminders whose next fire time is at or before [until], earliest first, each with its
+     * activity and child's name, so the fire path posts notifications after this one read.
+     * Old activities may already be archived, so both activity tables are joined. The child is
+     * the reminder's own, so a reminder without an activity is still named and grouped.
+     */
+    @Query("""
+        SELECT reminders.*,
+               categories.name AS activityCategory,
+               COALESCE(activities.description, activities_archive.description) AS activityDescription,
+               COALESCE(activities.dateTimestamp, activities_archive.dateTimestamp) AS activityDateTimestamp,
+               COALESCE(activities.timeMinutes, activities_archive.timeMinutes) AS activityTimeMinutes,
+               profiles.name AS profileName
+        FROM reminders
+        LEFT JOIN activities ON activities.id = reminders.associatedActivityId AND activities.deletedAt IS NULL
+        LEFT JOIN activities_archive ON activities_archive.id = reminders.associatedActivityId AND activities_archive.deletedAt IS NULL
+        LEFT JOIN categories ON categories.id = COALESCE(activities.categoryId, activities_archive.categoryId)
+        LEFT JOIN profiles ON profiles.id = reminders.profileId AND profiles.deletedAt IS NULL
+        WHERE reminders.deletedAt IS NULL AND reminders.nextFireAt <= :until
+        ORDER BY reminders.nextFireAt ASC
+    """)
+    suspend fun getDueReminderNotices(until: Long): List<ReminderNotice>
+
+    /**
+     * Every live reminder with a pending fire time, in one read for bulk rescheduling
+     */
+    @Query("SELECT * FROM reminders WHERE deletedAt IS NULL AND nextFireAt IS NOT NULL")
+    suspend fun getPendingReminders(): List<Reminder>
+
+    /**
+     * Move a reminder in the alarm queue
+     * @param nextFireAt New fire time, or null to take it out of the queue
+     */
+    @Query("UPDATE reminders SET nextFireAt = :nextFireAt WHERE id = :id")
+    suspend fun setNextFireAt(id: Long, nextFireAt: Long?)
+
+    /**
+     * Move a reminder in the alarm queue only if its fire time is still [expected],
+     * so a change made in the meantime is not overwritten
+     * @param nextFireAt New fire time
+     * @param expected The fire time the reminder should have now, null for none
+     * @return Number of reminders moved, 0 if it had changed
+     */
+    @Query("UPDATE reminders SET nextFireAt = :nextFireAt WHERE id = :id AND deletedAt IS NULL AND nextFireAt IS :expected")
+    suspend fun moveNextFireAt(id: Long, nextFireAt: Long, expected: Long?): Int
+
+    /**
+     * Mark a reminder deleted; it stays in the table as a tombstone until purged
+     * @return Number of reminders deleted, 0 if it was already deleted
+     */
+    @Query("UPDATE reminders SET deletedAt = :deletedAt WHERE id = :id AND deletedAt IS NULL")
+    suspend fun softDeleteReminder(id: Long, deletedAt: Long): Int
     
-    @Query("DELETE FROM reminders WHERE associatedActivityId = :activityId")
-    suspend fun deleteRemindersByActivity(activityId: Long)
+    @Query("UPDATE reminders SET deletedAt = :deletedAt WHERE profileId = :profileId AND deletedAt IS NULL")
+    suspend fun softDeleteRemindersByProfile(profileId: Long, deletedAt: Long): Int
+
+    /**
+     * Bring back a deleted reminder that has not been purged yet
+     * @return Number of reminders restored, 0 if it is live or already purged
+     */
+    @Query("UPDATE reminders SET deletedAt = NULL WHERE id = :id AND deletedAt IS NOT NULL")
+    suspend fun restoreReminder(id: Long): Int
+
+    /**
+     * Bring back the reminders deleted together with their profile, leaving earlier deletions alone.
+     * Call before restoring the profile, whose deletedAt they are matched against.
+     */
+    @Query("""
+        UPDATE reminders SET deletedAt = NULL
+        WHERE profileId = :profileId
+          AND deletedAt = (SELECT deletedAt FROM profiles WHERE id = :profileId)
+    """)
+    suspend fun restoreRemindersByProfile(profileId: Long): Int
+
+    /**
+     * Physically delete up to [limit] reminders deleted before [cutoff]
+     * @return Number of rows removed; fewer than [limit] means none are left
+     */
+    @Query("DELETE FROM reminders WHERE id IN (SELECT id FROM reminders WHERE deletedAt < :cutoff LIMIT :limit)")
+    suspend fun purgeDeletedReminders(cutoff: Long, limit: Int): Int
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.kidtrack.data.database.dao
+
+import android.database.Cursor
+import androidx.room.Dao
+import androidx.room.Query
+import com.example.kidtrack.data.model.ActivityCounts
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.data.model.CategoryCount
+import com.example.kidtrack.data.model.DailyActivitySummary
+
+/**
+ * Aggregate queries backing the reports screen.
+ * Counts come from daily_activity_summary, so their cost grows with the number of
+ * days and categories rather than the number of activities. Breakdowns are computed
+ * over the columnar snapshot read by [getAnalyticsCursor]; only the few recent
+ * activities shown in the list are read from the activities table as rows.
+ */
+@Dao
+interface ReportDao {
+
+    /**
+     * Overall counts, with days given as local epoch days
+     */
+    @Query("""
+        SELECT COALESCE(SUM(count), 0) AS total,
+               COALESCE(SUM(CASE WHEN epochDay < :today THEN count ELSE 0 END), 0) AS completed,
+               COALESCE(SUM(CASE WHEN epochDay BETWEEN :weekStartDay AND :weekEndDay THEN count ELSE 0 END), 0) AS thisWeek
+        FROM daily_activity_summary
+    """)
+    suspend fun getActivityCounts(today: Long, weekStartDay: Long, weekEndDay: Long): ActivityCounts
+
+    /**
+     * Number of activities per category, named from the categories table
+     */
+    @Query("""
+        SELECT categories.name AS category, SUM(daily_activity_summary.count) AS count
+        FROM daily_activity_summary
+        JOIN categories ON categories.id = daily_activity_summary.categoryId
+        GROUP BY daily_activity_summary.categoryId
+        ORDER BY categories.name
+    """)
+    suspend fun getCategoryCounts(): List<CategoryCount>
+
+    /**
+     * Summary rows for a range of local epoch days, inclusive, in day order
+     */
+    @Query("SELECT * FROM daily_activity_summary WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay")
+    suspend fun getDailySummaries(startDay: Long, endDay: Long): List<DailyActivitySummary>
+
+    /**
+     * The columns read by [com.example.kidtrack.data.repository.ActivityColumns.fromCursor],
+     * for every activity in date order. Blocking; the caller closes the cursor.
+     */
+    @Query("SELECT dateTimestamp, timeMinutes, profileId, categoryId FROM activities WHERE deletedAt IS NULL ORDER BY dateTimestamp, timeMinutes")
+    fun getAnalyticsCursor(): Cursor
+
+    @Query(ActivityListItem.SELECT_ITEMS + "WHERE activities.deletedAt IS NULL ORDER BY activities.dateTimestamp DESC, activities.timeMinutes DESC, activities.id DESC LIMIT :limit")
+    suspend fun getMostRecentActivities(limit: Int): List<ActivityListItem>
+}
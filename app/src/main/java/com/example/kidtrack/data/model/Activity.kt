@@ -1,23 +1,48 @@
 package com.example.kidtrack.data.model
 
-import androidx.annotation.NonNull
-import androidx.room.Entity
-import androidx.room.PrimaryKey
-
-@Entity(tableName = "activities")
+/**
+ * An activity as the app shows and edits it: an [ActivityRecord] with its category's name.
+ *
+ * The name is not stored with the activity. Queries read it from the categories table
+ * (see [SELECT_ACTIVITIES]), and on save the repository resolves [category] to [categoryId],
+ * creating the category if needed.
+ */
 data class Activity(
-    @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
-    @NonNull
-    val category: String,
-    @NonNull
+    val category: String, // Category name, joined from the categories table
     val description: String,
-    @NonNull
     val notes: String,
-    @NonNull
     val dateTimestamp: Long, // Date as timestamp (milliseconds)
-    @NonNull
     val timeMinutes: Int, // Time as minutes since midnight (0-1439)
-    @NonNull
-    val profileId: Long = 0 // Link to child profile
-)
\ No newline at end of file
+    val profileId: Long = 0, // Link to child profile
+    val categoryId: Long? = null, // Link to the category named by [category]; filled in on save
+    val deletedAt: Long? = null // When the activity was deleted, or null; tombstones are purged later
+) {
+    companion object {
+        /**
+         * SELECT and join shared by the queries that return activities; append WHERE / ORDER BY.
+         * categories also has an id column, so conditions must qualify activities columns.
+         */
+        const val SELECT_ACTIVITIES = """
+            SELECT activities.*, categories.name AS category
+            FROM activities
+            JOIN categories ON categories.id = activities.categoryId
+        """
+    }
+
+    /**
+     * The row to write for this activity
+     * @return The activity without its category name
+     * @throws IllegalStateException if [categoryId] has not been filled in
+     */
+    fun toRecord(): ActivityRecord = ActivityRecord(
+        id = id,
+        description = description,
+        notes = notes,
+        dateTimestamp = dateTimestamp,
+        timeMinutes = timeMinutes,
+        profileId = profileId,
+        categoryId = checkNotNull(categoryId) { "Activity $id has no category id" },
+        deletedAt = deletedAt
+    )
+}
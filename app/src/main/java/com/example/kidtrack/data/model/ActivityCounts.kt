@@ -0,0 +1,10 @@
+package com.example.kidtrack.data.model
+
+/**
+ * Aggregate activity counts computed in a single pass over the activities table
+ */
+data class ActivityCounts(
+    val total: Int,
+    val completed: Int, // Activities dated before today
+    val thisWeek: Int // Activities dated within the current Monday-Sunday week
+)
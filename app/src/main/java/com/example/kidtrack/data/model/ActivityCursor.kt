@@ -0,0 +1,21 @@
+package com.example.kidtrack.data.model
+
+/**
+ * Keyset position in the activity ordering (date, time, id).
+ * Pages are read relative to a cursor instead of an OFFSET, so each page
+ * costs the same no matter how much history precedes it.
+ */
+data class ActivityCursor(
+    val dateTimestamp: Long,
+    val timeMinutes: Int,
+    val id: Long
+) {
+    companion object {
+        /**
+         * Cursor positioned at the given activity
+         * @param activity The last activity of the previous page
+         */
+        fun of(activity: Activity): ActivityCursor =
+            ActivityCursor(activity.dateTimestamp, activity.timeMinutes, activity.id)
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.kidtrack.data.model
+
+import androidx.room.Entity
+import androidx.room.Fts4
+
+/**
+ * Full-text index over the searchable activity columns, keyed by docid = activities.id.
+ * The category name lives only in the categories table, so the index keeps its own copy
+ * of the text instead of reading it from activities; triggers maintain it (see
+ * [com.example.kidtrack.data.database.ActivitySearchSchema]).
+ */
+@Fts4
+@Entity(tableName = "activities_fts")
+data class ActivityFts(
+    val description: String,
+    val category: String,
+    val notes: String
+)
@@ -0,0 +1,10 @@
+package com.example.kidtrack.data.model
+
+/**
+ * One activity to import, with an optional reminder.
+ * The reminder's associatedActivityId is ignored and set to the new activity's id.
+ */
+data class ActivityImport(
+    val activity: Activity,
+    val reminder: Reminder? = null
+)
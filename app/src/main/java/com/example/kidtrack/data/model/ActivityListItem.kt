@@ -0,0 +1,38 @@
+package com.example.kidtrack.data.model
+
+import androidx.room.Embedded
+
+/**
+ * Activity row as shown in lists, with the category and child's names and the first
+ * linked reminder resolved by the same query that loads the activity.
+ */
+data class ActivityListItem(
+    @Embedded
+    val activity: Activity,
+    val profileName: String?,
+    val reminderName: String?,
+    val reminderSnoozeEnabled: Boolean?
+) {
+    companion object {
+        /**
+         * SELECT and joins shared by the list-item queries; append WHERE / ORDER BY.
+         * Columns of the joined tables overlap (id, profileId, timeMinutes), so
+         * conditions must qualify activities columns, and must include
+         * "activities.deletedAt IS NULL" to leave out deleted activities.
+         */
+        const val SELECT_ITEMS = """
+            SELECT activities.*,
+                   categories.name AS category,
+                   profiles.name AS profileName,
+                   reminders.name AS reminderName,
+                   reminders.snoozeEnabled AS reminderSnoozeEnabled
+            FROM activities
+            JOIN categories ON categories.id = activities.categoryId
+            LEFT JOIN profiles ON profiles.id = activities.profileId
+            LEFT JOIN reminders ON reminders.id = (
+                SELECT MIN(first_reminder.id) FROM reminders AS first_reminder
+                WHERE first_reminder.associatedActivityId = activities.id AND first_reminder.deletedAt IS NULL
+            )
+        """
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.kidtrack.data.model
+
+import androidx.annotation.NonNull
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * A row of the activities table: an [Activity] without its category name.
+ * The category is stored only as [categoryId], so renaming a category updates the one
+ * categories row; queries that return [Activity] join the name in (see [Activity.SELECT_ACTIVITIES]).
+ */
+@Entity(
+    tableName = "activities",
+    foreignKeys = [
+        ForeignKey(
+            entity = Category::class,
+            parentColumns = ["id"],
+            childColumns = ["categoryId"],
+            onDelete = ForeignKey.RESTRICT
+        )
+    ],
+    indices = [
+        // Live rows come first in each key range ("deletedAt IS NULL" is an equality),
+        // so reads never step over tombstones and purges find them by deletedAt.
+        // Per-child lists, sorted by date and time
+        Index(value = ["profileId", "deletedAt", "dateTimestamp", "timeMinutes"]),
+        // Full list and date-range queries, sorted by date and time; tombstone purges
+        Index(value = ["deletedAt", "dateTimestamp", "timeMinutes"]),
+        // Category filters, sorted by date and time; also backs the foreign key
+        Index(value = ["categoryId", "deletedAt", "dateTimestamp", "timeMinutes"])
+    ]
+)
+data class ActivityRecord(
+    @PrimaryKey(autoGenerate = true)
+    val id: Long = 0,
+    @NonNull
+    val description: String,
+    @NonNull
+    val notes: String,
+    @NonNull
+    val dateTimestamp: Long, // Date as timestamp (milliseconds)
+    @NonNull
+    val timeMinutes: Int, // Time as minutes since midnight (0-1439)
+    @NonNull
+    val profileId: Long = 0, // Link to child profile
+    @NonNull
+    val categoryId: Long, // Link to the activity's category
+    val deletedAt: Long? = null // When the activity was deleted, or null; tombstones are purged later
+)
@@ -0,0 +1,39 @@
+package com.example.kidtrack.data.model
+
+import androidx.annotation.NonNull
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * An activity moved out of the activities table once it fell behind the archive horizon.
+ * Same columns and ids as [ActivityRecord], so archive queries can join the category name
+ * and return [Activity] rows directly; ids are never reused because activities ids are AUTOINCREMENT.
+ * Only long-range reads look here (see [com.example.kidtrack.data.database.dao.ArchiveDao]).
+ */
+@Entity(
+    tableName = "activities_archive",
+    indices = [
+        // Date-range reads, sorted by date and time; tombstone purges
+        Index(value = ["deletedAt", "dateTimestamp", "timeMinutes"]),
+        // Deleting and restoring a profile
+        Index(value = ["profileId", "deletedAt"])
+    ]
+)
+data class ArchivedActivity(
+    @PrimaryKey
+    val id: Long,
+    @NonNull
+    val description: String,
+    @NonNull
+    val notes: String,
+    @NonNull
+    val dateTimestamp: Long, // Date as timestamp (milliseconds)
+    @NonNull
+    val timeMinutes: Int, // Time as minutes since midnight (0-1439)
+    @NonNull
+    val profileId: Long,
+    @NonNull
+    val categoryId: Long,
+    val deletedAt: Long? = null // When the activity was deleted, or null; tombstones are purged later
+)
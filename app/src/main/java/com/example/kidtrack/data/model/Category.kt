@@ -0,0 +1,26 @@
+package com.example.kidtrack.data.model
+
+import androidx.annotation.NonNull
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * An activity category. Activities, the daily summary and the activity index reference it
+ * by [id] only, and every query that shows a name joins this table, so a rename is an
+ * update of this one row. The full-text index keeps a copy of the name for matching,
+ * which a trigger refreshes (see [com.example.kidtrack.data.database.ActivitySearchSchema]).
+ */
+@Entity(
+    tableName = "categories",
+    indices = [
+        // Name lookups when resolving a typed category, and one row per name
+        Index(value = ["name"], unique = true)
+    ]
+)
+data class Category(
+    @PrimaryKey(autoGenerate = true)
+    val id: Long = 0,
+    @NonNull
+    val name: String
+)
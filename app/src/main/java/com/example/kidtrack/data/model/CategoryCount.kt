@@ -0,0 +1,9 @@
+package com.example.kidtrack.data.model
+
+/**
+ * Number of activities recorded under a category
+ */
+data class CategoryCount(
+    val category: String,
+    val count: Int
+)
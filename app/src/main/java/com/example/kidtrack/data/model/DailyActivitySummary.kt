@@ -0,0 +1,25 @@
+package com.example.kidtrack.data.model
+
+import androidx.room.Entity
+import androidx.room.Index
+
+/**
+ * Number of activities per local day, child and category.
+ * Keyed by category id, so renaming a category leaves the summary untouched.
+ * Maintained by triggers on the activities table (see
+ * [com.example.kidtrack.data.database.DailySummarySchema]); never written by the app directly.
+ */
+@Entity(
+    tableName = "daily_activity_summary",
+    primaryKeys = ["epochDay", "profileId", "categoryId"],
+    indices = [
+        // Category breakdown without touching the per-day rows' table order
+        Index(value = ["categoryId", "count"])
+    ]
+)
+data class DailyActivitySummary(
+    val epochDay: Long, // Local calendar day as days since 1970-01-01
+    val profileId: Long,
+    val categoryId: Long,
+    val count: Int
+)
@@ -0,0 +1,11 @@
+package com.example.kidtrack.data.model
+
+/**
+ * Ids created by a bulk import, in input order.
+ * @param activityIds One id per imported activity
+ * @param reminderIds One id per imported reminder (only for items that had one)
+ */
+data class ImportResult(
+    val activityIds: List<Long>,
+    val reminderIds: List<Long>
+)
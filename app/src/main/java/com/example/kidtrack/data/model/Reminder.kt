@@ -2,9 +2,22 @@ package com.example.kidtrack.data.model
 
 import androidx.annotation.NonNull
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "reminders")
+@Entity(
+    tableName = "reminders",
+    indices = [
+        // Reminders list, sorted by time of day; live rows first, tombstones for purges
+        Index(value = ["deletedAt", "timeMinutes"]),
+        // Per-child reminders, sorted by time of day
+        Index(value = ["profileId", "deletedAt", "timeMinutes"]),
+        // Lookups and cascading deletes by activity
+        Index(value = ["associatedActivityId"]),
+        // Alarm queue: the earliest pending fire time and the reminders due by then
+        Index(value = ["deletedAt", "nextFireAt"])
+    ]
+)
 data class Reminder(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
@@ -23,5 +36,9 @@ data class Reminder(
     @NonNull
     val eventDateTimestamp: Long = 0, // The actual event date (from associated activity)
     @NonNull
-    val snoozeEnabled: Boolean = true // Whether snooze option is enabled for this reminder
+    val snoozeEnabled: Boolean = true, // Whether snooze option is enabled for this reminder
+    @NonNull
+    val startDateTimestamp: Long = 0, // Day a repeating reminder started; later occurrences are counted from it
+    val deletedAt: Long? = null, // When the reminder was deleted, or null; tombstones are purged later
+    val nextFireAt: Long? = null // When the reminder next fires (milliseconds), or null once it has no occurrences left
 )
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.kidtrack.data.model
+
+import androidx.room.Embedded
+
+/**
+ * A due reminder with everything its notification shows: the linked activity, from the
+ * current or the archive table, and the child's name, read by the query that finds it due.
+ * Activity fields are null if the activity has been deleted.
+ */
+data class ReminderNotice(
+    @Embedded
+    val reminder: Reminder,
+    val activityCategory: String?,
+    val activityDescription: String?,
+    val activityDateTimestamp: Long?,
+    val activityTimeMinutes: Int?,
+    val profileName: String?
+)
@@ -6,5 +6,5 @@ data class ReportStatistics(
     val thisWeekActivities: Int = 0,
     val completionRate: Int = 0,
     val categoryBreakdown: Map<String, Int> = emptyMap(),
-    val recentActivities: List<Activity> = emptyList()
+    val recentActivities: List<ActivityListItem> = emptyList()
 )
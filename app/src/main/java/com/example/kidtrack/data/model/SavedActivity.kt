@@ -0,0 +1,10 @@
+package com.example.kidtrack.data.model
+
+/**
+ * Result of saving an activity together with its reminder.
+ * Both carry their database ids, so the reminder can be scheduled directly.
+ */
+data class SavedActivity(
+    val activity: Activity,
+    val reminder: Reminder?
+)
@@ -12,5 +12,6 @@ data class UserProfile(
     val name: String,
     @NonNull
     val age: Int,
-    val photoUrl: String? = null // Nullable as it's optional
+    val photoUrl: String? = null, // Nullable as it's optional
+    val deletedAt: Long? = null // When the profile was deleted, or null; tombstones are purged later
 )
\ No newline at end of file
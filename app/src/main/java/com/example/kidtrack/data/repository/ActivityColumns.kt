@@ -0,0 +1,276 @@
+package com.example.kidtrack.data.repository
+
+import android.database.Cursor
+import com.example.kidtrack.utils.DateTimeUtils
+
+/**
+ * Column-oriented, read-only snapshot of the activity fields used by analytics.
+ *
+ * Instead of one [com.example.kidtrack.data.model.Activity] per row, each field is held in a
+ * primitive array, and categories and profiles are dictionary-encoded as small integer codes.
+ * A snapshot of 100k activities is six arrays, and the operators below count and group with
+ * plain loops over those arrays, so they allocate only their result.
+ *
+ * Row i of every array describes the same activity. Build one with [fromCursor] or [Builder].
+ */
+class ActivityColumns private constructor(
+    /** Number of activities */
+    val size: Int,
+    /** Date of each activity, as a timestamp in milliseconds */
+    val timestamps: LongArray,
+    /** Time of each activity, as minutes since midnight */
+    val minutes: IntArray,
+    /** Profile of each activity, as an index into [profileIds] */
+    val profileCodes: IntArray,
+    /** Category of each activity, as an index into [categoryIds] */
+    val categoryCodes: IntArray,
+    /** Distinct profile IDs, in order of first appearance */
+    val profileIds: LongArray,
+    /** Distinct category IDs, in order of first appearance */
+    val categoryIds: LongArray
+) {
+
+    companion object {
+        /**
+         * Columns [fromCursor] reads, in this order
+         */
+        val COLUMNS = arrayOf("dateTimestamp", "timeMinutes", "profileId", "categoryId")
+
+        private const val MINUTES_PER_DAY = 24 * 60
+
+        /**
+         * Read a snapshot from a cursor over [COLUMNS]; the cursor is not closed
+         * @param cursor Cursor positioned before its first row
+         * @return The snapshot
+         */
+        fun fromCursor(cursor: Cursor): ActivityColumns =
+            Builder(maxOf(cursor.count, 0)).addAll(cursor).build()
+    }
+
+    /**
+     * Accumulates rows into growable primitive arrays
+     * @param capacity Expected number of rows
+     */
+    class Builder(capacity: Int = 16) {
+        private var size = 0
+        private var timestamps = LongArray(maxOf(capacity, 1))
+        private var minutes = IntArray(timestamps.size)
+        private var profileCodes = IntArray(timestamps.size)
+        private var categoryCodes = IntArray(timestamps.size)
+        private val profileCodeById = HashMap<Long, Int>()
+        private val profileIds = ArrayList<Long>()
+        private val categoryCodeById = HashMap<Long, Int>()
+        private val categoryIds = ArrayList<Long>()
+
+        /**
+         * Add one activity
+         * @param timestamp Date as a timestamp in milliseconds
+         * @param timeMinutes Time as minutes since midnight
+         * @param profileId Profile ID
+         * @param categoryId Category ID
+         * @return This builder
+         */
+        fun add(timestamp: Long, timeMinutes: Int, profileId: Long, categoryId: Long): Builder {
+            if (size == timestamps.size) grow()
+            timestamps[size] = timestamp
+            minutes[size] = timeMinutes
+            profileCodes[size] = profileCodeById.getOrPut(profileId) {
+                profileIds.add(profileId)
+                profileIds.size - 1
+            }
+            categoryCodes[size] = categoryCodeById.getOrPut(categoryId) {
+                categoryIds.add(categoryId)
+                categoryIds.size - 1
+            }
+            size++
+            return this
+        }
+
+        /**
+         * Add every remaining row of a cursor over [COLUMNS]; the cursor is not closed
+         * @param cursor Cursor positioned before its first row to add
+         * @return This builder
+         */
+        fun addAll(cursor: Cursor): Builder {
+            val timestampColumn = cursor.getColumnIndexOrThrow(COLUMNS[0])
+            val minutesColumn = cursor.getColumnIndexOrThrow(COLUMNS[1])
+            val profileColumn = cursor.getColumnIndexOrThrow(COLUMNS[2])
+            val categoryColumn = cursor.getColumnIndexOrThrow(COLUMNS[3])
+            while (cursor.moveToNext()) {
+                add(
+                    cursor.getLong(timestampColumn),
+                    cursor.getInt(minutesColumn),
+                    cursor.getLong(profileColumn),
+                    cursor.getLong(categoryColumn)
+                )
+            }
+            return this
+        }
+
+        /**
+         * Build the snapshot; the builder should not be used afterwards
+         * @return The snapshot, with arrays trimmed to the number of rows added
+         */
+        fun build(): ActivityColumns = ActivityColumns(
+            size = size,
+            timestamps = timestamps.copyOf(size),
+            minutes = minutes.copyOf(size),
+            profileCodes = profileCodes.copyOf(size),
+            categoryCodes = categoryCodes.copyOf(size),
+            profileIds = profileIds.toLongArray(),
+            categoryIds = categoryIds.toLongArray()
+        )
+
+        private fun grow() {
+            val capacity = timestamps.size * 2
+            timestamps = timestamps.copyOf(capacity)
+            minutes = minutes.copyOf(capacity)
+            profileCodes = profileCodes.copyOf(capacity)
+            categoryCodes = categoryCodes.copyOf(capacity)
+        }
+    }
+
+    /**
+     * Count activities dated between two timestamps
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Number of activities in the range
+     */
+    fun countInRange(startTimestamp: Long, endTimestamp: Long): Int {
+        var count = 0
+        for (i in 0 until size) {
+            val timestamp = timestamps[i]
+            if (timestamp in startTimestamp..endTimestamp) count++
+        }
+        return count
+    }
+
+    /**
+     * Count activities dated before a timestamp
+     * @param timestamp Exclusive upper bound
+     * @return Number of earlier activities
+     */
+    fun countBefore(timestamp: Long): Int {
+        var count = 0
+        for (i in 0 until size) {
+            if (timestamps[i] < timestamp) count++
+        }
+        return count
+    }
+
+    /**
+     * Count activities per category code
+     * @return Counts indexed like [categoryIds]
+     */
+    fun countByCategoryCode(): IntArray = countByCode(categoryCodes, categoryIds.size)
+
+    /**
+     * Count activities per profile code
+     * @return Counts indexed like [profileIds]
+     */
+    fun countByProfileCode(): IntArray = countByCode(profileCodes, profileIds.size)
+
+    /**
+     * Count activities per profile and category
+     * @return Counts indexed by profileCode * categoryIds.size + categoryCode
+     */
+    fun countByProfileAndCategory(): IntArray {
+        val width = categoryIds.size
+        val counts = IntArray(profileIds.size * width)
+        for (i in 0 until size) {
+            counts[profileCodes[i] * width + categoryCodes[i]]++
+        }
+        return counts
+    }
+
+    /**
+     * Count activities per category, decoded to category IDs
+     * @return Category ID to number of activities, in order of first appearance
+     */
+    fun categoryBreakdown(): Map<Long, Int> {
+        val counts = countByCategoryCode()
+        val breakdown = LinkedHashMap<Long, Int>(categoryIds.size * 2)
+        for (code in categoryIds.indices) {
+            breakdown[categoryIds[code]] = counts[code]
+        }
+        return breakdown
+    }
+
+    /**
+     * Count activities per category between two timestamps, decoded to category IDs
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Category ID to number of activities in the range, in order of first
+     *         appearance; categories with none in the range are left out
+     */
+    fun categoryBreakdown(startTimestamp: Long, endTimestamp: Long): Map<Long, Int> {
+        val counts = IntArray(categoryIds.size)
+        for (i in 0 until size) {
+            if (timestamps[i] in startTimestamp..endTimestamp) counts[categoryCodes[i]]++
+        }
+        val breakdown = LinkedHashMap<Long, Int>()
+        for (code in categoryIds.indices) {
+            if (counts[code] > 0) breakdown[categoryIds[code]] = counts[code]
+        }
+        return breakdown
+    }
+
+    /**
+     * Count activities per local day between two timestamps
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Local epoch day to number of activities, in day order; days with none are left out
+     */
+    fun dayBreakdown(startTimestamp: Long, endTimestamp: Long): Map<Long, Int> {
+        if (endTimestamp < startTimestamp) return emptyMap()
+        val firstDay = DateTimeUtils.toEpochDay(startTimestamp)
+        val counts = IntArray((DateTimeUtils.toEpochDay(endTimestamp) - firstDay + 1).toInt())
+        for (i in 0 until size) {
+            val timestamp = timestamps[i]
+            if (timestamp in startTimestamp..endTimestamp) {
+                counts[(DateTimeUtils.toEpochDay(timestamp) - firstDay).toInt()]++
+            }
+        }
+        val breakdown = LinkedHashMap<Long, Int>()
+        for (offset in counts.indices) {
+            if (counts[offset] > 0) breakdown[firstDay + offset] = counts[offset]
+        }
+        return breakdown
+    }
+
+    /**
+     * Histogram of activity start times over the day
+     * @param bucketMinutes Width of each bucket in minutes, e.g. 60 for hours
+     * @return Counts per bucket, starting at midnight
+     */
+    fun timeOfDayHistogram(bucketMinutes: Int): IntArray {
+        require(bucketMinutes > 0) { "bucketMinutes must be positive" }
+        val buckets = IntArray((MINUTES_PER_DAY + bucketMinutes - 1) / bucketMinutes)
+        for (i in 0 until size) {
+            val minute = minutes[i].coerceIn(0, MINUTES_PER_DAY - 1)
+            buckets[minute / bucketMinutes]++
+        }
+        return buckets
+    }
+
+    /**
+     * Histogram of activities over the days of the week, by local date
+     * @return Seven counts, Monday first
+     */
+    fun dayOfWeekHistogram(): IntArray {
+        val buckets = IntArray(7)
+        for (i in 0 until size) {
+            // 1970-01-01 was a Thursday
+            buckets[(DateTimeUtils.toEpochDay(timestamps[i]) + 3).mod(7)]++
+        }
+        return buckets
+    }
+
+    private fun countByCode(codes: IntArray, cardinality: Int): IntArray {
+        val counts = IntArray(cardinality)
+        for (i in 0 until size) {
+            counts[codes[i]]++
+        }
+        return counts
+    }
+}
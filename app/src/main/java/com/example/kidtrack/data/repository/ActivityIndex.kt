@@ -0,0 +1,490 @@
+package com.example.kidtrack.data.repository
+
+import android.util.Log
+import androidx.room.InvalidationTracker
+import androidx.room.withTransaction
+import com.example.kidtrack.data.database.ActivityVersionSchema
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.util.TreeMap
+
+/**
+ * In-memory copy of the activities table, bucketed by local calendar day.
+ *
+ * Each day holds its rows in primitive column arrays sorted by (dateTimestamp, timeMinutes, id),
+ * and secondary maps record which days hold rows for each profile and category. Date-range,
+ * "today", per-profile and per-category reads are then answered without touching SQLite.
+ * Rows hold their category id only; names come from a small id-to-name map that follows the
+ * categories table, so a rename never touches the rows.
+ *
+ * The index is loaded on first use and records the version of the activities table it
+ * reflects, as counted by [ActivityVersionSchema]. Loads read outside any transaction and
+ * check the version on either side, as [readConsistently] does. It is kept current in two ways:
+ * - Writes made through [KidTrackRepository] go through [writeThrough] and update it directly.
+ *   The write's version is adopted only if the index was current just before it.
+ * - Any change to the activities table reported by Room's [InvalidationTracker] compares the
+ *   table's version with the index's and, if the table is ahead, rebuilds in the background.
+ *   Changes made elsewhere are never mistaken for repository writes, even when Room reports
+ *   both in one invalidation.
+ *
+ * The app holds one index, in [com.example.kidtrack.AppContainer], shared by everything that
+ * reads activities, so switching screens does not reload the table.
+ *
+ * @param database The database the index mirrors
+ */
+class ActivityIndex internal constructor(private val database: KidTrackDatabase) {
+
+    companion object {
+        private const val TAG = "ActivityIndex"
+        // Times a read is repeated while writes keep committing under it
+        private const val MAX_READ_ATTEMPTS = 3
+    }
+
+    // Guards every field below
+    private val lock = Any()
+
+    private val days = TreeMap<Long, DayBucket>()
+    private val dayById = HashMap<Long, Long>()
+    // Days holding rows for each profile and category, with the number of such rows on each day
+    private val profileDays = HashMap<Long, TreeMap<Long, Int>>()
+    private val categoryDays = HashMap<Long, TreeMap<Long, Int>>()
+    // Name of each category the rows reference
+    private val categoryNames = HashMap<Long, String>()
+
+    @Volatile
+    private var loaded = false
+    // Version of the activities table the index reflects
+    private var indexedVersion = 0L
+
+    private val loadMutex = Mutex()
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val rebuildRequests = Channel<Unit>(Channel.CONFLATED)
+    private var observerRegistered = false
+    // Set when the categories table changes, so the worker reloads the names
+    @Volatile
+    private var namesStale = false
+
+    private val observer = object : InvalidationTracker.Observer("activities", "categories") {
+        override fun onInvalidated(tables: Set<String>) {
+            if ("categories" in tables) namesStale = true
+            // The worker checks the version, so repository writes already applied cost one small read
+            rebuildRequests.trySend(Unit)
+        }
+    }
+
+    private val edit = Edit()
+
+    /**
+     * Changes applied to the index after a successful repository write
+     */
+    inner class Edit internal constructor() {
+
+        /**
+         * Add activities, or replace them if their ids are already indexed
+         * @param activities Activities as stored, with their row ids
+         */
+        fun put(activities: Collection<Activity>) {
+            if (activities.isEmpty()) return
+            val ids = HashSet<Long>(activities.size * 2)
+            activities.forEach { activity ->
+                ids.add(activity.id)
+                activity.categoryId?.let { categoryNames[it] = activity.category }
+            }
+            removeIds(ids)
+            activities.groupBy { DateTimeUtils.toEpochDay(it.dateTimestamp) }.forEach { (day, added) ->
+                val existing = days[day]?.toList(categoryNames) ?: emptyList()
+                replaceBucket(day, DayBucket.of(existing + added))
+            }
+        }
+
+        /**
+         * Remove an activity
+         * @param activityId The activity ID
+         */
+        fun remove(activityId: Long) {
+            removeIds(setOf(activityId))
+        }
+
+        /**
+         * Remove every activity of a profile
+         * @param profileId The profile ID
+         */
+        fun removeProfile(profileId: Long) {
+            val profileDayKeys = profileDays[profileId]?.keys?.toList() ?: return
+            for (day in profileDayKeys) {
+                val bucket = days[day] ?: continue
+                replaceBucket(day, bucket.filter(categoryNames) { i -> bucket.profileIds[i] != profileId })
+            }
+        }
+    }
+
+    /**
+     * Run a repository write in a transaction and apply its effect to the index once it has committed.
+     * The table's version is read on both sides of the write. If the index was at the version
+     * before it, the index moves to the version after it and the resulting invalidation costs
+     * no reload; if it was further behind, some other change is still missing and a rebuild
+     * is requested.
+     * @param write The database write
+     * @param update Applies the write's result to the index; skipped while the index is not loaded
+     * @return The result of [write]
+     * @throws Exception if the write fails; the index is left unchanged
+     */
+    suspend fun <T> writeThrough(write: suspend () -> T, update: Edit.(T) -> Unit): T {
+        val (result, before, after) = database.withTransaction {
+            val before = currentVersion()
+            val result = write()
+            Triple(result, before, currentVersion())
+        }
+        val current = synchronized(lock) {
+            // A rebuild whose snapshot already holds this write may have replaced the index meanwhile
+            if (!loaded || after <= indexedVersion) return result
+            // Applied even when behind, so the write is visible to reads at once
+            edit.update(result)
+            val current = before == indexedVersion
+            if (current) indexedVersion = after
+            current
+        }
+        if (!current) {
+            rebuildRequests.trySend(Unit)
+        }
+        return result
+    }
+
+    /**
+     * Run reads outside a transaction, so they neither wait for Room's single transaction thread
+     * nor hold a writer back, and repeat them if a change to either activity table commits
+     * while they run. When the version is the same on both sides, every read saw the same
+     * activities. Writes that keep committing for [MAX_READ_ATTEMPTS] attempts get the last
+     * result; those writes invalidate whatever is built from it.
+     * @param read The reads
+     * @return The result of [read]
+     * @throws Exception if a read fails
+     */
+    suspend fun <T> readConsistently(read: suspend () -> T): T = readAtVersion(read).second
+
+    // The version returned is the one before the reads, so a result overtaken by a write is
+    // always older than the table and later replaced
+    private suspend fun <T> readAtVersion(read: suspend () -> T): Pair<Long, T> {
+        var attempt = 1
+        while (true) {
+            val before = readVersion()
+            val result = read()
+            val after = readVersion()
+            if (after == before || attempt == MAX_READ_ATTEMPTS) {
+                if (after != before) Log.w(TAG, "Activities kept changing during a read; using version $before")
+                return before to result
+            }
+            attempt++
+        }
+    }
+
+    private suspend fun readVersion(): Long = withContext(Dispatchers.IO) {
+        ActivityVersionSchema.read(database.openHelper.readableDatabase)
+    }
+
+    /**
+     * Get every activity
+     * @return All activities, sorted by date and time
+     * @throws Exception if the index has to be loaded and the database read fails
+     */
+    suspend fun getAllActivities(): List<Activity> {
+        ensureLoaded()
+        // An object per activity; keep it off the caller's (possibly main) thread
+        return withContext(Dispatchers.Default) {
+            allActivities()
+        }
+    }
+
+    private fun allActivities(): List<Activity> {
+        return synchronized(lock) {
+            val result = ArrayList<Activity>(dayById.size)
+            for (bucket in days.values) {
+                for (i in 0 until bucket.size) {
+                    result.add(bucket.activityAt(i, categoryNames))
+                }
+            }
+            result
+        }
+    }
+
+    /**
+     * Get activities with a date between two timestamps
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Activities in the range, sorted by date and time
+     * @throws Exception if the index has to be loaded and the database read fails
+     */
+    suspend fun getActivitiesInRange(startTimestamp: Long, endTimestamp: Long): List<Activity> {
+        ensureLoaded()
+        return synchronized(lock) {
+            val result = ArrayList<Activity>()
+            if (startTimestamp > endTimestamp) return@synchronized result
+            // One day of slack either side covers rows bucketed under a different time zone
+            val firstDay = DateTimeUtils.toEpochDay(startTimestamp) - 1
+            val lastDay = DateTimeUtils.toEpochDay(endTimestamp) + 1
+            for (bucket in days.subMap(firstDay, true, lastDay, true).values) {
+                for (i in 0 until bucket.size) {
+                    val timestamp = bucket.timestamps[i]
+                    if (timestamp in startTimestamp..endTimestamp) {
+                        result.add(bucket.activityAt(i, categoryNames))
+                    }
+                }
+            }
+            result
+        }
+    }
+
+    /**
+     * Get the activities of one profile
+     * @param profileId The profile ID
+     * @return The profile's activities, sorted by date and time
+     * @throws Exception if the index has to be loaded and the database read fails
+     */
+    suspend fun getActivitiesByProfile(profileId: Long): List<Activity> {
+        ensureLoaded()
+        return synchronized(lock) {
+            collect(profileDays[profileId]) { bucket, i -> bucket.profileIds[i] == profileId }
+        }
+    }
+
+    /**
+     * Record a committed category rename, so reads name it at once. Rows refer to categories by
+     * ID, so no row changes; the observer reloads all names after any other change to categories.
+     * @param categoryId The category ID
+     * @param name The new name
+     */
+    fun categoryRenamed(categoryId: Long, name: String) {
+        synchronized(lock) {
+            if (categoryId in categoryNames) categoryNames[categoryId] = name
+        }
+    }
+
+    /**
+     * Get the activities in one category
+     * @param categoryId The category ID
+     * @return The category's activities, sorted by date and time
+     * @throws Exception if the index has to be loaded and the database read fails
+     */
+    suspend fun getActivitiesByCategory(categoryId: Long): List<Activity> {
+        ensureLoaded()
+        return synchronized(lock) {
+            collect(categoryDays[categoryId]) { bucket, i -> bucket.categoryIds[i] == categoryId }
+        }
+    }
+
+    /**
+     * Get a specific activity by ID
+     * @param activityId The activity ID
+     * @return Activity if found, null otherwise
+     * @throws Exception if the index has to be loaded and the database read fails
+     */
+    suspend fun getActivityById(activityId: Long): Activity? {
+        ensureLoaded()
+        return synchronized(lock) {
+            val bucket = dayById[activityId]?.let { days[it] } ?: return@synchronized null
+            val i = bucket.ids.indexOf(activityId)
+            if (i < 0) null else bucket.activityAt(i, categoryNames)
+        }
+    }
+
+    private inline fun collect(
+        dayCounts: TreeMap<Long, Int>?,
+        matches: (DayBucket, Int) -> Boolean
+    ): List<Activity> {
+        val result = ArrayList<Activity>()
+        dayCounts ?: return result
+        for (day in dayCounts.keys) {
+            val bucket = days[day] ?: continue
+            for (i in 0 until bucket.size) {
+                if (matches(bucket, i)) result.add(bucket.activityAt(i, categoryNames))
+            }
+        }
+        return result
+    }
+
+    private suspend fun ensureLoaded() {
+        if (loaded) return
+        loadMutex.withLock {
+            if (loaded) return
+            if (!observerRegistered) {
+                // Register before the first load so no change between the two is missed.
+                // Registering syncs the tracker's triggers, so keep it off the caller's thread.
+                withContext(Dispatchers.IO) {
+                    database.invalidationTracker.addObserver(observer)
+                }
+                observerRegistered = true
+                scope.launch {
+                    for (request in rebuildRequests) {
+                        try {
+                            loadMutex.withLock { refresh() }
+                        } catch (e: Exception) {
+                            // Drop the stale copy; the next read reloads from the database
+                            Log.e(TAG, "Error rebuilding activity index", e)
+                            synchronized(lock) {
+                                loaded = false
+                                clear()
+                            }
+                        }
+                    }
+                }
+            }
+            rebuild()
+        }
+    }
+
+    // Callers hold loadMutex
+    private suspend fun refresh() {
+        if (namesStale) {
+            namesStale = false
+            val names = database.categoryDao().getAllCategories()
+            synchronized(lock) {
+                for (category in names) categoryNames[category.id] = category.name
+            }
+        }
+        val version = readVersion()
+        if (synchronized(lock) { loaded && version <= indexedVersion }) return
+        rebuild()
+    }
+
+    // Callers hold loadMutex
+    private suspend fun rebuild() {
+        val (version, rows) = readAtVersion { database.activityDao().getAllActivities() }
+        // Bucketing the whole table is CPU work; the first reader may be on the main thread
+        withContext(Dispatchers.Default) {
+            buildFrom(version, rows)
+        }
+    }
+
+    private fun buildFrom(version: Long, rows: List<Activity>) {
+        synchronized(lock) {
+            // A repository write committed after the read has already moved the index past it
+            if (loaded && version <= indexedVersion) return
+            clear()
+            rows.forEach { row -> row.categoryId?.let { categoryNames[it] = row.category } }
+            rows.groupBy { DateTimeUtils.toEpochDay(it.dateTimestamp) }.forEach { (day, dayRows) ->
+                replaceBucket(day, DayBucket.of(dayRows))
+            }
+            indexedVersion = version
+            loaded = true
+            Log.d(TAG, "Activity index built: ${rows.size} activities at version $version over ${days.size} days")
+        }
+    }
+
+    // Callers are inside a transaction, whose connection this thread is bound to
+    private fun currentVersion(): Long =
+        ActivityVersionSchema.read(database.openHelper.writableDatabase)
+
+    // Callers hold lock
+    private fun clear() {
+        days.clear()
+        dayById.clear()
+        profileDays.clear()
+        categoryDays.clear()
+        categoryNames.clear()
+    }
+
+    // Callers hold lock
+    private fun removeIds(ids: Set<Long>) {
+        val affectedDays = ids.mapNotNullTo(HashSet()) { dayById[it] }
+        for (day in affectedDays) {
+            val bucket = days[day] ?: continue
+            replaceBucket(day, bucket.filter(categoryNames) { i -> bucket.ids[i] !in ids })
+        }
+    }
+
+    // Callers hold lock
+    private fun replaceBucket(day: Long, bucket: DayBucket) {
+        days[day]?.let { old ->
+            for (i in 0 until old.size) {
+                dayById.remove(old.ids[i])
+                decrement(profileDays, old.profileIds[i], day)
+                decrement(categoryDays, old.categoryIds[i], day)
+            }
+        }
+        if (bucket.size == 0) {
+            days.remove(day)
+            return
+        }
+        days[day] = bucket
+        for (i in 0 until bucket.size) {
+            dayById[bucket.ids[i]] = day
+            increment(profileDays, bucket.profileIds[i], day)
+            increment(categoryDays, bucket.categoryIds[i], day)
+        }
+    }
+
+    private fun <K> increment(map: HashMap<K, TreeMap<Long, Int>>, key: K, day: Long) {
+        val counts = map.getOrPut(key) { TreeMap() }
+        counts[day] = (counts[day] ?: 0) + 1
+    }
+
+    private fun <K> decrement(map: HashMap<K, TreeMap<Long, Int>>, key: K, day: Long) {
+        val counts = map[key] ?: return
+        val count = (counts[day] ?: return) - 1
+        if (count > 0) {
+            counts[day] = count
+        } else {
+            counts.remove(day)
+            if (counts.isEmpty()) map.remove(key)
+        }
+    }
+
+    /**
+     * Rows of one day as parallel column arrays, sorted by (dateTimestamp, timeMinutes, id).
+     * Buckets are immutable; edits build a replacement.
+     */
+    private class DayBucket(
+        val ids: LongArray,
+        val timestamps: LongArray,
+        val minutes: IntArray,
+        val profileIds: LongArray,
+        val categoryIds: LongArray,
+        val descriptions: Array<String>,
+        val notes: Array<String>
+    ) {
+        val size: Int get() = ids.size
+
+        fun activityAt(i: Int, categoryNames: Map<Long, String>) = Activity(
+            id = ids[i],
+            category = categoryNames[categoryIds[i]] ?: "",
+            description = descriptions[i],
+            notes = notes[i],
+            dateTimestamp = timestamps[i],
+            timeMinutes = minutes[i],
+            profileId = profileIds[i],
+            categoryId = categoryIds[i]
+        )
+
+        fun toList(categoryNames: Map<Long, String>): List<Activity> = List(size) { activityAt(it, categoryNames) }
+
+        inline fun filter(categoryNames: Map<Long, String>, keep: (Int) -> Boolean): DayBucket =
+            of((0 until size).filter(keep).map { activityAt(it, categoryNames) })
+
+        companion object {
+            private val ORDER = compareBy<Activity>({ it.dateTimestamp }, { it.timeMinutes }, { it.id })
+
+            // Rows are as stored, so every one has its category id
+            fun of(rows: List<Activity>): DayBucket {
+                val sorted = rows.sortedWith(ORDER)
+                return DayBucket(
+                    ids = LongArray(sorted.size) { sorted[it].id },
+                    timestamps = LongArray(sorted.size) { sorted[it].dateTimestamp },
+                    minutes = IntArray(sorted.size) { sorted[it].timeMinutes },
+                    profileIds = LongArray(sorted.size) { sorted[it].profileId },
+                    categoryIds = LongArray(sorted.size) { checkNotNull(sorted[it].categoryId) },
+                    descriptions = Array(sorted.size) { sorted[it].description },
+                    notes = Array(sorted.size) { sorted[it].notes }
+                )
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.kidtrack.data.repository
+
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import androidx.room.InvalidationTracker
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.data.model.ActivityCursor
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Keyset-paginated source for the activities list.
+ * Pages are read relative to the (dateTimestamp, timeMinutes, id) of the last
+ * loaded row, so every page is an index range read regardless of how far the
+ * user has scrolled. The source invalidates itself when the activities table changes.
+ *
+ * @param categoryId Category to filter by, or null for all categories
+ */
+class ActivityPagingSource(
+    private val database: KidTrackDatabase,
+    private val categoryId: Long?
+) : PagingSource<ActivityCursor, ActivityListItem>() {
+
+    companion object {
+        // Sorts before every stored activity
+        private val START = ActivityCursor(Long.MIN_VALUE, -1, 0)
+    }
+
+    private val observerRegistered = AtomicBoolean(false)
+
+    private val observer = object : InvalidationTracker.Observer("activities") {
+        override fun onInvalidated(tables: Set<String>) {
+            invalidate()
+        }
+    }
+
+    init {
+        registerInvalidatedCallback {
+            if (observerRegistered.get()) {
+                database.invalidationTracker.removeObserver(observer)
+            }
+        }
+    }
+
+    override suspend fun load(params: LoadParams<ActivityCursor>): LoadResult<ActivityCursor, ActivityListItem> {
+        // Registering syncs the tracker's triggers, so keep it off the main thread
+        if (observerRegistered.compareAndSet(false, true)) {
+            withContext(Dispatchers.IO) {
+                database.invalidationTracker.addObserver(observer)
+            }
+        }
+
+        return try {
+            val dao = database.activityDao()
+            when (params) {
+                is LoadParams.Prepend -> {
+                    val key = params.key
+                    val items = dao.pageActivitiesBefore(
+                        key.dateTimestamp, key.timeMinutes, key.id, categoryId, params.loadSize
+                    ).asReversed()
+                    LoadResult.Page(
+                        data = items,
+                        prevKey = if (items.size < params.loadSize) null else ActivityCursor.of(items.first().activity),
+                        nextKey = items.lastOrNull()?.let { ActivityCursor.of(it.activity) }
+                    )
+                }
+                else -> {
+                    val key = params.key ?: START
+                    val items = dao.pageActivitiesAfter(
+                        key.dateTimestamp, key.timeMinutes, key.id, categoryId, params.loadSize
+                    )
+                    // Only a refresh from a restored position can have rows above it
+                    val restored = params is LoadParams.Refresh && params.key != null
+                    LoadResult.Page(
+                        data = items,
+                        prevKey = if (restored) items.firstOrNull()?.let { ActivityCursor.of(it.activity) } else null,
+                        nextKey = if (items.size < params.loadSize) null else ActivityCursor.of(items.last().activity)
+                    )
+                }
+            }
+        } catch (e: Exception) {
+            LoadResult.Error(e)
+        }
+    }
+
+    override fun getRefreshKey(state: PagingState<ActivityCursor, ActivityListItem>): ActivityCursor? {
+        val anchor = state.anchorPosition ?: return null
+        // Restart just above the first row of the window around the anchor so it stays on screen
+        val firstPosition = anchor - state.config.initialLoadSize / 2
+        if (firstPosition <= 0) return null
+        val item = state.closestItemToPosition(firstPosition - 1) ?: return null
+        return ActivityCursor.of(item.activity)
+    }
+}
@@ -1,35 +1,109 @@
 package com.example.kidtrack.data.repository
 
 import android.util.Log
+import androidx.room.withTransaction
+import com.example.kidtrack.data.database.DailySummarySchema
+import com.example.kidtrack.data.database.FtsSearch
 import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.database.tableChanges
 import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.model.ActivityCursor
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.data.model.Category
+import com.example.kidtrack.data.model.ImportResult
 import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.data.model.ReminderNotice
 import com.example.kidtrack.data.model.ReportStatistics
+import com.example.kidtrack.data.model.SavedActivity
 import com.example.kidtrack.data.model.UserProfile
 import com.example.kidtrack.utils.DateTimeUtils
+import com.example.kidtrack.utils.ReminderRecurrence
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.withContext
+import java.util.Calendar
 
 /**
  * Repository class for managing data operations.
  * Provides a clean API for accessing and manipulating app data.
+ * Suspend DAO calls already run on Room's query and transaction executors
+ * (see [com.example.kidtrack.data.database.DatabaseConfig]), so methods here do not switch
+ * dispatchers around them; only CPU work of their own, such as building import rows or
+ * summarizing, moves to [Dispatchers.Default].
+ * Full-list, date-range, profile and single-activity reads are served from the shared in-memory
+ * [ActivityIndex]; activity writes here keep that index current.
+ * Profile reads are served from the shared [ProfileCache].
+ * Report results are kept in the shared [QueryResultCache] until their tables change.
+ * Activities older than the archive horizon are moved to activities_archive by [archiveActivities];
+ * date-range and report reads include them, everything else sees only current activities.
+ * The app uses the single instance held by [com.example.kidtrack.AppContainer].
  */
-class KidTrackRepository(private val database: KidTrackDatabase) {
+class KidTrackRepository(
+    private val database: KidTrackDatabase,
+    private val activityIndex: ActivityIndex,
+    private val profileCache: ProfileCache,
+    private val queryCache: QueryResultCache
+) {
 
     companion object {
         private const val TAG = "KidTrackRepository"
+        // Number of recent activities listed on the reports screen
+        private const val RECENT_ACTIVITIES_LIMIT = 5
+        // Rows committed per transaction during a bulk import
+        const val DEFAULT_IMPORT_CHUNK_SIZE = 500
+        // Tombstones removed per transaction by purgeDeletedRows
+        const val DEFAULT_PURGE_BATCH_SIZE = 500
+        // Activities moved per transaction by archiveActivities
+        const val DEFAULT_ARCHIVE_BATCH_SIZE = 500
+        // PRAGMA auto_vacuum value for INCREMENTAL
+        private const val AUTO_VACUUM_INCREMENTAL = 2
+
+        // Tables each cached report is read from
+        private val SUMMARY_TABLES = setOf("daily_activity_summary")
+        // Tables each kind of write changes, directly or by trigger, dropped from the cache as
+        // soon as the write commits rather than when the invalidation tracker next runs
+        private val ACTIVITY_WRITE_TABLES = SUMMARY_TABLES + setOf("activities", "categories")
+        private val ACTIVITY_REMINDER_WRITE_TABLES = ACTIVITY_WRITE_TABLES + "reminders"
+        private val CATEGORY_WRITE_TABLES = setOf("categories")
+        private val REMINDER_WRITE_TABLES = setOf("reminders")
+        private val PROFILE_ROW_TABLES = setOf("profiles")
+        private val PROFILE_WRITE_TABLES =
+            SUMMARY_TABLES + setOf("activities", "activities_archive", "profiles", "reminders")
+        private val ACTIVITY_TABLES = setOf("activities", "activities_archive")
+        private val ARCHIVE_TABLES = setOf("activities_archive")
+        // Reports name their categories, so a rename refreshes them
+        private val NAMED_ACTIVITY_TABLES = setOf("activities", "activities_archive", "categories")
+        private val STATISTICS_TABLES =
+            setOf("daily_activity_summary", "activities", "activities_archive", "categories", "profiles", "reminders")
     }
 
     // ==================== Activity Operations ====================
 
     /**
-     * Insert or update an activity in the database
+     * Insert a new activity into the database
+     * @return Row id of the inserted activity
      * @throws Exception if database operation fails
      */
-    suspend fun insertActivity(activity: Activity) = withContext(Dispatchers.IO) {
-        try {
-            database.activityDao().insertActivity(activity)
-            Log.d(TAG, "Activity inserted successfully: ${activity.id}")
+    suspend fun insertActivity(activity: Activity): Long {
+        return try {
+            val saved = activityIndex.writeThrough({
+                database.withTransaction {
+                    val linked = linkCategories(listOf(activity)).single()
+                    linked.copy(id = database.activityDao().insertActivity(linked.toRecord()))
+                }
+            }) { saved -> put(listOf(saved)) }
+            queryCache.invalidate(ACTIVITY_WRITE_TABLES)
+            Log.d(TAG, "Activity inserted successfully: ${saved.id}")
+            saved.id
         } catch (e: Exception) {
             Log.e(TAG, "Error inserting activity", e)
             throw e
@@ -37,28 +111,157 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Get all activities from the database
-     * @return List of all activities, sorted by date and time
+     * Insert an activity and its reminder in one transaction.
+     * The reminder is linked to the new activity and both are returned with their ids,
+     * so the reminder can be scheduled without reading anything back.
+     * @param activity The activity to insert
+     * @param reminder Reminder for the activity, or null for none; its associatedActivityId is ignored
+     * @return The saved activity and reminder
+     * @throws Exception if database operation fails
+     */
+    suspend fun createActivityWithReminder(activity: Activity, reminder: Reminder?): SavedActivity {
+        return try {
+            val saved = activityIndex.writeThrough({
+                database.withTransaction {
+                    val linkedActivity = linkCategories(listOf(activity)).single()
+                    val activityId = database.activityDao().insertActivity(linkedActivity.toRecord())
+                    val savedReminder = reminder?.let {
+                        val linked = queued(it.copy(associatedActivityId = activityId), System.currentTimeMillis())
+                        linked.copy(id = database.reminderDao().insertReminder(linked))
+                    }
+                    SavedActivity(linkedActivity.copy(id = activityId), savedReminder)
+                }
+            }) { saved -> put(listOf(saved.activity)) }
+            queryCache.invalidate(ACTIVITY_REMINDER_WRITE_TABLES)
+            Log.d(TAG, "Activity created successfully: ${saved.activity.id}, reminder: ${saved.reminder?.id}")
+            saved
+        } catch (e: Exception) {
+            Log.e(TAG, "Error creating activity with reminder", e)
+            throw e
+        }
+    }
+
+    /**
+     * Import many activities, with their reminders, in chunked transactions.
+     * Input is consumed lazily, so only one chunk is held in memory at a time.
+     * A failure rolls back the current chunk only; earlier chunks stay committed.
+     * @param items Activities to import, each with an optional reminder
+     * @param chunkSize Number of activities inserted per transaction
+     * @param onProgress Called on a background thread after each committed chunk with the number of activities imported so far
+     * @return Ids of the created activities and reminders, in input order
      * @throws Exception if database operation fails
      */
-    suspend fun getAllActivities(): List<Activity> = withContext(Dispatchers.IO) {
+    suspend fun importActivities(
+        items: Sequence<ActivityImport>,
+        chunkSize: Int = DEFAULT_IMPORT_CHUNK_SIZE,
+        onProgress: (importedCount: Int) -> Unit = {}
+    ): ImportResult {
+        require(chunkSize > 0) { "chunkSize must be positive" }
+        return try {
+            val activityIds = ArrayList<Long>()
+            val reminderIds = ArrayList<Long>()
+            // Resolved once per import; a failed chunk ends the import, so no id outlives a rollback
+            val categoryIds = HashMap<String, Long>()
+            val now = System.currentTimeMillis()
+            // Reading the input, building rows and updating the index are CPU work; keep them off
+            // the caller's (possibly main) thread and out of the write transaction where possible
+            withContext(Dispatchers.Default) {
+                for (chunk in items.chunked(chunkSize)) {
+                    val activities = chunk.map { it.activity }
+                    val saved = activityIndex.writeThrough({
+                        database.withTransaction {
+                            val linked = linkCategories(activities, categoryIds)
+                            val insertedIds = database.activityDao().insertActivities(linked.map { it.toRecord() })
+                            val reminders = chunk.indices.mapNotNull { i ->
+                                chunk[i].reminder?.let { queued(it.copy(associatedActivityId = insertedIds[i]), now) }
+                            }
+                            if (reminders.isNotEmpty()) {
+                                reminderIds.addAll(database.reminderDao().insertReminders(reminders))
+                            }
+                            linked.indices.map { i -> linked[i].copy(id = insertedIds[i]) }
+                        }
+                    }) { saved -> put(saved) }
+                    queryCache.invalidate(ACTIVITY_REMINDER_WRITE_TABLES)
+                    saved.mapTo(activityIds) { it.id }
+                    onProgress(activityIds.size)
+                }
+            }
+            Log.d(TAG, "Imported ${activityIds.size} activities and ${reminderIds.size} reminders")
+            ImportResult(activityIds, reminderIds)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error importing activities", e)
+            throw e
+        }
+    }
+
+    /**
+     * Update an existing activity in the database
+     * @param activity The activity to update
+     * @throws Exception if database operation fails
+     */
+    suspend fun updateActivity(activity: Activity) {
         try {
-            database.activityDao().getAllActivities()
+            activityIndex.writeThrough({
+                database.withTransaction {
+                    val linked = linkCategories(listOf(activity)).single()
+                    database.activityDao().updateActivity(linked.toRecord())
+                    linked
+                }
+            }) { linked -> put(listOf(linked)) }
+            queryCache.invalidate(ACTIVITY_WRITE_TABLES)
+            Log.d(TAG, "Activity updated successfully: ${activity.id}")
+        } catch (e: Exception) {
+            Log.e(TAG, "Error updating activity", e)
+            throw e
+        }
+    }
+
+    // Fills in categoryId from the category name, creating categories as needed.
+    // Callers run inside the write's transaction, so a new category is rolled back with it.
+    private suspend fun linkCategories(
+        activities: List<Activity>,
+        categoryIds: MutableMap<String, Long> = HashMap()
+    ): List<Activity> = activities.map { activity ->
+        activity.copy(categoryId = categoryIds.getOrPut(activity.category) {
+            database.categoryDao().getOrCreateCategoryId(activity.category)
+        })
+    }
+
+    /**
+     * Get all activities, from the activity index.
+     * The reminder dialogs list them each time they open, which no longer re-reads the table.
+     * @return List of all activities, sorted by date and time
+     * @throws Exception if database operation fails
+     */
+    suspend fun getAllActivities(): List<Activity> {
+        return try {
+            activityIndex.getAllActivities()
         } catch (e: Exception) {
             Log.e(TAG, "Error getting all activities", e)
             throw e
         }
     }
 
+    /**
+     * Observe all activities
+     * @return Flow of all activities, sorted by date and time, re-emitted when activities change
+     */
+    fun observeAllActivities(): Flow<List<ActivityListItem>> =
+        database.activityDao().observeAllActivities()
+            .catch { e ->
+                Log.e(TAG, "Error observing all activities", e)
+                throw e
+            }
+
     /**
      * Get a specific activity by ID
      * @param id The activity ID
      * @return Activity if found, null otherwise
      * @throws Exception if database operation fails
      */
-    suspend fun getActivityById(id: Long): Activity? = withContext(Dispatchers.IO) {
-        try {
-            database.activityDao().getActivityById(id)
+    suspend fun getActivityById(id: Long): Activity? {
+        return try {
+            activityIndex.getActivityById(id)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting activity by id: $id", e)
             throw e
@@ -66,13 +269,17 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Delete an activity from the database
+     * Delete an activity. The row is kept as a tombstone, so the delete can be undone
+     * with [restoreActivity] until [purgeDeletedRows] removes it.
      * @param activity The activity to delete
      * @throws Exception if database operation fails
      */
-    suspend fun deleteActivity(activity: Activity) = withContext(Dispatchers.IO) {
+    suspend fun deleteActivity(activity: Activity) {
         try {
-            database.activityDao().deleteActivity(activity.id)
+            activityIndex.writeThrough({
+                database.activityDao().softDeleteActivity(activity.id, System.currentTimeMillis())
+            }) { remove(activity.id) }
+            queryCache.invalidate(ACTIVITY_WRITE_TABLES)
             Log.d(TAG, "Activity deleted successfully: ${activity.id}")
         } catch (e: Exception) {
             Log.e(TAG, "Error deleting activity", e)
@@ -80,17 +287,41 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
         }
     }
 
+    /**
+     * Undo [deleteActivity]
+     * @param activity The deleted activity
+     * @return true if it was restored, false if it was not deleted or has been purged
+     * @throws Exception if database operation fails
+     */
+    suspend fun restoreActivity(activity: Activity): Boolean {
+        return try {
+            val restored = activityIndex.writeThrough({
+                database.withTransaction {
+                    val dao = database.activityDao()
+                    if (dao.restoreActivity(activity.id) > 0) dao.getActivityById(activity.id) else null
+                }
+            }) { restored -> restored?.let { put(listOf(it)) } }
+            if (restored != null) queryCache.invalidate(ACTIVITY_WRITE_TABLES)
+            Log.d(TAG, "Activity restored: ${activity.id} (${restored != null})")
+            restored != null
+        } catch (e: Exception) {
+            Log.e(TAG, "Error restoring activity", e)
+            throw e
+        }
+    }
+
     /**
      * Get upcoming activities (today and future)
-     * @return List of activities with timestamps >= today
+     * @param limit Maximum number of activities to return
+     * @param after Cursor of the last activity already loaded, or null for the first page
+     * @return Activities dated today or later, soonest first
      * @throws Exception if database operation fails
      */
-    suspend fun getUpcomingActivities(): List<Activity> = withContext(Dispatchers.IO) {
-        try {
-            val todayStart = DateTimeUtils.getCurrentTimestamp()
-            database.activityDao().getAllActivities().filter { activity ->
-                activity.dateTimestamp >= todayStart || DateTimeUtils.isToday(activity.dateTimestamp)
-            }
+    suspend fun getUpcomingActivities(limit: Int, after: ActivityCursor? = null): List<Activity> {
+        return try {
+            // Any minute of today sorts after (start of today, -1), so the first page starts at today
+            val cursor = after ?: ActivityCursor(DateTimeUtils.getStartOfTodayTimestamp(), -1, 0)
+            database.activityDao().getActivitiesAfter(cursor.dateTimestamp, cursor.timeMinutes, cursor.id, limit)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting upcoming activities", e)
             throw e
@@ -99,45 +330,255 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
 
     /**
      * Get overdue tasks (activities from the past that weren't completed)
-     * @return List of activities with timestamps < today
+     * @param limit Maximum number of activities to return
+     * @param before Cursor of the last activity already loaded, or null for the first page
+     * @return Activities dated before today, most recent first
      * @throws Exception if database operation fails
      */
-    suspend fun getOverdueTasks(): List<Activity> = withContext(Dispatchers.IO) {
-        try {
-            database.activityDao().getAllActivities().filter { activity ->
-                DateTimeUtils.isPast(activity.dateTimestamp)
-            }
+    suspend fun getOverdueTasks(limit: Int, before: ActivityCursor? = null): List<Activity> {
+        return try {
+            // Nothing dated today sorts before (start of today, 0, 0), so the first page ends at yesterday
+            val cursor = before ?: ActivityCursor(DateTimeUtils.getStartOfTodayTimestamp(), 0, 0)
+            database.activityDao().getActivitiesBefore(cursor.dateTimestamp, cursor.timeMinutes, cursor.id, limit)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting overdue tasks", e)
             throw e
         }
     }
 
+    /**
+     * Observe the first page of upcoming activities (today and future)
+     * @param limit Maximum number of activities to return
+     * @return Flow of activities dated today or later, soonest first; re-queried at midnight
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun observeUpcomingActivities(limit: Int): Flow<List<ActivityListItem>> =
+        startOfEachDay()
+            .flatMapLatest { startOfToday -> database.activityDao().observeActivitiesAfter(startOfToday, -1, 0, limit) }
+            .catch { e ->
+                Log.e(TAG, "Error observing upcoming activities", e)
+                throw e
+            }
+
+    /**
+     * Observe the first page of overdue tasks
+     * @param limit Maximum number of activities to return
+     * @return Flow of activities dated before today, most recent first; re-queried at midnight
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun observeOverdueTasks(limit: Int): Flow<List<ActivityListItem>> =
+        startOfEachDay()
+            .flatMapLatest { startOfToday -> database.activityDao().observeActivitiesBefore(startOfToday, 0, 0, limit) }
+            .catch { e ->
+                Log.e(TAG, "Error observing overdue tasks", e)
+                throw e
+            }
+
     /**
      * Get activities for a specific profile
      * @param profileId The profile ID
      * @return List of activities for the profile
      * @throws Exception if database operation fails
      */
-    suspend fun getActivitiesByProfile(profileId: Long): List<Activity> = withContext(Dispatchers.IO) {
-        try {
-            database.activityDao().getActivitiesByProfile(profileId)
+    suspend fun getActivitiesByProfile(profileId: Long): List<Activity> {
+        return try {
+            activityIndex.getActivitiesByProfile(profileId)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting activities by profile: $profileId", e)
             throw e
         }
     }
 
+    /**
+     * Get activities dated between two timestamps.
+     * The archive is read only when the range reaches back to its newest activity.
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Current and archived activities in the range, sorted by date and time
+     * @throws Exception if database operation fails
+     */
+    suspend fun getActivitiesInRange(startTimestamp: Long, endTimestamp: Long): List<Activity> {
+        return try {
+            val current = activityIndex.getActivitiesInRange(startTimestamp, endTimestamp)
+            if (reachesArchive(startTimestamp)) {
+                val archived = database.archiveDao().getActivitiesByDateRange(startTimestamp, endTimestamp)
+                mergeByDateTime(archived, current) { it }
+            } else {
+                current
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting activities in range", e)
+            throw e
+        }
+    }
+
+    /**
+     * Get list items dated between two timestamps, with profile and reminder details.
+     * The archive is read only when the range reaches back to its newest activity.
+     * @param startTimestamp Inclusive lower bound
+     * @param endTimestamp Inclusive upper bound
+     * @return Current and archived activities in the range, sorted by date and time
+     * @throws Exception if database operation fails
+     */
+    suspend fun getActivityItemsInRange(startTimestamp: Long, endTimestamp: Long): List<ActivityListItem> {
+        return try {
+            val current = database.activityDao().getActivityItemsByDateRange(startTimestamp, endTimestamp)
+            if (reachesArchive(startTimestamp)) {
+                val archived = database.archiveDao().getActivityItemsByDateRange(startTimestamp, endTimestamp)
+                mergeByDateTime(archived, current) { it.activity }
+            } else {
+                current
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting activity items in range", e)
+            throw e
+        }
+    }
+
+    /**
+     * Observe changes to activities, profiles and reminders
+     * @return Flow that emits once on collection and again after each change
+     */
+    fun observeActivityChanges(): Flow<Unit> =
+        database.tableChanges("activities", "profiles", "reminders").map { }
+
+    /**
+     * Get today's activities
+     * @return Activities dated today, sorted by time
+     * @throws Exception if database operation fails
+     */
+    suspend fun getTodayActivities(): List<Activity> {
+        return try {
+            val startOfToday = DateTimeUtils.getStartOfTodayTimestamp()
+            val startOfTomorrow = Calendar.getInstance().apply {
+                timeInMillis = startOfToday
+                add(Calendar.DAY_OF_YEAR, 1)
+            }.timeInMillis
+            activityIndex.getActivitiesInRange(startOfToday, startOfTomorrow - 1)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting today's activities", e)
+            throw e
+        }
+    }
+
+    /**
+     * Get activities in a category
+     * @param categoryId The category ID
+     * @return Activities in the category, sorted by date and time
+     * @throws Exception if database operation fails
+     */
+    suspend fun getActivitiesByCategory(categoryId: Long): List<Activity> {
+        return try {
+            activityIndex.getActivitiesByCategory(categoryId)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting activities by category: $categoryId", e)
+            throw e
+        }
+    }
+
+    /**
+     * Create a paging source for the activities list
+     * @param categoryId Category to filter by, or null for all categories
+     * @return Paging source that reloads itself when activities change
+     */
+    fun getActivitiesPagingSource(categoryId: Long?): ActivityPagingSource {
+        return ActivityPagingSource(database, categoryId)
+    }
+
+    /**
+     * Search activities by description, category and notes.
+     * Each word in the query matches as a prefix; results are ranked by relevance.
+     * @param query Text typed by the user
+     * @param categoryId Category to filter by, or null for all categories
+     * @param limit Maximum number of activities to return
+     * @return Matching activities, best match first
+     * @throws Exception if database operation fails
+     */
+    suspend fun searchActivities(query: String, categoryId: Long?, limit: Int): List<ActivityListItem> {
+        return try {
+            val match = FtsSearch.prefixQuery(query) ?: return emptyList()
+            database.activityDao().searchActivities(match, categoryId, limit)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error searching activities", e)
+            throw e
+        }
+    }
+
+    /**
+     * Observe search results for a query
+     * @param query Text typed by the user
+     * @param categoryId Category to filter by, or null for all categories
+     * @param limit Maximum number of activities to return
+     * @return Flow of matching activities, best match first, re-run when activities change
+     */
+    fun observeSearchResults(query: String, categoryId: Long?, limit: Int): Flow<List<ActivityListItem>> =
+        database.tableChanges("activities").map { searchActivities(query, categoryId, limit) }
+
+    /**
+     * Get the categories used by existing activities
+     * @return Categories with at least one activity, sorted by name
+     * @throws Exception if database operation fails
+     */
+    suspend fun getActivityCategories(): List<Category> {
+        return try {
+            database.categoryDao().getCategoriesInUse()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting activity categories", e)
+            throw e
+        }
+    }
+
+    /**
+     * Get every category, including predefined ones no activity uses yet
+     * @return All categories, sorted by name
+     * @throws Exception if database operation fails
+     */
+    suspend fun getAllCategories(): List<Category> {
+        return try {
+            database.categoryDao().getAllCategories()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting categories", e)
+            throw e
+        }
+    }
+
+    /**
+     * Rename a category. Activities, archived activities and daily summaries refer to the
+     * category by ID, so this updates one row; only the full-text entries of the category's
+     * activities are rewritten, by trigger, so searches match the new name.
+     * @param categoryId The category ID
+     * @param name The new name
+     * @return true if the category exists and was renamed
+     * @throws Exception if database operation fails, including when another category has that name
+     */
+    suspend fun renameCategory(categoryId: Long, name: String): Boolean {
+        return try {
+            val renamed = database.categoryDao().renameCategory(categoryId, name) > 0
+            if (renamed) {
+                activityIndex.categoryRenamed(categoryId, name)
+                queryCache.invalidate(CATEGORY_WRITE_TABLES)
+            }
+            Log.d(TAG, "Category $categoryId renamed to $name: $renamed")
+            renamed
+        } catch (e: Exception) {
+            Log.e(TAG, "Error renaming category: $categoryId", e)
+            throw e
+        }
+    }
+
     // ==================== Reminder Operations ====================
 
     /**
-     * Insert or update a reminder in the database
+     * Insert or update a reminder in the database, queueing its next fire time
+     * @return Row id of the reminder
      * @throws Exception if database operation fails
      */
-    suspend fun insertReminder(reminder: Reminder) = withContext(Dispatchers.IO) {
-        try {
-            database.reminderDao().insertReminder(reminder)
-            Log.d(TAG, "Reminder inserted successfully: ${reminder.id}")
+    suspend fun insertReminder(reminder: Reminder): Long {
+        return try {
+            val id = database.reminderDao().insertReminder(queued(reminder, System.currentTimeMillis()))
+            queryCache.invalidate(REMINDER_WRITE_TABLES)
+            Log.d(TAG, "Reminder inserted successfully: $id")
+            id
         } catch (e: Exception) {
             Log.e(TAG, "Error inserting reminder", e)
             throw e
@@ -149,14 +590,25 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
      * @return List of all reminders, sorted by time
      * @throws Exception if database operation fails
      */
-    suspend fun getAllReminders(): List<Reminder> = withContext(Dispatchers.IO) {
-        try {
+    suspend fun getAllReminders(): List<Reminder> {
+        return try {
             database.reminderDao().getAllReminders()
         } catch (e: Exception) {
             Log.e(TAG, "Error getting all reminders", e)
             throw e
         }
     }
+
+    /**
+     * Observe all reminders
+     * @return Flow of all reminders, sorted by time, re-emitted when reminders change
+     */
+    fun observeAllReminders(): Flow<List<Reminder>> =
+        database.reminderDao().observeAllReminders()
+            .catch { e ->
+                Log.e(TAG, "Error observing all reminders", e)
+                throw e
+            }
     
     /**
      * Get a specific reminder by ID
@@ -164,8 +616,8 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
      * @return Reminder if found, null otherwise
      * @throws Exception if database operation fails
      */
-    suspend fun getReminderById(id: Long): Reminder? = withContext(Dispatchers.IO) {
-        try {
+    suspend fun getReminderById(id: Long): Reminder? {
+        return try {
             database.reminderDao().getReminderById(id)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting reminder by id: $id", e)
@@ -174,13 +626,30 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Delete a reminder from the database
+     * Get the reminder linked to an activity
+     * @param activityId The activity ID
+     * @return The activity's first reminder, or null if it has none
+     * @throws Exception if database operation fails
+     */
+    suspend fun getReminderForActivity(activityId: Long): Reminder? {
+        return try {
+            database.reminderDao().getFirstReminderForActivity(activityId)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting reminder for activity: $activityId", e)
+            throw e
+        }
+    }
+
+    /**
+     * Delete a reminder. The row is kept as a tombstone, so the delete can be undone
+     * with [restoreReminder] until [purgeDeletedRows] removes it.
      * @param reminder The reminder to delete
      * @throws Exception if database operation fails
      */
-    suspend fun deleteReminder(reminder: Reminder) = withContext(Dispatchers.IO) {
+    suspend fun deleteReminder(reminder: Reminder) {
         try {
-            database.reminderDao().deleteReminderById(reminder.id)
+            database.reminderDao().softDeleteReminder(reminder.id, System.currentTimeMillis())
+            queryCache.invalidate(REMINDER_WRITE_TABLES)
             Log.d(TAG, "Reminder deleted successfully: ${reminder.id}")
         } catch (e: Exception) {
             Log.e(TAG, "Error deleting reminder", e)
@@ -188,16 +657,191 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
         }
     }
 
+    /**
+     * Undo [deleteReminder]. A fire time missed while deleted moves to the next occurrence.
+     * @param reminder The deleted reminder
+     * @return true if it was restored, false if it was not deleted or has been purged
+     * @throws Exception if database operation fails
+     */
+    suspend fun restoreReminder(reminder: Reminder): Boolean {
+        return try {
+            val restored = database.withTransaction {
+                val restored = database.reminderDao().restoreReminder(reminder.id) > 0
+                if (restored) {
+                    requeueMissed(listOfNotNull(database.reminderDao().getReminderById(reminder.id)), System.currentTimeMillis())
+                }
+                restored
+            }
+            if (restored) queryCache.invalidate(REMINDER_WRITE_TABLES)
+            Log.d(TAG, "Reminder restored: ${reminder.id} ($restored)")
+            restored
+        } catch (e: Exception) {
+            Log.e(TAG, "Error restoring reminder", e)
+            throw e
+        }
+    }
+
+    /**
+     * Earliest pending reminder fire time, the one the reminder alarm is armed for
+     * @return Fire time in milliseconds, or null if no reminder is pending
+     * @throws Exception if database operation fails
+     */
+    suspend fun getNextReminderFireTime(): Long? {
+        return try {
+            database.reminderDao().getEarliestFireTime()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting next reminder fire time", e)
+            throw e
+        }
+    }
+
+    /**
+     * Take every reminder due by a time off the queue, moving each to its following fire time
+     * in one transaction. Reminders that do not repeat leave the queue.
+     * One query reads the reminders together with what their notifications show.
+     * @param until Reminders due at or before this time are taken
+     * @param now Current time in milliseconds
+     * @return The due reminders, with the fire times they were due at and their activities
+     * @throws Exception if database operation fails
+     */
+    suspend fun takeDueReminders(until: Long, now: Long): List<ReminderNotice> {
+        return try {
+            val due = database.withTransaction {
+                val due = database.reminderDao().getDueReminderNotices(until)
+                val recurrence = recurrence
+                for (notice in due) {
+                    val reminder = notice.reminder
+                    database.reminderDao().setNextFireAt(reminder.id, recurrence.followingOccurrence(reminder, now))
+                }
+                due
+            }
+            Log.d(TAG, "${due.size} reminders due")
+            due
+        } catch (e: Exception) {
+            Log.e(TAG, "Error taking due reminders", e)
+            throw e
+        }
+    }
+
+    /**
+     * Put reminders taken by [takeDueReminders] back on the queue at the fire times they were due
+     * at, when their notifications could not be posted. A reminder edited, snoozed, rescheduled or
+     * deleted since it was taken keeps that change.
+     * @param notices Reminders as returned by [takeDueReminders]
+     * @param now The time passed to [takeDueReminders] when they were taken
+     * @return Number of reminders put back
+     * @throws Exception if database operation fails
+     */
+    suspend fun requeueReminders(notices: List<ReminderNotice>, now: Long): Int {
+        if (notices.isEmpty()) return 0
+        return try {
+            val requeued = database.withTransaction {
+                val recurrence = recurrence
+                var requeued = 0
+                for (notice in notices) {
+                    val reminder = notice.reminder
+                    val dueAt = reminder.nextFireAt ?: continue
+                    // The same fire time takeDueReminders moved it to
+                    val takenTo = recurrence.followingOccurrence(reminder, now)
+                    requeued += database.reminderDao().moveNextFireAt(reminder.id, dueAt, takenTo)
+                }
+                requeued
+            }
+            Log.d(TAG, "$requeued of ${notices.size} reminders put back on the queue")
+            requeued
+        } catch (e: Exception) {
+            Log.e(TAG, "Error requeueing reminders", e)
+            throw e
+        }
+    }
+
+    /**
+     * Work out every pending reminder fire time again, after a change of clock or time zone:
+     * one query, one pass and one transaction for all reminders. Snoozed reminders go back to
+     * their scheduled occurrence, so it is not called after a reboot, when fire times still hold.
+     * Only changed fire times are written, so repeating the call does no further work.
+     * @param now Current time in milliseconds
+     * @return Number of reminders whose fire time changed
+     * @throws Exception if database operation fails
+     */
+    suspend fun rescheduleReminders(now: Long): Int {
+        return try {
+            val changed = database.withTransaction {
+                val recurrence = recurrence
+                var changed = 0
+                for (reminder in database.reminderDao().getPendingReminders()) {
+                    val nextFireAt = recurrence.reschedule(reminder, now)
+                    if (nextFireAt != reminder.nextFireAt) {
+                        database.reminderDao().setNextFireAt(reminder.id, nextFireAt)
+                        changed++
+                    }
+                }
+                changed
+            }
+            Log.d(TAG, "Reminders rescheduled: $changed changed")
+            changed
+        } catch (e: Exception) {
+            Log.e(TAG, "Error rescheduling reminders", e)
+            throw e
+        }
+    }
+
+    /**
+     * Fire a reminder again at a later time; its regular occurrences continue afterwards
+     * @param reminderId The reminder ID
+     * @param until When to fire it again
+     * @throws Exception if database operation fails
+     */
+    suspend fun snoozeReminder(reminderId: Long, until: Long) {
+        try {
+            database.reminderDao().setNextFireAt(reminderId, until)
+            Log.d(TAG, "Reminder snoozed: $reminderId")
+        } catch (e: Exception) {
+            Log.e(TAG, "Error snoozing reminder: $reminderId", e)
+            throw e
+        }
+    }
+
+    /**
+     * Reminder fire times in the device's time zone; read per use, so a zone change takes effect
+     */
+    private val recurrence: ReminderRecurrence
+        get() = ReminderRecurrence()
+
+    /**
+     * Set a reminder's series start and first fire time, counted from [now]
+     */
+    private fun queued(reminder: Reminder, now: Long): Reminder =
+        recurrence.schedule(reminder, now)
+
+    /**
+     * Re-queue restored reminders whose fire time passed while they were deleted,
+     * so an undo does not fire a missed reminder straight away
+     */
+    private suspend fun requeueMissed(reminders: List<Reminder>, now: Long) {
+        val recurrence = recurrence
+        for (reminder in reminders) {
+            val nextFireAt = reminder.nextFireAt ?: continue
+            if (nextFireAt < now) {
+                database.reminderDao().setNextFireAt(reminder.id, recurrence.firstOccurrence(reminder, now))
+            }
+        }
+    }
+
     // ==================== Profile Operations ====================
 
     /**
      * Insert or update a user profile in the database
+     * @return Row id of the profile
      * @throws Exception if database operation fails
      */
-    suspend fun insertUserProfile(profile: UserProfile) = withContext(Dispatchers.IO) {
-        try {
-            database.profileDao().insertProfile(profile)
-            Log.d(TAG, "Profile inserted successfully: ${profile.id}")
+    suspend fun insertUserProfile(profile: UserProfile): Long {
+        return try {
+            val id = database.profileDao().insertProfile(profile)
+            profileCache.invalidate()
+            queryCache.invalidate(PROFILE_ROW_TABLES)
+            Log.d(TAG, "Profile inserted successfully: $id")
+            id
         } catch (e: Exception) {
             Log.e(TAG, "Error inserting profile", e)
             throw e
@@ -205,28 +849,39 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Get all user profiles from the database
+     * Get all user profiles, from the in-memory profile cache
      * @return List of all profiles
      * @throws Exception if database operation fails
      */
-    suspend fun getAllUserProfiles(): List<UserProfile> = withContext(Dispatchers.IO) {
-        try {
-            database.profileDao().getAllProfiles()
+    suspend fun getAllUserProfiles(): List<UserProfile> {
+        return try {
+            profileCache.getProfiles()
         } catch (e: Exception) {
             Log.e(TAG, "Error getting all profiles", e)
             throw e
         }
     }
 
+    /**
+     * Observe all user profiles
+     * @return Flow of all profiles, re-emitted when profiles change
+     */
+    fun observeAllUserProfiles(): Flow<List<UserProfile>> =
+        database.profileDao().observeAllProfiles()
+            .catch { e ->
+                Log.e(TAG, "Error observing all profiles", e)
+                throw e
+            }
+
     /**
      * Get a specific profile by ID
      * @param id The profile ID
      * @return UserProfile if found, null otherwise
      * @throws Exception if database operation fails
      */
-    suspend fun getUserProfileById(id: Long): UserProfile? = withContext(Dispatchers.IO) {
-        try {
-            database.profileDao().getProfileById(id)
+    suspend fun getUserProfileById(id: Long): UserProfile? {
+        return try {
+            profileCache.getProfile(id)
         } catch (e: Exception) {
             Log.e(TAG, "Error getting profile by id: $id", e)
             throw e
@@ -234,25 +889,214 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Delete a user profile and all associated data
-     * @param profile The profile to delete
+     * Get a profile's name by ID
+     * @param id The profile ID
+     * @return The profile's name, or null if there is no such profile
+     * @throws Exception if database operation fails
+     */
+    suspend fun getProfileName(id: Long): String? {
+        return try {
+            profileCache.getProfileName(id)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting profile name: $id", e)
+            throw e
+        }
+    }
+
+    /**
+     * Load the profile cache ahead of the first screen that needs it
      * @throws Exception if database operation fails
      */
-    suspend fun deleteUserProfile(profile: UserProfile) = withContext(Dispatchers.IO) {
+    suspend fun warmProfileCache() {
         try {
-            // Delete all activities for this profile
-            database.activityDao().deleteActivitiesByProfile(profile.id)
-            // Delete all reminders for this profile
-            database.reminderDao().deleteRemindersByProfile(profile.id)
-            // Delete the profile
-            database.profileDao().deleteProfileById(profile.id)
+            profileCache.warm()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error warming profile cache", e)
+            throw e
+        }
+    }
+
+    /**
+     * Delete a user profile and all associated data.
+     * Every row is tombstoned with the same timestamp, so [restoreUserProfile] brings back
+     * exactly what this call deleted.
+     * @param profile The profile to delete
+     * @return The reminders deleted with the profile, whose alarms the caller cancels
+     * @throws Exception if database operation fails
+     */
+    suspend fun deleteUserProfile(profile: UserProfile): List<Reminder> {
+        return try {
+            val deletedAt = System.currentTimeMillis()
+            // One transaction, so observers see a single change instead of three
+            val reminders = activityIndex.writeThrough({
+                database.withTransaction {
+                    val reminders = database.reminderDao().getRemindersByProfile(profile.id)
+                    database.activityDao().softDeleteActivitiesByProfile(profile.id, deletedAt)
+                    database.archiveDao().softDeleteByProfile(profile.id, deletedAt)
+                    database.reminderDao().softDeleteRemindersByProfile(profile.id, deletedAt)
+                    database.profileDao().softDeleteProfile(profile.id, deletedAt)
+                    reminders
+                }
+            }) { removeProfile(profile.id) }
+            profileCache.invalidate()
+            queryCache.invalidate(PROFILE_WRITE_TABLES)
             Log.d(TAG, "Profile and associated data deleted successfully: ${profile.id}")
+            reminders
         } catch (e: Exception) {
             Log.e(TAG, "Error deleting profile", e)
             throw e
         }
     }
 
+    /**
+     * Undo [deleteUserProfile], bringing back the profile with the activities and reminders
+     * deleted along with it
+     * @param profile The deleted profile
+     * @return The restored reminders, whose alarms the caller schedules again; empty if the
+     *         profile was not deleted or has been purged
+     * @throws Exception if database operation fails
+     */
+    suspend fun restoreUserProfile(profile: UserProfile): List<Reminder> {
+        return try {
+            val restored = activityIndex.writeThrough({
+                database.withTransaction {
+                    // Children first: they are matched against the profile's deletedAt
+                    database.activityDao().restoreActivitiesByProfile(profile.id)
+                    database.archiveDao().restoreByProfile(profile.id)
+                    database.reminderDao().restoreRemindersByProfile(profile.id)
+                    if (database.profileDao().restoreProfile(profile.id) > 0) {
+                        requeueMissed(database.reminderDao().getRemindersByProfile(profile.id), System.currentTimeMillis())
+                        database.activityDao().getActivitiesByProfile(profile.id) to
+                            database.reminderDao().getRemindersByProfile(profile.id)
+                    } else {
+                        emptyList<Activity>() to emptyList()
+                    }
+                }
+            }) { (activities, _) -> put(activities) }
+            profileCache.invalidate()
+            queryCache.invalidate(PROFILE_WRITE_TABLES)
+            Log.d(TAG, "Profile restored: ${profile.id} (${restored.first.size} activities)")
+            restored.second
+        } catch (e: Exception) {
+            Log.e(TAG, "Error restoring profile", e)
+            throw e
+        }
+    }
+
+    // ==================== Maintenance Operations ====================
+
+    /**
+     * Move activities dated before a horizon to the archive, a batch per transaction.
+     * Archived activities leave the in-memory index and the day-to-day queries, but reports
+     * and date ranges reaching back past the horizon still include them.
+     * @param horizon Activities dated before this timestamp are archived
+     * @param batchSize Activities moved per transaction
+     * @return Number of activities archived
+     * @throws Exception if database operation fails
+     */
+    suspend fun archiveActivities(horizon: Long, batchSize: Int = DEFAULT_ARCHIVE_BATCH_SIZE): Int {
+        require(batchSize > 0) { "batchSize must be positive" }
+        return try {
+            var total = 0
+            do {
+                val moved = activityIndex.writeThrough({
+                    database.archiveDao().archiveBatch(horizon, batchSize)
+                }) { ids -> ids.forEach { remove(it) } }
+                total += moved.size
+            } while (moved.size == batchSize)
+            // Range reads must see the new archive bound now, not when the tracker catches up
+            if (total > 0) queryCache.invalidate(ACTIVITY_TABLES)
+            Log.d(TAG, "Archived $total activities")
+            total
+        } catch (e: Exception) {
+            Log.e(TAG, "Error archiving activities", e)
+            throw e
+        }
+    }
+
+    /**
+     * Physically remove rows deleted before a cutoff, a batch per transaction so no
+     * single write holds the database for long
+     * @param cutoff Tombstones with deletedAt before this timestamp are removed
+     * @param batchSize Rows removed per transaction
+     * @return Number of rows removed from all tables
+     * @throws Exception if database operation fails
+     */
+    suspend fun purgeDeletedRows(cutoff: Long, batchSize: Int = DEFAULT_PURGE_BATCH_SIZE): Int {
+        require(batchSize > 0) { "batchSize must be positive" }
+        return try {
+            val purges = listOf<suspend () -> Int>(
+                // Tombstones are not in the activity index: nothing to update, but no reload either.
+                // The archive shares the index's version counter, so its purge goes through it too.
+                { activityIndex.writeThrough({ database.activityDao().purgeDeletedActivities(cutoff, batchSize) }) {} },
+                { activityIndex.writeThrough({ database.archiveDao().purgeDeleted(cutoff, batchSize) }) {} },
+                { database.reminderDao().purgeDeletedReminders(cutoff, batchSize) },
+                { database.profileDao().purgeDeletedProfiles(cutoff, batchSize) }
+            )
+            var total = 0
+            for (purge in purges) {
+                do {
+                    val removed = purge()
+                    total += removed
+                } while (removed == batchSize)
+            }
+            Log.d(TAG, "Purged $total deleted rows")
+            total
+        } catch (e: Exception) {
+            Log.e(TAG, "Error purging deleted rows", e)
+            throw e
+        }
+    }
+
+    /**
+     * Return free pages to the file system. The first call switches the database to
+     * incremental auto-vacuum, which needs one full VACUUM; later calls are incremental.
+     * Run it outside any transaction, e.g. from a background job.
+     * @throws Exception if database operation fails
+     */
+    suspend fun vacuum() {
+        try {
+            withContext(Dispatchers.IO) {
+                val db = database.openHelper.writableDatabase
+                val mode = db.query("PRAGMA auto_vacuum").use { if (it.moveToFirst()) it.getInt(0) else 0 }
+                if (mode != AUTO_VACUUM_INCREMENTAL) {
+                    db.execSQL("PRAGMA auto_vacuum = INCREMENTAL")
+                    db.execSQL("VACUUM")
+                } else {
+                    // The pragma frees pages as it is stepped, so read it to the end
+                    db.query("PRAGMA incremental_vacuum").use { cursor ->
+                        while (cursor.moveToNext()) {
+                            // No columns to read
+                        }
+                    }
+                }
+            }
+            Log.d(TAG, "Database vacuumed")
+        } catch (e: Exception) {
+            Log.e(TAG, "Error vacuuming database", e)
+            throw e
+        }
+    }
+
+    /**
+     * Recount the daily summary from both activity tables. Its rows are keyed by local calendar
+     * day, so after a time zone change an activity near midnight can fall on a different day than
+     * the row it was counted in, and its next update or delete would adjust the wrong row.
+     * Call it when the time zone changes.
+     * @throws Exception if database operation fails
+     */
+    suspend fun rebuildDailySummary() {
+        try {
+            database.withTransaction {
+                DailySummarySchema.rebuild(database.openHelper.writableDatabase)
+            }
+            Log.d(TAG, "Daily summary rebuilt")
+        } catch (e: Exception) {
+            Log.e(TAG, "Error rebuilding daily summary", e)
+            throw e
+        }
+    }
+
     // ==================== Report Operations ====================
 
     /**
@@ -260,20 +1104,9 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
      * @return Map containing weekly statistics
      * @throws Exception if database operation fails
      */
-    suspend fun getWeeklySummary(): Map<String, Any> = withContext(Dispatchers.IO) {
-        try {
-            val startOfWeek = DateTimeUtils.getStartOfWeekTimestamp()
-            val endOfWeek = DateTimeUtils.getEndOfWeekTimestamp()
-            
-            val weekActivities = database.activityDao().getActivitiesByDateRange(startOfWeek, endOfWeek)
-            
-            mapOf(
-                "totalActivities" to weekActivities.size,
-                "activitiesByCategory" to weekActivities.groupBy { it.category }.mapValues { it.value.size },
-                "activitiesByDay" to weekActivities.groupBy { 
-                    DateTimeUtils.timestampToDateString(it.dateTimestamp)
-                }.mapValues { it.value.size }
-            )
+    suspend fun getWeeklySummary(): Map<String, Any> {
+        return try {
+            getSummaryForRange("weeklySummary", DateTimeUtils.getStartOfWeekTimestamp(), DateTimeUtils.getEndOfWeekTimestamp())
         } catch (e: Exception) {
             Log.e(TAG, "Error getting weekly summary", e)
             throw e
@@ -281,44 +1114,181 @@ class KidTrackRepository(private val database: KidTrackDatabase) {
     }
 
     /**
-     * Get comprehensive report statistics
-     * @return ReportStatistics object with calculated metrics
+     * Get monthly summary of activities
+     * @return Map containing statistics for the current month, in the same shape as [getWeeklySummary]
      * @throws Exception if database operation fails
      */
-    suspend fun getReportStatistics(): ReportStatistics = withContext(Dispatchers.IO) {
-        try {
-            val allActivities = getAllActivities()
-            val startOfWeek = DateTimeUtils.getStartOfWeekTimestamp()
-            val endOfWeek = DateTimeUtils.getEndOfWeekTimestamp()
+    suspend fun getMonthlySummary(): Map<String, Any> {
+        return try {
+            getSummaryForRange("monthlySummary", DateTimeUtils.getStartOfMonthTimestamp(), DateTimeUtils.getEndOfMonthTimestamp())
+        } catch (e: Exception) {
+            Log.e(TAG, "Error getting monthly summary", e)
+            throw e
+        }
+    }
 
-            val thisWeekActivities = allActivities.filter { activity ->
-                activity.dateTimestamp in startOfWeek..endOfWeek
-            }
+    // Breakdowns come from the cached columnar snapshot, so they never build an object per activity
+    private suspend fun getSummaryForRange(name: String, startTimestamp: Long, endTimestamp: Long): Map<String, Any> {
+        val startDay = DateTimeUtils.toEpochDay(startTimestamp)
+        val endDay = DateTimeUtils.toEpochDay(endTimestamp)
+        return queryCache.get("$name:$startDay:$endDay", NAMED_ACTIVITY_TABLES, DateTimeUtils.getMillisUntilTomorrow()) {
+            summarize(getActivityColumns(), getCategoryNames(), startTimestamp, endTimestamp)
+        }
+    }
 
-            val completedActivities = allActivities.filter { activity ->
-                DateTimeUtils.isPast(activity.dateTimestamp)
+    private suspend fun summarize(
+        columns: ActivityColumns,
+        categoryNames: Map<Long, String>,
+        startTimestamp: Long,
+        endTimestamp: Long
+    ): Map<String, Any> =
+        withContext(Dispatchers.Default) {
+            val byDay = LinkedHashMap<String, Int>()
+            for ((epochDay, count) in columns.dayBreakdown(startTimestamp, endTimestamp)) {
+                byDay[DateTimeUtils.timestampToDateString(DateTimeUtils.startOfEpochDay(epochDay))] = count
             }
+            mapOf(
+                "totalActivities" to columns.countInRange(startTimestamp, endTimestamp),
+                "activitiesByCategory" to named(columns.categoryBreakdown(startTimestamp, endTimestamp), categoryNames),
+                "activitiesByDay" to byDay
+            )
+        }
 
-            val categoryBreakdown = allActivities.groupBy { it.category }
-                .mapValues { it.value.size }
+    /**
+     * Observe the weekly summary
+     * @return Flow of weekly statistics, recomputed when activities change
+     */
+    fun observeWeeklySummary(): Flow<Map<String, Any>> =
+        cachedTableChanges(NAMED_ACTIVITY_TABLES).map { getWeeklySummary() }
 
-            val completionRate = if (allActivities.isNotEmpty()) {
-                (completedActivities.size * 100) / allActivities.size
-            } else {
-                0
+    /**
+     * Get comprehensive report statistics
+     * @return ReportStatistics object with calculated metrics
+     * @throws Exception if database operation fails
+     */
+    suspend fun getReportStatistics(): ReportStatistics {
+        return try {
+            val today = DateTimeUtils.getTodayEpochDay()
+            val weekStartDay = DateTimeUtils.toEpochDay(DateTimeUtils.getStartOfWeekTimestamp())
+            val weekEndDay = DateTimeUtils.toEpochDay(DateTimeUtils.getEndOfWeekTimestamp())
+            queryCache.get(
+                "reportStatistics:$today:$weekStartDay:$weekEndDay:$RECENT_ACTIVITIES_LIMIT",
+                STATISTICS_TABLES,
+                DateTimeUtils.getMillisUntilTomorrow()
+            ) {
+                val reportDao = database.reportDao()
+                // Separate queries on Room's query pool, repeated if an activity write commits
+                // between them, so the counts, breakdown and list agree
+                activityIndex.readConsistently {
+                    val counts = reportDao.getActivityCounts(today, weekStartDay, weekEndDay)
+                    val categoryBreakdown = named(getActivityColumns().categoryBreakdown(), getCategoryNames())
+                    ReportStatistics(
+                        totalActivities = counts.total,
+                        completedActivities = counts.completed,
+                        thisWeekActivities = counts.thisWeek,
+                        completionRate = if (counts.total > 0) (counts.completed * 100) / counts.total else 0,
+                        categoryBreakdown = categoryBreakdown,
+                        recentActivities = reportDao.getMostRecentActivities(RECENT_ACTIVITIES_LIMIT)
+                    )
+                }
             }
-
-            ReportStatistics(
-                totalActivities = allActivities.size,
-                completedActivities = completedActivities.size,
-                thisWeekActivities = thisWeekActivities.size,
-                completionRate = completionRate,
-                categoryBreakdown = categoryBreakdown,
-                recentActivities = allActivities.takeLast(5).reversed()
-            )
         } catch (e: Exception) {
             Log.e(TAG, "Error getting report statistics", e)
             throw e
         }
     }
+
+    /**
+     * Observe the report statistics
+     * @return Flow of report statistics, recomputed when activities change
+     */
+    fun observeReportStatistics(): Flow<ReportStatistics> =
+        cachedTableChanges(STATISTICS_TABLES).map { getReportStatistics() }
+
+    // Category names by ID, for naming the breakdowns of the ID-keyed snapshot
+    private suspend fun getCategoryNames(): Map<Long, String> =
+        database.categoryDao().getAllCategories().associate { it.id to it.name }
+
+    private fun named(breakdown: Map<Long, Int>, categoryNames: Map<Long, String>): Map<String, Int> {
+        val result = LinkedHashMap<String, Int>(breakdown.size * 2)
+        for ((categoryId, count) in breakdown) {
+            result[categoryNames[categoryId] ?: continue] = count
+        }
+        return result
+    }
+
+    /**
+     * Get a columnar snapshot of every activity, current and archived, for analytics.
+     * The snapshot is cached until either table changes.
+     * @return Dates, times, profiles and categories of all activities: archived ones first,
+     *         then current ones, each in date order
+     * @throws Exception if database operation fails
+     */
+    suspend fun getActivityColumns(): ActivityColumns {
+        return try {
+            queryCache.get("activityColumns", ACTIVITY_TABLES) {
+                // Repeated if a write commits between the two reads, so an archive batch
+                // cannot move rows out from under them
+                activityIndex.readConsistently {
+                    // Cursor reads block, so they cannot use Room's suspend executors
+                    withContext(Dispatchers.IO) {
+                        val builder = ActivityColumns.Builder()
+                        database.archiveDao().getAnalyticsCursor().use { builder.addAll(it) }
+                        database.reportDao().getAnalyticsCursor().use { builder.addAll(it) }
+                        builder.build()
+                    }
+                }
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Error loading activity columns", e)
+            throw e
+        }
+    }
+
+    /**
+     * Get the report cache's hit, miss and eviction counts
+     * @return Counts since the cache was created
+     */
+    fun getQueryCacheStats(): QueryResultCache.Stats = queryCache.stats()
+
+    // Whether a range starting at startTimestamp includes any archived activity
+    private suspend fun reachesArchive(startTimestamp: Long): Boolean {
+        val latestArchived = queryCache.get("latestArchived", ARCHIVE_TABLES) {
+            database.archiveDao().getLatestArchivedTimestamp() ?: Long.MIN_VALUE
+        }
+        return latestArchived != Long.MIN_VALUE && startTimestamp <= latestArchived
+    }
+
+    // Merge two lists already sorted by date and time
+    private inline fun <T> mergeByDateTime(first: List<T>, second: List<T>, activity: (T) -> Activity): List<T> {
+        if (first.isEmpty()) return second
+        if (second.isEmpty()) return first
+        val merged = ArrayList<T>(first.size + second.size)
+        var i = 0
+        var j = 0
+        while (i < first.size && j < second.size) {
+            val a = activity(first[i])
+            val b = activity(second[j])
+            val firstIsEarlier = a.dateTimestamp < b.dateTimestamp ||
+                (a.dateTimestamp == b.dateTimestamp && a.timeMinutes <= b.timeMinutes)
+            merged.add(if (firstIsEarlier) first[i++] else second[j++])
+        }
+        while (i < first.size) merged.add(first[i++])
+        while (j < second.size) merged.add(second[j++])
+        return merged
+    }
+
+    // Start of today, emitted again after each local midnight, so observed "today" bounds roll over
+    private fun startOfEachDay(): Flow<Long> = flow {
+        while (true) {
+            emit(DateTimeUtils.getStartOfTodayTimestamp())
+            delay(DateTimeUtils.getMillisUntilTomorrow() + 1)
+        }
+    }.distinctUntilChanged()
+
+    // Table changes, delivered only after the query cache has dropped the entries they affect
+    private fun cachedTableChanges(tables: Set<String>): Flow<Set<String>> = flow {
+        queryCache.startObserving()
+        emitAll(database.tableChanges(*tables.toTypedArray()))
+    }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.example.kidtrack.data.repository
+
+import android.util.Log
+import android.util.LongSparseArray
+import androidx.room.InvalidationTracker
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.UserProfile
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+
+/**
+ * In-memory copy of the profiles table, keyed by primitive profile id.
+ *
+ * Profiles change rarely but are read on nearly every dialog and notification, so the
+ * whole table is loaded once and kept as an immutable snapshot that readers use without
+ * locking. Any write to the profiles table drops the snapshot; the next read reloads it.
+ *
+ * The app holds one cache, in [com.example.kidtrack.AppContainer].
+ *
+ * @param database The database the cache mirrors
+ */
+class ProfileCache internal constructor(private val database: KidTrackDatabase) {
+
+    companion object {
+        private const val TAG = "ProfileCache"
+    }
+
+    /**
+     * Profiles as loaded at one point in time; never modified after construction
+     */
+    private class Snapshot(val profiles: List<UserProfile>) {
+        val byId = LongSparseArray<UserProfile>(profiles.size).apply {
+            profiles.forEach { put(it.id, it) }
+        }
+    }
+
+    private val lock = Any()
+
+    @Volatile
+    private var snapshot: Snapshot? = null
+    // Bumped on every invalidation, so a load that raced with a write is not installed
+    private var generation = 0L
+
+    private val loadMutex = Mutex()
+    @Volatile
+    private var observerRegistered = false
+
+    private val observer = object : InvalidationTracker.Observer("profiles") {
+        override fun onInvalidated(tables: Set<String>) {
+            invalidate()
+        }
+    }
+
+    /**
+     * Drop the cached profiles; the next read reloads them
+     */
+    fun invalidate() {
+        synchronized(lock) {
+            generation++
+            snapshot = null
+        }
+    }
+
+    /**
+     * Load the profiles now, so the first screen that needs them does not wait
+     * @throws Exception if database operation fails
+     */
+    suspend fun warm() {
+        load()
+    }
+
+    /**
+     * Get all profiles
+     * @return All profiles, in table order
+     * @throws Exception if the cache has to be loaded and the database read fails
+     */
+    suspend fun getProfiles(): List<UserProfile> = load().profiles
+
+    /**
+     * Get a profile by ID
+     * @param id The profile ID
+     * @return UserProfile if found, null otherwise
+     * @throws Exception if the cache has to be loaded and the database read fails
+     */
+    suspend fun getProfile(id: Long): UserProfile? = load().byId.get(id)
+
+    /**
+     * Get a profile's name by ID
+     * @param id The profile ID
+     * @return The profile's name, or null if there is no such profile
+     * @throws Exception if the cache has to be loaded and the database read fails
+     */
+    suspend fun getProfileName(id: Long): String? = getProfile(id)?.name
+
+    private suspend fun load(): Snapshot {
+        while (true) {
+            snapshot?.let { return it }
+            loadMutex.withLock {
+                if (!observerRegistered) {
+                    // Registering syncs the tracker's triggers, so keep it off the caller's thread
+                    withContext(Dispatchers.IO) {
+                        database.invalidationTracker.addObserver(observer)
+                    }
+                    observerRegistered = true
+                }
+                if (snapshot == null) {
+                    val loadedGeneration = synchronized(lock) { generation }
+                    val loaded = Snapshot(database.profileDao().getAllProfiles())
+                    synchronized(lock) {
+                        // Otherwise a write landed during the read; go round again
+                        if (loadedGeneration == generation) {
+                            snapshot = loaded
+                            Log.d(TAG, "Profile cache loaded: ${loaded.profiles.size} profiles")
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.kidtrack.data.repository
+
+import android.os.SystemClock
+import android.util.Log
+import androidx.room.InvalidationTracker
+import com.example.kidtrack.data.database.KidTrackDatabase
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+
+/**
+ * Size-bounded LRU cache of query results, dropped when the tables they were read from change.
+ *
+ * Each entry is keyed by the query name plus its parameters and records the tables it depends
+ * on. When Room's invalidation tracker reports a change to one of those tables the entry is
+ * removed, so a hit is always as fresh as a new query. Results that also depend on the clock,
+ * such as "this week", can be given a time to live as well.
+ *
+ * The app holds one cache, in [com.example.kidtrack.AppContainer].
+ *
+ * @param database The database whose results are cached
+ * @param maxEntries Entries kept before the least recently used one is evicted
+ * @param clock Monotonic time in milliseconds, used for time to live
+ */
+class QueryResultCache internal constructor(
+    private val database: KidTrackDatabase,
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+    private val clock: () -> Long = SystemClock::elapsedRealtime
+) {
+
+    companion object {
+        private const val TAG = "QueryResultCache"
+        const val DEFAULT_MAX_ENTRIES = 32
+        // Passed as ttlMillis for results that only change when their tables do
+        const val NO_TTL = Long.MAX_VALUE
+
+        /**
+         * Tables a cached result may depend on
+         */
+        val TRACKED_TABLES = setOf("activities", "activities_archive", "categories", "profiles", "reminders", "daily_activity_summary")
+    }
+
+    /**
+     * Hit, miss and eviction counts since the cache was created
+     * @property hits Lookups served from memory
+     * @property misses Lookups that ran the query, including expired entries
+     * @property evictions Entries dropped to stay within the size bound
+     * @property invalidations Entries dropped because a table they depend on changed
+     */
+    data class Stats(val hits: Long, val misses: Long, val evictions: Long, val invalidations: Long)
+
+    private class Entry(val value: Any?, val tables: Set<String>, val expiresAt: Long)
+
+    private val lock = Any()
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>): Boolean {
+            val evict = size > maxEntries
+            if (evict) evictions++
+            return evict
+        }
+    }
+
+    // Bumped on every invalidation, so a load that raced with a write is not stored
+    private var generation = 0L
+
+    private var hits = 0L
+    private var misses = 0L
+    private var evictions = 0L
+    private var invalidations = 0L
+
+    private val registerMutex = Mutex()
+    @Volatile
+    private var observerRegistered = false
+
+    private val observer = object : InvalidationTracker.Observer(TRACKED_TABLES.toTypedArray()) {
+        override fun onInvalidated(tables: Set<String>) {
+            invalidate(tables)
+        }
+    }
+
+    /**
+     * Get a result from the cache, or run the query and cache its result
+     * @param key Query name plus its parameters, e.g. "weeklySummary:20100:20106"
+     * @param tables Tables the result is read from; each must be in [TRACKED_TABLES]
+     * @param ttlMillis How long the result stays valid regardless of table changes, or [NO_TTL]
+     * @param load Runs the query
+     * @return The cached or freshly loaded result
+     * @throws Exception if the query has to run and fails; nothing is cached
+     */
+    suspend fun <T> get(key: String, tables: Set<String>, ttlMillis: Long = NO_TTL, load: suspend () -> T): T {
+        require(TRACKED_TABLES.containsAll(tables)) { "Untracked tables in $tables" }
+        startObserving()
+
+        val loadGeneration = synchronized(lock) {
+            val entry = entries[key]
+            if (entry != null && clock() < entry.expiresAt) {
+                hits++
+                @Suppress("UNCHECKED_CAST")
+                return entry.value as T
+            }
+            if (entry != null) entries.remove(key)
+            misses++
+            generation
+        }
+
+        val value = load()
+        val now = clock()
+        val expiresAt = if (ttlMillis >= NO_TTL - now) NO_TTL else now + ttlMillis
+        synchronized(lock) {
+            // Otherwise a write landed during the query and the result may already be stale
+            if (loadGeneration == generation) {
+                entries[key] = Entry(value, tables, expiresAt)
+            }
+        }
+        return value
+    }
+
+    /**
+     * Drop every entry that depends on one of the given tables
+     * @param tables Tables that have changed
+     */
+    fun invalidate(tables: Set<String>) {
+        synchronized(lock) {
+            generation++
+            val iterator = entries.values.iterator()
+            while (iterator.hasNext()) {
+                if (iterator.next().tables.any { it in tables }) {
+                    iterator.remove()
+                    invalidations++
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop every entry
+     */
+    fun clear() {
+        synchronized(lock) {
+            generation++
+            invalidations += entries.size
+            entries.clear()
+        }
+    }
+
+    /**
+     * Get the hit, miss and eviction counts
+     * @return Counts since the cache was created
+     */
+    fun stats(): Stats = synchronized(lock) { Stats(hits, misses, evictions, invalidations) }
+
+    /**
+     * Register with the invalidation tracker if not already registered.
+     * Observers are notified in registration order, so calling this before adding a change
+     * observer of your own guarantees entries are dropped before that observer hears of a change.
+     */
+    suspend fun startObserving() {
+        if (observerRegistered) return
+        registerMutex.withLock {
+            if (observerRegistered) return
+            // Registering syncs the tracker's triggers, so keep it off the caller's thread
+            withContext(Dispatchers.IO) {
+                database.invalidationTracker.addObserver(observer)
+            }
+            observerRegistered = true
+            Log.d(TAG, "Query result cache observing ${TRACKED_TABLES.joinToString()}")
+        }
+    }
+}
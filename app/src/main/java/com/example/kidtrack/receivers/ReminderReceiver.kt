@@ -1,126 +1,183 @@
 package com.example.kidtrack.receivers
 
-import android.app.AlarmManager
-import android.app.PendingIntent
 import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
 import android.widget.Toast
-import com.example.kidtrack.utils.NotificationHelper
-import com.example.kidtrack.utils.DateTimeUtils
+import com.example.kidtrack.data.model.ReminderNotice
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.utils.ReminderNotificationDispatcher
+import com.example.kidtrack.utils.ReminderScheduler
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
 import kotlinx.coroutines.launch
-import com.example.kidtrack.data.database.KidTrackDatabase
-import com.example.kidtrack.data.repository.KidTrackRepository
-import java.util.Calendar
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeout
+import com.example.kidtrack.appContainer
 
+/**
+ * Handles the reminder alarm and the snooze action of reminder notifications.
+ * Work runs on the application scope while the broadcast is held open with goAsync(),
+ * so the process is not killed between the alarm and the notification.
+ */
 class ReminderReceiver : BroadcastReceiver() {
     
+    companion object {
+        private const val TAG = "ReminderReceiver"
+        private const val SNOOZE_MS = 10 * 60 * 1000L
+        
+        // Well inside the time a receiver may keep a broadcast open with goAsync
+        private const val BUDGET_MS = 8_000L
+        
+        // Kept back from the steps before them, counted back from the end of the budget
+        private const val REARM_RESERVE_MS = 1_000L
+        private const val REQUEUE_RESERVE_MS = 1_000L
+    }
+    
     override fun onReceive(context: Context, intent: Intent) {
         when (intent.action) {
             "ACTION_SNOOZE" -> {
                 handleSnooze(context, intent)
             }
             else -> {
-                handleReminder(context, intent)
+                handleDueReminders(context)
             }
         }
     }
     
-    private fun handleReminder(context: Context, intent: Intent) {
-        val reminderId = intent.getLongExtra("REMINDER_ID", -1L)
-        val reminderTimeMinutes = intent.getIntExtra("REMINDER_TIME_MINUTES", -1)
-        val activityId = intent.getLongExtra("ACTIVITY_ID", -1L)
-        val daysBefore = intent.getIntExtra("DAYS_BEFORE", 0)
-        
-        if (reminderId == -1L || activityId == -1L) {
-            return
-        }
+    /**
+     * Dispatch every reminder due within the dispatch window, then arm the alarm for the next one.
+     * One query reads the due reminders with their activities and children's names, so on a
+     * cold process the notifications wait only for the database to open and that read.
+     * Reminders firing together are posted grouped by child, paced and capped to the time left
+     * in the broadcast. Reminders not posted in that time, or at all because posting failed,
+     * go back on the queue and the re-armed alarm fires them again straight away.
+     * Every step's time limit comes from one deadline set when the broadcast arrived: taking and
+     * posting stop early enough to leave time to requeue, and requeueing early enough to re-arm.
+     * Alarms set by older versions, one per reminder, land here too and are handled the same way.
+     */
+    private fun handleDueReminders(context: Context) {
+        val receivedAt = SystemClock.elapsedRealtime()
+        val deadline = receivedAt + BUDGET_MS
+        val requeueDeadline = deadline - REARM_RESERVE_MS
+        val postDeadline = requeueDeadline - REQUEUE_RESERVE_MS
+        val pendingResult = goAsync()
+        val appContext = context.applicationContext
+        val container = appContext.appContainer
         
-        val reminderTime = if (reminderTimeMinutes >= 0) {
-            DateTimeUtils.minutesToTimeString(reminderTimeMinutes)
-        } else {
-            ""
-        }
-        
-        // Fetch activity and reminder details
-        val database = KidTrackDatabase.getDatabase(context)
-        val repository = KidTrackRepository(database)
-        
-        CoroutineScope(Dispatchers.IO).launch {
-            try {
-                val activity = repository.getActivityById(activityId)
-                val reminder = repository.getReminderById(reminderId)
-                
-                // Build title with reminder name
-                val title = if (reminder != null && reminder.name.isNotBlank()) {
-                    "${reminder.name}"
-                } else {
-                    "KidTrack Reminder"
+        container.applicationScope.launch(Dispatchers.IO) {
+            val now = System.currentTimeMillis()
+            val due = try {
+                // Advanced before notifying, so a repeated alarm cannot notify twice
+                withDeadline(postDeadline) {
+                    container.repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now)
+                }
+            } catch (e: Exception) {
+                Log.e(TAG, "Error taking due reminders", e)
+                emptyList()
+            }
+            if (due.isNotEmpty()) {
+                // Taken reminders are posted or put back, within their own limits only
+                withContext(NonCancellable) {
+                    try {
+                        val unposted = withDeadline(postDeadline) {
+                            ReminderNotificationDispatcher.dispatch(appContext, due, postDeadline)
+                        }
+                        if (unposted.size < due.size) {
+                            logLatency(due - unposted.toSet(), receivedAt)
+                        }
+                        if (unposted.isNotEmpty()) {
+                            Log.w(TAG, "${unposted.size} reminders not posted in time, queued again")
+                            requeue(container.repository, unposted, now, requeueDeadline)
+                        }
+                    } catch (e: Exception) {
+                        Log.e(TAG, "Error posting due reminders", e)
+                        requeue(container.repository, due, now, requeueDeadline)
+                    }
                 }
-                
-                // Build message with activity details
-                val message = if (activity != null) {
-                    val dateStr = DateTimeUtils.timestampToDateString(activity.dateTimestamp)
-                    val timeStr = DateTimeUtils.minutesToTimeString(activity.timeMinutes)
-                    val daysBeforeText = if (daysBefore > 0) " (Tomorrow)" else ""
-                    "Activity: ${activity.category} - ${activity.description}$daysBeforeText\nScheduled: $dateStr at $timeStr"
-                } else {
-                    "You have a scheduled activity at $reminderTime"
+            }
+            try {
+                withDeadline(deadline) {
+                    ReminderScheduler.rearm(appContext)
                 }
-                
-                val snoozeEnabled = reminder?.snoozeEnabled ?: true
-                NotificationHelper.sendNotification(context, title, message, reminderId, activityId, snoozeEnabled)
             } catch (e: Exception) {
-                // Fallback notification if we can't fetch activity
-                NotificationHelper.sendNotification(
-                    context,
-                    "KidTrack Reminder",
-                    "You have a scheduled activity at $reminderTime",
-                    reminderId,
-                    activityId,
-                    true
-                )
+                Log.e(TAG, "Error re-arming reminder alarm", e)
+            } finally {
+                pendingResult.finish()
             }
         }
     }
     
+    /**
+     * Put reminders whose notifications were not posted back on the queue, so the re-armed
+     * alarm fires them again. Notifications use the reminder id, so one that was posted after
+     * all is replaced, not shown twice.
+     */
+    private suspend fun requeue(repository: KidTrackRepository, notices: List<ReminderNotice>, now: Long, deadline: Long) {
+        try {
+            withDeadline(deadline) {
+                repository.requeueReminders(notices, now)
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Error requeueing ${notices.size} reminders", e)
+        }
+    }
+    
+    /**
+     * Log how late the notifications were: after their fire time, which covers alarm delivery
+     * and a cold start, and after the broadcast arrived, which covers the database read and paced posts
+     */
+    private fun logLatency(posted: List<ReminderNotice>, receivedAt: Long) {
+        val notifiedAt = System.currentTimeMillis()
+        val lateness = posted.mapNotNull { notice -> notice.reminder.nextFireAt?.let { notifiedAt - it } }
+        Log.i(
+            TAG,
+            "Posted ${posted.size} reminders ${lateness.maxOrNull() ?: 0} ms after their fire time " +
+                "(${SystemClock.elapsedRealtime() - receivedAt} ms after the alarm was received)"
+        )
+    }
+    
+    /**
+     * Run a step with the time left before a deadline on the [SystemClock.elapsedRealtime] clock;
+     * a step whose time has already run out fails at once
+     */
+    private suspend fun <T> withDeadline(deadline: Long, block: suspend CoroutineScope.() -> T): T =
+        withTimeout(deadline - SystemClock.elapsedRealtime(), block)
+    
     private fun handleSnooze(context: Context, intent: Intent) {
         val reminderId = intent.getLongExtra("REMINDER_ID", -1L)
-        val activityId = intent.getLongExtra("ACTIVITY_ID", -1L)
         
         if (reminderId == -1L) {
             return
         }
         
-        // Schedule reminder to trigger again in 10 minutes
-        val snoozeIntent = Intent(context, ReminderReceiver::class.java).apply {
-            putExtra("REMINDER_ID", reminderId)
-            putExtra("ACTIVITY_ID", activityId)
-            putExtra("REMINDER_TIME_MINUTES", -1)
-        }
+        // Fire the reminder again in 10 minutes through the alarm queue
+        val until = System.currentTimeMillis() + SNOOZE_MS
+        val pendingResult = goAsync()
+        val appContext = context.applicationContext
+        val container = appContext.appContainer
         
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            reminderId.toInt() + 20000, // Different request code for snooze
-            snoozeIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-        
-        val calendar = Calendar.getInstance()
-        calendar.add(Calendar.MINUTE, 10) // Snooze for 10 minutes
-        
-        val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
-        try {
-            alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP,
-                calendar.timeInMillis,
-                pendingIntent
-            )
-            Toast.makeText(context, "Reminder snoozed for 10 minutes", Toast.LENGTH_SHORT).show()
-        } catch (e: Exception) {
-            Toast.makeText(context, "Failed to snooze reminder", Toast.LENGTH_SHORT).show()
+        container.applicationScope.launch(Dispatchers.IO) {
+            val snoozed = try {
+                withTimeout(BUDGET_MS) {
+                    container.repository.snoozeReminder(reminderId, until)
+                    ReminderScheduler.rearm(appContext)
+                }
+                true
+            } catch (e: Exception) {
+                Log.e(TAG, "Error snoozing reminder: $reminderId", e)
+                false
+            }
+            Handler(Looper.getMainLooper()).post {
+                val text = if (snoozed) "Reminder snoozed for 10 minutes" else "Failed to snooze reminder"
+                Toast.makeText(appContext, text, Toast.LENGTH_SHORT).show()
+                pendingResult.finish()
+            }
         }
     }
 }
@@ -0,0 +1,98 @@
+package com.example.kidtrack.receivers
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.os.SystemClock
+import android.util.Log
+import com.example.kidtrack.appContainer
+import com.example.kidtrack.utils.ReminderScheduler
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeout
+
+/**
+ * Re-arms reminders after the system drops or invalidates alarms: on reboot, when the app is
+ * updated, and when the clock or time zone changes.
+ * Stored fire times are instants, so a reboot or an update leaves them valid, snoozes included,
+ * and only the single reminder alarm is armed again; missed ones fire straight away.
+ * A clock or zone change moves the wall-clock times reminders are set for, so all pending fire
+ * times are worked out again in one pass first.
+ * A time zone change also recounts the daily summary, whose rows are keyed by local day.
+ * Repeated broadcasts find nothing left to change and only re-arm the same alarm.
+ * All steps share one budget counted from when the broadcast arrived; each gets only the time
+ * left, and the last part of it is always kept for re-arming and finishing the broadcast.
+ */
+class RescheduleReceiver : BroadcastReceiver() {
+
+    companion object {
+        private const val TAG = "RescheduleReceiver"
+
+        // Well inside the time a receiver may keep a broadcast open with goAsync
+        private const val BUDGET_MS = 8_000L
+
+        // Kept back from the other steps for re-arming the alarm and finishing the broadcast
+        private const val REARM_RESERVE_MS = 1_500L
+
+        private val ACTIONS = setOf(
+            Intent.ACTION_BOOT_COMPLETED,
+            Intent.ACTION_MY_PACKAGE_REPLACED,
+            Intent.ACTION_TIME_CHANGED,
+            Intent.ACTION_TIMEZONE_CHANGED
+        )
+
+        // Broadcasts that change what wall-clock time a stored fire time stands for
+        private val CLOCK_ACTIONS = setOf(
+            Intent.ACTION_TIME_CHANGED,
+            Intent.ACTION_TIMEZONE_CHANGED
+        )
+    }
+
+    override fun onReceive(context: Context, intent: Intent) {
+        if (intent.action !in ACTIONS) return
+
+        val deadline = SystemClock.elapsedRealtime() + BUDGET_MS
+        val workDeadline = deadline - REARM_RESERVE_MS
+        val pendingResult = goAsync()
+        val appContext = context.applicationContext
+        val container = appContext.appContainer
+        container.applicationScope.launch(Dispatchers.IO) {
+            if (intent.action in CLOCK_ACTIONS) {
+                try {
+                    withDeadline(workDeadline) {
+                        // Fire times are instants; after a zone change the same wall-clock time is a different one
+                        container.repository.rescheduleReminders(System.currentTimeMillis())
+                    }
+                } catch (e: Exception) {
+                    // Rolled back; the alarm below still covers the fire times already queued
+                    Log.e(TAG, "Error rescheduling reminders after ${intent.action}", e)
+                }
+            }
+            if (intent.action == Intent.ACTION_TIMEZONE_CHANGED) {
+                try {
+                    withDeadline(workDeadline) {
+                        container.repository.rebuildDailySummary()
+                    }
+                } catch (e: Exception) {
+                    // Reports stay off by the zone difference until the next successful rebuild
+                    Log.e(TAG, "Error rebuilding daily summary after ${intent.action}", e)
+                }
+            }
+            try {
+                withDeadline(deadline) {
+                    ReminderScheduler.rearm(appContext)
+                }
+            } catch (e: Exception) {
+                Log.e(TAG, "Error re-arming reminder alarm", e)
+            } finally {
+                pendingResult.finish()
+            }
+        }
+    }
+
+    // Runs a step with the time left before a deadline on the elapsed-time clock;
+    // a step whose time has already run out fails at once
+    private suspend fun <T> withDeadline(deadline: Long, block: suspend CoroutineScope.() -> T): T =
+        withTimeout(deadline - SystemClock.elapsedRealtime(), block)
+}
@@ -4,28 +4,23 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
-import androidx.lifecycle.LifecycleOwner
-import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
 import com.example.kidtrack.data.model.Activity
-import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.data.model.ActivityListItem
 import com.example.kidtrack.utils.DateTimeUtils
-import kotlinx.coroutines.launch
 
 class ActivitiesAdapter(
-    private val lifecycleOwner: LifecycleOwner,
     private val onItemClick: (Activity) -> Unit = {},
     private val onItemLongClick: (Activity) -> Unit = {}
-) : ListAdapter<Activity, ActivitiesAdapter.ActivityViewHolder>(ActivityDiffCallback()) {
+) : ListAdapter<ActivityListItem, ActivitiesAdapter.ActivityViewHolder>(ActivityDiffCallback()) {
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ActivityViewHolder {
         val view = LayoutInflater.from(parent.context)
             .inflate(R.layout.item_activity, parent, false)
-        return ActivityViewHolder(view, lifecycleOwner, onItemClick, onItemLongClick)
+        return ActivityViewHolder(view, onItemClick, onItemLongClick)
     }
 
     override fun onBindViewHolder(holder: ActivityViewHolder, position: Int) {
@@ -34,7 +29,6 @@ class ActivitiesAdapter(
 
     class ActivityViewHolder(
         itemView: View,
-        private val lifecycleOwner: LifecycleOwner,
         private val onItemClick: (Activity) -> Unit,
         private val onItemLongClick: (Activity) -> Unit
     ) : RecyclerView.ViewHolder(itemView) {
@@ -44,7 +38,12 @@ class ActivitiesAdapter(
         private val descriptionTextView: TextView = itemView.findViewById(R.id.activityDescription)
         private val reminderInfoTextView: TextView = itemView.findViewById(R.id.activityReminderInfo)
 
-        fun bind(activity: Activity) {
+        /**
+         * Bind a row. Profile and reminder details arrive with the item,
+         * so binding never touches the database.
+         */
+        fun bind(item: ActivityListItem) {
+            val activity = item.activity
             titleTextView.text = activity.category
             
             // Format timestamp and time for display
@@ -54,32 +53,21 @@ class ActivitiesAdapter(
             
             descriptionTextView.text = activity.description
             
-            val database = KidTrackDatabase.getDatabase(itemView.context)
-            val repository = KidTrackRepository(database)
+            // Profile name
+            if (item.profileName != null) {
+                profileNameTextView.text = "👤 ${item.profileName}"
+                profileNameTextView.visibility = View.VISIBLE
+            } else {
+                profileNameTextView.visibility = View.GONE
+            }
             
-            lifecycleOwner.lifecycleScope.launch {
-                // Load and display profile name
-                if (activity.profileId != 0L) {
-                    val profile = repository.getAllUserProfiles().find { it.id == activity.profileId }
-                    if (profile != null) {
-                        profileNameTextView.text = "👤 ${profile.name}"
-                        profileNameTextView.visibility = View.VISIBLE
-                    } else {
-                        profileNameTextView.visibility = View.GONE
-                    }
-                } else {
-                    profileNameTextView.visibility = View.GONE
-                }
-                
-                // Load and display reminder info
-                val reminder = repository.getAllReminders().find { it.associatedActivityId == activity.id }
-                if (reminder != null) {
-                    val snoozeStatus = if (reminder.snoozeEnabled) "On" else "Off"
-                    reminderInfoTextView.text = "Reminder: ${reminder.name} • Snooze: $snoozeStatus"
-                    reminderInfoTextView.visibility = View.VISIBLE
-                } else {
-                    reminderInfoTextView.visibility = View.GONE
-                }
+            // Reminder info
+            if (item.reminderName != null) {
+                val snoozeStatus = if (item.reminderSnoozeEnabled == true) "On" else "Off"
+                reminderInfoTextView.text = "Reminder: ${item.reminderName} • Snooze: $snoozeStatus"
+                reminderInfoTextView.visibility = View.VISIBLE
+            } else {
+                reminderInfoTextView.visibility = View.GONE
             }
             
             itemView.setOnClickListener {
@@ -93,12 +81,12 @@ class ActivitiesAdapter(
         }
     }
 
-    class ActivityDiffCallback : DiffUtil.ItemCallback<Activity>() {
-        override fun areItemsTheSame(oldItem: Activity, newItem: Activity): Boolean {
-            return oldItem.id == newItem.id
+    class ActivityDiffCallback : DiffUtil.ItemCallback<ActivityListItem>() {
+        override fun areItemsTheSame(oldItem: ActivityListItem, newItem: ActivityListItem): Boolean {
+            return oldItem.activity.id == newItem.activity.id
         }
 
-        override fun areContentsTheSame(oldItem: Activity, newItem: Activity): Boolean {
+        override fun areContentsTheSame(oldItem: ActivityListItem, newItem: ActivityListItem): Boolean {
             return oldItem == newItem
         }
     }
@@ -14,15 +14,17 @@ import android.widget.TextView
 import android.widget.Toast
 import androidx.appcompat.app.AlertDialog
 import androidx.fragment.app.Fragment
+import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import androidx.paging.LoadState
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.data.model.Activity
 import com.example.kidtrack.data.model.Reminder
-import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.DateTimeUtils
 import com.example.kidtrack.utils.PredefinedTasks
 import com.example.kidtrack.utils.ReminderScheduler
@@ -35,6 +37,7 @@ import com.google.android.material.floatingactionbutton.ExtendedFloatingActionBu
 import com.google.android.material.snackbar.Snackbar
 import com.google.android.material.textfield.TextInputEditText
 import com.google.android.material.textfield.TextInputLayout
+import kotlinx.coroutines.flow.collectLatest
 import kotlinx.coroutines.launch
 import java.util.Calendar
 
@@ -42,18 +45,15 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
 
     private lateinit var activitiesViewModel: ActivitiesViewModel
     private lateinit var activitiesRecyclerView: RecyclerView
-    private lateinit var activitiesAdapter: ActivitiesAdapter
+    private lateinit var activitiesAdapter: ActivitiesPagingAdapter
     private lateinit var addActivityButton: ExtendedFloatingActionButton
     private lateinit var emptyStateLayout: View
     private lateinit var searchEditText: TextInputEditText
     private lateinit var filterButton: MaterialButton
-    private var allActivities: List<Activity> = emptyList()
-    private var currentFilter: String? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         val factory = ActivitiesViewModelFactory(repository)
         activitiesViewModel = ViewModelProvider(this, factory).get(ActivitiesViewModel::class.java)
     }
@@ -64,8 +64,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
         activitiesRecyclerView = view.findViewById(R.id.activitiesRecyclerView)
         activitiesRecyclerView.layoutManager = LinearLayoutManager(context)
         
-        activitiesAdapter = ActivitiesAdapter(
-            viewLifecycleOwner,
+        activitiesAdapter = ActivitiesPagingAdapter(
             onItemClick = { activity -> showEditActivityDialog(activity) },
             onItemLongClick = { activity -> showDeleteConfirmation(activity) }
         )
@@ -81,7 +80,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
             override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {}
             override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {}
             override fun afterTextChanged(s: Editable?) {
-                filterActivities(s.toString())
+                activitiesViewModel.setSearchQuery(s.toString())
             }
         })
         
@@ -91,23 +90,28 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
             showFilterDialog()
         }
 
-        activitiesViewModel.activities.observe(viewLifecycleOwner) { state ->
-            when (state) {
-                is UiState.Loading -> {
-                    // Show loading state
-                    activitiesRecyclerView.visibility = View.GONE
+        viewLifecycleOwner.lifecycleScope.launch {
+            viewLifecycleOwner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+                activitiesViewModel.pagedActivities.collectLatest { pagingData ->
+                    activitiesAdapter.submitData(pagingData)
+                }
+            }
+        }
+
+        activitiesAdapter.addLoadStateListener { loadStates ->
+            when (val refresh = loadStates.refresh) {
+                is LoadState.Loading -> {
+                    // Keep showing the current rows while the first page loads
                     emptyStateLayout.visibility = View.GONE
                 }
-                is UiState.Success -> {
-                    // Hide loading and show data
-                    allActivities = state.data
-                    filterActivities(searchEditText.text.toString())
-                    updateEmptyState(state.data.isEmpty())
+                is LoadState.NotLoading -> {
+                    // Only offer "add first activity" when nothing is filtered out
+                    val unfiltered = searchEditText.text.isNullOrBlank() && activitiesViewModel.categoryFilter == null
+                    updateEmptyState(activitiesAdapter.itemCount == 0 && unfiltered)
                 }
-                is UiState.Error -> {
-                    // Hide loading and show error
-                    Snackbar.make(view, state.message, Snackbar.LENGTH_LONG)
-                        .setAction("Retry") { activitiesViewModel.retry() }
+                is LoadState.Error -> {
+                    Snackbar.make(view, "Failed to load activities: ${refresh.error.message}", Snackbar.LENGTH_LONG)
+                        .setAction("Retry") { activitiesAdapter.retry() }
                         .show()
                 }
             }
@@ -137,9 +141,6 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
         addActivityButton.setOnClickListener {
             showAddActivityDialog()
         }
-        
-        // Load activities
-        activitiesViewModel.fetchActivities()
     }
 
     private fun setupEmptyState() {
@@ -162,8 +163,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
 
     private fun showAddActivityDialog() {
         // Fetch profiles from repository
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         
         viewLifecycleOwner.lifecycleScope.launch {
             val profiles = repository.getAllUserProfiles()
@@ -301,32 +301,22 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
                     // Add activity and always create a reminder
                     viewLifecycleOwner.lifecycleScope.launch {
                         try {
-                            repository.insertActivity(activity)
-                            val activityId = repository.getAllActivities().lastOrNull()?.id ?: 0L
+                            // Always create reminder 1 day before at 9:00 AM
+                            val reminder = Reminder(
+                                name = reminderName,
+                                timeMinutes = 540, // 9:00 AM
+                                frequency = "once",
+                                associatedActivityId = 0, // Linked to the new activity on insert
+                                profileId = profileId,
+                                daysBefore = 1,
+                                eventDateTimestamp = timestamp,
+                                snoozeEnabled = snoozeEnabled
+                            )
+                            val saved = repository.createActivityWithReminder(activity, reminder)
                             
-                            if (activityId > 0) {
-                                // Always create reminder 1 day before at 9:00 AM
-                                val reminder = Reminder(
-                                    name = reminderName,
-                                    timeMinutes = 540, // 9:00 AM
-                                    frequency = "once",
-                                    associatedActivityId = activityId,
-                                    profileId = profileId,
-                                    daysBefore = 1,
-                                    eventDateTimestamp = timestamp,
-                                    snoozeEnabled = snoozeEnabled
-                                )
-                                repository.insertReminder(reminder)
-                                
-                                // Schedule the reminder
-                                val reminderId = repository.getAllReminders().lastOrNull()?.id ?: 0L
-                                if (reminderId > 0) {
-                                    val scheduledReminder = reminder.copy(id = reminderId)
-                                    ReminderScheduler.scheduleReminder(requireContext(), scheduledReminder)
-                                }
-                            }
+                            // Schedule the reminder
+                            saved.reminder?.let { ReminderScheduler.scheduleReminder(requireContext(), it) }
                             
-                            activitiesViewModel.fetchActivities()
                             Toast.makeText(requireContext(), "Activity and reminder added successfully", Toast.LENGTH_SHORT).show()
                         } catch (e: Exception) {
                             Toast.makeText(requireContext(), "Failed to add activity: ${e.message}", Toast.LENGTH_LONG).show()
@@ -339,8 +329,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
     }
 
     private fun showEditActivityDialog(activity: Activity) {
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         
         viewLifecycleOwner.lifecycleScope.launch {
             val profiles = repository.getAllUserProfiles()
@@ -370,7 +359,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
             notesInput.setText(activity.notes)
             
             // Load existing reminder info
-            val existingReminder = repository.getAllReminders().find { it.associatedActivityId == activity.id }
+            val existingReminder = repository.getReminderForActivity(activity.id)
             if (existingReminder != null) {
                 reminderNameInput.setText(existingReminder.name)
                 enableSnoozeCheckbox.isChecked = existingReminder.snoozeEnabled
@@ -383,7 +372,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
             profileInput.setAdapter(profileAdapter)
             
             // Pre-select current profile
-            val currentProfile = profiles.find { it.id == activity.profileId }
+            val currentProfile = repository.getUserProfileById(activity.profileId)
             if (currentProfile != null) {
                 profileInput.setText("${currentProfile.name} (${currentProfile.age} years)", false)
             }
@@ -485,7 +474,7 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
                             activitiesViewModel.updateActivity(updatedActivity)
                             
                             // Update the associated reminder
-                            val reminder = repository.getAllReminders().find { it.associatedActivityId == activity.id }
+                            val reminder = repository.getReminderForActivity(activity.id)
                             if (reminder != null) {
                                 val updatedReminder = reminder.copy(
                                     name = reminderName,
@@ -496,7 +485,6 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
                                 repository.insertReminder(updatedReminder)
                                 
                                 // Reschedule the reminder
-                                ReminderScheduler.cancelReminder(requireContext(), reminder.id)
                                 ReminderScheduler.scheduleReminder(requireContext(), updatedReminder)
                             }
                             
@@ -514,58 +502,44 @@ class ActivitiesFragment : Fragment(R.layout.fragment_activities) {
     private fun showDeleteConfirmation(activity: Activity) {
         AlertDialog.Builder(requireContext())
             .setTitle("Delete Activity")
-            .setMessage("Are you sure you want to delete \"${activity.category}\"?\n\nThis action cannot be undone.")
+            .setMessage("Are you sure you want to delete \"${activity.category}\"?")
             .setPositiveButton("Delete") { _, _ ->
                 activitiesViewModel.deleteActivity(activity)
-                Toast.makeText(requireContext(), "Activity deleted", Toast.LENGTH_SHORT).show()
+                Snackbar.make(requireView(), "Activity deleted", Snackbar.LENGTH_LONG)
+                    .setAction("Undo") { activitiesViewModel.restoreActivity(activity) }
+                    .show()
             }
             .setNegativeButton("Cancel", null)
             .setIcon(android.R.drawable.ic_dialog_alert)
             .show()
     }
     
-    private fun filterActivities(query: String) {
-        var filtered = allActivities
-        
-        // Apply search filter
-        if (query.isNotBlank()) {
-            filtered = filtered.filter { activity ->
-                activity.description.contains(query, ignoreCase = true) ||
-                activity.category.contains(query, ignoreCase = true) ||
-                activity.notes.contains(query, ignoreCase = true)
-            }
-        }
-        
-        // Apply category filter
-        currentFilter?.let { filter ->
-            filtered = filtered.filter { it.category == filter }
-        }
-        
-        activitiesAdapter.submitList(filtered)
-    }
-    
     private fun showFilterDialog() {
-        val categories = allActivities.map { it.category }.distinct().toTypedArray()
-        
-        if (categories.isEmpty()) {
-            Toast.makeText(requireContext(), "No categories available", Toast.LENGTH_SHORT).show()
-            return
-        }
-        
-        val options = arrayOf("All Categories") + categories
-        var selectedIndex = if (currentFilter == null) 0 else options.indexOf(currentFilter) 
-        
-        AlertDialog.Builder(requireContext())
-            .setTitle("Filter by Category")
-            .setSingleChoiceItems(options, selectedIndex) { _, which ->
-                selectedIndex = which
-            }
-            .setPositiveButton("Apply") { _, _ ->
-                currentFilter = if (selectedIndex == 0) null else options[selectedIndex]
-                filterActivities(searchEditText.text.toString())
-                filterButton.text = if (currentFilter == null) "Filter" else "Filter: $currentFilter"
+        viewLifecycleOwner.lifecycleScope.launch {
+            val repository = requireContext().appContainer.repository
+            val categories = repository.getActivityCategories()
+            
+            if (categories.isEmpty()) {
+                Toast.makeText(requireContext(), "No categories available", Toast.LENGTH_SHORT).show()
+                return@launch
             }
-            .setNegativeButton("Cancel", null)
-            .show()
+            
+            val currentFilter = activitiesViewModel.categoryFilter
+            val options = arrayOf("All Categories") + categories.map { it.name }
+            var selectedIndex = categories.indexOfFirst { it.id == currentFilter?.id } + 1
+            
+            AlertDialog.Builder(requireContext())
+                .setTitle("Filter by Category")
+                .setSingleChoiceItems(options, selectedIndex) { _, which ->
+                    selectedIndex = which
+                }
+                .setPositiveButton("Apply") { _, _ ->
+                    val filter = if (selectedIndex == 0) null else categories[selectedIndex - 1]
+                    activitiesViewModel.setCategoryFilter(filter)
+                    filterButton.text = if (filter == null) "Filter" else "Filter: ${filter.name}"
+                }
+                .setNegativeButton("Cancel", null)
+                .show()
+        }
     }
 }
\ No newline at end of file
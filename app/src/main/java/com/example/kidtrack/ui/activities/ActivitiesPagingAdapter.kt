@@ -0,0 +1,29 @@
+package com.example.kidtrack.ui.activities
+
+import android.view.LayoutInflater
+import android.view.ViewGroup
+import androidx.paging.PagingDataAdapter
+import com.example.kidtrack.R
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
+
+/**
+ * Paged variant of [ActivitiesAdapter] for the full activities list.
+ * Rows are bound by the same view holder, only the backing list differs.
+ */
+class ActivitiesPagingAdapter(
+    private val onItemClick: (Activity) -> Unit = {},
+    private val onItemLongClick: (Activity) -> Unit = {}
+) : PagingDataAdapter<ActivityListItem, ActivitiesAdapter.ActivityViewHolder>(ActivitiesAdapter.ActivityDiffCallback()) {
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ActivitiesAdapter.ActivityViewHolder {
+        val view = LayoutInflater.from(parent.context)
+            .inflate(R.layout.item_activity, parent, false)
+        return ActivitiesAdapter.ActivityViewHolder(view, onItemClick, onItemLongClick)
+    }
+
+    override fun onBindViewHolder(holder: ActivitiesAdapter.ActivityViewHolder, position: Int) {
+        // Placeholders are disabled, so every position has a loaded item
+        getItem(position)?.let { holder.bind(it) }
+    }
+}
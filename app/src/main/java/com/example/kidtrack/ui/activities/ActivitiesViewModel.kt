@@ -5,19 +5,96 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
 import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.data.model.Category
 import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 
 class ActivitiesViewModel(private val repository: KidTrackRepository) : ViewModel() {
 
     companion object {
         private const val TAG = "ActivitiesViewModel"
+        private const val PAGE_SIZE = 30
+        // Wait for a pause in typing before running a search
+        private const val SEARCH_DEBOUNCE_MS = 300L
+        private const val SEARCH_RESULT_LIMIT = 100
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
     }
 
-    private val _activities = MutableLiveData<UiState<List<Activity>>>()
-    val activities: LiveData<UiState<List<Activity>>> get() = _activities
+    /**
+     * Search text and category currently applied to the paged list
+     */
+    data class ActivityFilter(
+        val searchQuery: String = "",
+        val category: Category? = null
+    )
+
+    private val _filter = MutableStateFlow(ActivityFilter())
+
+    val categoryFilter: Category? get() = _filter.value.category
+
+    /**
+     * Activities list for the current filter.
+     * Without a search the list is paged in date order and reloads itself when the table changes.
+     * A search is debounced and answered from the full-text index, best match first,
+     * and re-run when the table changes.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class, FlowPreview::class)
+    val pagedActivities: Flow<PagingData<ActivityListItem>> = _filter
+        .debounce { if (it.searchQuery.isBlank()) 0L else SEARCH_DEBOUNCE_MS }
+        .distinctUntilChanged()
+        .flatMapLatest { filter ->
+            if (filter.searchQuery.isBlank()) {
+                Pager(PagingConfig(pageSize = PAGE_SIZE, enablePlaceholders = false)) {
+                    repository.getActivitiesPagingSource(filter.category?.id)
+                }.flow
+            } else {
+                repository.observeSearchResults(filter.searchQuery, filter.category?.id, SEARCH_RESULT_LIMIT)
+                    .map { PagingData.from(it) }
+                    .catch { e ->
+                        Log.e(TAG, "Error searching activities", e)
+                        _operationStatus.value = UiState.Error(
+                            message = "Search failed: ${e.message}",
+                            exception = e
+                        )
+                        emit(PagingData.from(emptyList()))
+                    }
+            }
+        }
+        .cachedIn(viewModelScope)
+
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
+
+    /**
+     * Full activities list for screens that are not paged.
+     * Only queried while collected, then once per change to the activities table.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val activities: StateFlow<UiState<List<ActivityListItem>>> = reload
+        .flatMapLatest { repository.observeAllActivities().asUiState(TAG, "Failed to load activities") }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     private val _operationStatus = MutableLiveData<UiState<String>>()
     val operationStatus: LiveData<UiState<String>> get() = _operationStatus
@@ -28,7 +105,6 @@ class ActivitiesViewModel(private val repository: KidTrackRepository) : ViewMode
             try {
                 repository.insertActivity(activity)
                 _operationStatus.value = UiState.Success("Activity added successfully")
-                fetchActivities()
                 Log.d(TAG, "Activity added: ${activity.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error adding activity", e)
@@ -44,9 +120,8 @@ class ActivitiesViewModel(private val repository: KidTrackRepository) : ViewMode
         viewModelScope.launch {
             _operationStatus.value = UiState.Loading
             try {
-                repository.insertActivity(activity)
+                repository.updateActivity(activity)
                 _operationStatus.value = UiState.Success("Activity updated successfully")
-                fetchActivities()
                 Log.d(TAG, "Activity updated: ${activity.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error updating activity", e)
@@ -64,7 +139,6 @@ class ActivitiesViewModel(private val repository: KidTrackRepository) : ViewMode
             try {
                 repository.deleteActivity(activity)
                 _operationStatus.value = UiState.Success("Activity deleted successfully")
-                fetchActivities()
                 Log.d(TAG, "Activity deleted: ${activity.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error deleting activity", e)
@@ -76,25 +150,36 @@ class ActivitiesViewModel(private val repository: KidTrackRepository) : ViewMode
         }
     }
 
-    fun fetchActivities() {
+    /**
+     * Undo a delete
+     * @param activity The deleted activity
+     */
+    fun restoreActivity(activity: Activity) {
         viewModelScope.launch {
-            _activities.value = UiState.Loading
             try {
-                val activitiesList = repository.getAllActivities()
-                _activities.value = UiState.Success(activitiesList)
-                Log.d(TAG, "Fetched ${activitiesList.size} activities")
+                if (repository.restoreActivity(activity)) {
+                    Log.d(TAG, "Activity restored: ${activity.id}")
+                }
             } catch (e: Exception) {
-                Log.e(TAG, "Error fetching activities", e)
-                _activities.value = UiState.Error(
-                    message = "Failed to load activities: ${e.message}",
+                Log.e(TAG, "Error restoring activity", e)
+                _operationStatus.value = UiState.Error(
+                    message = "Failed to restore activity: ${e.message}",
                     exception = e
                 )
             }
         }
     }
 
+    fun setSearchQuery(query: String) {
+        _filter.update { it.copy(searchQuery = query) }
+    }
+
+    fun setCategoryFilter(category: Category?) {
+        _filter.update { it.copy(category = category) }
+    }
+
     fun retry() {
-        fetchActivities()
+        reload.value++
     }
 
     fun clearOperationStatus() {
@@ -0,0 +1,17 @@
+package com.example.kidtrack.ui.calendar
+
+import com.example.kidtrack.data.model.ActivityListItem
+
+/**
+ * The selected calendar day and its month's per-day activity counts
+ * @param epochDay Days since 1970-01-01
+ * @param dateTimestamp Local midnight at the start of the day
+ * @param activities Activities on the day, sorted by time
+ * @param monthDayCounts Number of activities on each day of the month that has any
+ */
+data class CalendarDay(
+    val epochDay: Long,
+    val dateTimestamp: Long,
+    val activities: List<ActivityListItem>,
+    val monthDayCounts: Map<Long, Int>
+)
@@ -6,18 +6,14 @@ import android.widget.CalendarView
 import android.widget.TextView
 import androidx.fragment.app.Fragment
 import androidx.lifecycle.ViewModelProvider
-import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
-import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.ui.activities.ActivitiesAdapter
-import com.example.kidtrack.ui.activities.ActivitiesViewModel
-import com.example.kidtrack.ui.activities.ActivitiesViewModelFactory
-import com.example.kidtrack.utils.DateTimeUtils
 import com.example.kidtrack.utils.UiState
-import kotlinx.coroutines.launch
+import com.example.kidtrack.utils.collectWhenStarted
+import com.google.android.material.snackbar.Snackbar
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -27,18 +23,16 @@ class CalendarFragment : Fragment(R.layout.fragment_calendar) {
     private lateinit var selectedDateText: TextView
     private lateinit var activitiesRecyclerView: RecyclerView
     private lateinit var noActivitiesText: TextView
-    private lateinit var activitiesViewModel: ActivitiesViewModel
+    private lateinit var viewModel: CalendarViewModel
     private lateinit var activitiesAdapter: ActivitiesAdapter
-    
-    private val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
+
     private val displayDateFormat = SimpleDateFormat("EEEE, MMMM d, yyyy", Locale.getDefault())
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
-        val factory = ActivitiesViewModelFactory(repository)
-        activitiesViewModel = ViewModelProvider(this, factory).get(ActivitiesViewModel::class.java)
+        val repository = requireContext().appContainer.repository
+        val factory = CalendarViewModelFactory(repository)
+        viewModel = ViewModelProvider(this, factory).get(CalendarViewModel::class.java)
     }
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
@@ -51,49 +45,45 @@ class CalendarFragment : Fragment(R.layout.fragment_calendar) {
 
         // Setup RecyclerView
         activitiesRecyclerView.layoutManager = LinearLayoutManager(requireContext())
-        activitiesAdapter = ActivitiesAdapter(viewLifecycleOwner, onItemClick = {}, onItemLongClick = {})
+        activitiesAdapter = ActivitiesAdapter(onItemClick = {}, onItemLongClick = {})
         activitiesRecyclerView.adapter = activitiesAdapter
 
-        // Setup calendar listener
+        // Setup calendar listener; the selected day is looked up in the month already in memory
         calendarView.setOnDateChangeListener { _, year, month, dayOfMonth ->
-            val calendar = Calendar.getInstance()
-            calendar.set(year, month, dayOfMonth)
-            updateActivitiesForDate(calendar.time)
+            viewModel.selectDate(year, month, dayOfMonth)
         }
 
-        // Observe activities
-        activitiesViewModel.activities.observe(viewLifecycleOwner) { _ ->
-            // Update current selected date
-            val calendar = Calendar.getInstance()
-            calendar.timeInMillis = calendarView.date
-            updateActivitiesForDate(calendar.time)
+        // Observe the selected day; re-emitted on selection and whenever activities change
+        viewModel.selectedDay.collectWhenStarted(viewLifecycleOwner) { state ->
+            when (state) {
+                is UiState.Loading -> Unit
+                is UiState.Success -> showDay(state.data)
+                is UiState.Error -> {
+                    Snackbar.make(view, state.message, Snackbar.LENGTH_LONG)
+                        .setAction("Retry") { viewModel.retry() }
+                        .show()
+                }
+            }
         }
-
-        // Load initial data for today
-        updateActivitiesForDate(Date())
-        activitiesViewModel.fetchActivities()
     }
 
-    private fun updateActivitiesForDate(date: Date) {
-        val dateString = dateFormat.format(date)
-        selectedDateText.text = displayDateFormat.format(date)
+    private fun showDay(day: CalendarDay) {
+        val dateText = displayDateFormat.format(Date(day.dateTimestamp))
+        // CalendarView cannot decorate individual days, so summarize the month under the date
+        val busyDays = day.monthDayCounts.size
+        selectedDateText.text = if (busyDays > 0) {
+            "$dateText\n${day.monthDayCounts.values.sum()} activities on $busyDays days this month"
+        } else {
+            dateText
+        }
 
-        lifecycleScope.launch {
-            val timestamp = DateTimeUtils.dateStringToTimestamp(dateString)
-            val activitiesState = activitiesViewModel.activities.value
-            val activities = when (activitiesState) {
-                is UiState.Success -> activitiesState.data.filter { it.dateTimestamp == timestamp }
-                else -> emptyList()
-            }
-            
-            if (activities.isEmpty()) {
-                activitiesRecyclerView.visibility = View.GONE
-                noActivitiesText.visibility = View.VISIBLE
-            } else {
-                activitiesRecyclerView.visibility = View.VISIBLE
-                noActivitiesText.visibility = View.GONE
-                activitiesAdapter.submitList(activities)
-            }
+        if (day.activities.isEmpty()) {
+            activitiesRecyclerView.visibility = View.GONE
+            noActivitiesText.visibility = View.VISIBLE
+        } else {
+            activitiesRecyclerView.visibility = View.VISIBLE
+            noActivitiesText.visibility = View.GONE
         }
+        activitiesAdapter.submitList(day.activities)
     }
 }
@@ -0,0 +1,37 @@
+package com.example.kidtrack.ui.calendar
+
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.utils.DateTimeUtils
+
+/**
+ * One month of activities, bucketed by local epoch day.
+ * @param key Month key, year * 12 + 0-based month
+ * @param days Activities on each day that has any, sorted by time
+ */
+class CalendarMonth(
+    val key: Int,
+    private val days: Map<Long, List<ActivityListItem>>
+) {
+
+    /**
+     * Number of activities on each day that has any, for day decorations
+     */
+    val dayCounts: Map<Long, Int> = days.mapValues { it.value.size }
+
+    /**
+     * Get the activities on a day of this month
+     * @param epochDay Days since 1970-01-01
+     * @return Activities on that day, sorted by time
+     */
+    fun activitiesOn(epochDay: Long): List<ActivityListItem> = days[epochDay] ?: emptyList()
+
+    companion object {
+        /**
+         * Bucket a month's activities by local day
+         * @param key Month key, year * 12 + 0-based month
+         * @param items The month's activities, sorted by date and time
+         */
+        fun of(key: Int, items: List<ActivityListItem>): CalendarMonth =
+            CalendarMonth(key, items.groupBy { DateTimeUtils.toEpochDay(it.activity.dateTimestamp) })
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.kidtrack.ui.calendar
+
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.job
+import java.util.Calendar
+import java.util.TimeZone
+import kotlin.math.abs
+
+/**
+ * Loads calendar data one month at a time and keeps a small window of months in memory.
+ *
+ * Showing a month loads it with a single range query, then prefetches the previous and
+ * next month in the background, so paging the calendar by one month never waits on the
+ * database. Months more than one away from the visible month are evicted, which bounds
+ * memory to three months. Once a month is loaded, looking up a day is a map read.
+ *
+ * Not thread-safe: use from a single thread, typically the main thread via viewModelScope.
+ *
+ * @param scope Scope for month loads and prefetches
+ * @param loadRange Loads activities dated between two timestamps, inclusive, sorted by date and time
+ */
+class CalendarMonthEngine(
+    private val scope: CoroutineScope,
+    private val loadRange: suspend (startTimestamp: Long, endTimestamp: Long) -> List<ActivityListItem>
+) {
+
+    companion object {
+        // Months kept on either side of the visible month
+        private const val WINDOW_RADIUS = 1
+
+        /**
+         * Get the month key of a day
+         * @param epochDay Days since 1970-01-01
+         * @return year * 12 + 0-based month
+         */
+        fun monthKeyOf(epochDay: Long): Int {
+            val utc = Calendar.getInstance(TimeZone.getTimeZone("UTC")).apply {
+                timeInMillis = epochDay * DateTimeUtils.DAY_MILLIS
+            }
+            return utc.get(Calendar.YEAR) * 12 + utc.get(Calendar.MONTH)
+        }
+
+        // Local midnight on the first day of the month
+        private fun startOfMonth(key: Int): Long = Calendar.getInstance().apply {
+            clear()
+            set(key / 12, key % 12, 1)
+        }.timeInMillis
+    }
+
+    private val months = HashMap<Int, CalendarMonth>()
+    private val loading = HashMap<Int, Deferred<CalendarMonth>>()
+    private var visibleKey: Int? = null
+    // Bumped by invalidate(), so loads started before it are not cached
+    private var generation = 0
+
+    /**
+     * Number of months currently held in memory
+     */
+    val cachedMonthCount: Int get() = months.size
+
+    /**
+     * Get a day, making its month the visible one
+     * @param epochDay Days since 1970-01-01
+     * @return The day's activities and its month's per-day counts
+     * @throws Exception if the month has to be loaded and the load fails
+     */
+    suspend fun getDay(epochDay: Long): CalendarDay {
+        val month = getMonth(monthKeyOf(epochDay))
+        return CalendarDay(
+            epochDay = epochDay,
+            dateTimestamp = DateTimeUtils.startOfEpochDay(epochDay),
+            activities = month.activitiesOn(epochDay),
+            monthDayCounts = month.dayCounts
+        )
+    }
+
+    /**
+     * Get a month and make it the visible one.
+     * Evicts months outside the new window and prefetches its neighbours.
+     * @param key year * 12 + 0-based month
+     * @return The month's activities, bucketed by day
+     * @throws Exception if the month has to be loaded and the load fails
+     */
+    suspend fun getMonth(key: Int): CalendarMonth {
+        visibleKey = key
+        months.keys.retainAll { inWindow(it) }
+        loading.entries.removeAll { (loadingKey, deferred) ->
+            val outside = !inWindow(loadingKey)
+            if (outside) deferred.cancel()
+            outside
+        }
+
+        val month = months[key] ?: load(key).await()
+        for (neighbour in key - WINDOW_RADIUS..key + WINDOW_RADIUS) {
+            if (neighbour !in months && neighbour !in loading) load(neighbour)
+        }
+        return month
+    }
+
+    /**
+     * Drop every cached month, for example after activities change.
+     * Loads already running are cancelled; the next lookup reloads from the database.
+     */
+    fun invalidate() {
+        generation++
+        loading.values.forEach { it.cancel() }
+        loading.clear()
+        months.clear()
+    }
+
+    private fun load(key: Int): Deferred<CalendarMonth> {
+        loading[key]?.let { return it }
+        val loadGeneration = generation
+        val deferred = scope.async(start = CoroutineStart.LAZY) {
+            try {
+                val start = startOfMonth(key)
+                val end = startOfMonth(key + 1) - 1
+                val month = CalendarMonth.of(key, loadRange(start, end))
+                if (loadGeneration == generation && inWindow(key)) {
+                    months[key] = month
+                }
+                month
+            } finally {
+                // An evicted load may finish after a newer load of the same month started
+                if (loading[key] === coroutineContext.job) loading.remove(key)
+            }
+        }
+        loading[key] = deferred
+        deferred.start()
+        return deferred
+    }
+
+    private fun inWindow(key: Int): Boolean {
+        val visible = visibleKey ?: return false
+        return abs(key - visible) <= WINDOW_RADIUS
+    }
+}
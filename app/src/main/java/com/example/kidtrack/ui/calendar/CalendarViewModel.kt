@@ -0,0 +1,71 @@
+package com.example.kidtrack.ui.calendar
+
+import android.util.Log
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.utils.DateTimeUtils
+import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.mapLatest
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.stateIn
+
+class CalendarViewModel(private val repository: KidTrackRepository) : ViewModel() {
+
+    companion object {
+        private const val TAG = "CalendarViewModel"
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
+    }
+
+    private val engine = CalendarMonthEngine(viewModelScope, repository::getActivityItemsInRange)
+
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
+
+    private val selectedEpochDay = MutableStateFlow(DateTimeUtils.getTodayEpochDay())
+
+    /**
+     * The selected day with its activities and its month's per-day counts.
+     * Cached months are dropped and reloaded whenever activities change.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val selectedDay: StateFlow<UiState<CalendarDay>> = reload
+        .flatMapLatest {
+            repository.observeActivityChanges()
+                .onEach { engine.invalidate() }
+                .combine(selectedEpochDay) { _, epochDay -> epochDay }
+                .mapLatest { epochDay -> engine.getDay(epochDay) }
+                .asUiState(TAG, "Failed to load calendar")
+        }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
+
+    /**
+     * Select a date on the calendar
+     * @param year Calendar year
+     * @param month Month, 0-based as in [java.util.Calendar.MONTH]
+     * @param dayOfMonth Day of the month, 1-based
+     */
+    fun selectDate(year: Int, month: Int, dayOfMonth: Int) {
+        selectedEpochDay.value = DateTimeUtils.epochDayOf(year, month, dayOfMonth)
+    }
+
+    /**
+     * Clear error state and retry loading
+     */
+    fun retry() {
+        reload.value++
+    }
+
+    override fun onCleared() {
+        super.onCleared()
+        Log.d(TAG, "ViewModel cleared")
+    }
+}
@@ -12,10 +12,10 @@ import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
 import com.example.kidtrack.databinding.FragmentDashboardBinding
-import com.example.kidtrack.data.database.KidTrackDatabase
-import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.ui.activities.ActivitiesAdapter
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.collectWhenStarted
 import com.google.android.material.snackbar.Snackbar
 
 class DashboardFragment : Fragment() {
@@ -35,8 +35,7 @@ class DashboardFragment : Fragment() {
         savedInstanceState: Bundle?
     ): View {
         _binding = FragmentDashboardBinding.inflate(inflater, container, false)
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         val factory = DashboardViewModelFactory(repository)
         viewModel = ViewModelProvider(this, factory).get(DashboardViewModel::class.java)
         return binding.root
@@ -48,9 +47,6 @@ class DashboardFragment : Fragment() {
         setupWelcomeCard()
         setupRecyclerViews(view)
         observeData(view)
-
-        // Fetch dashboard data
-        viewModel.loadDashboardData()
     }
 
     private fun setupWelcomeCard() {
@@ -75,7 +71,6 @@ class DashboardFragment : Fragment() {
     private fun setupRecyclerViews(view: View) {
         // Initialize upcoming activities RecyclerView
         upcomingActivitiesAdapter = ActivitiesAdapter(
-            viewLifecycleOwner,
             onItemClick = { activity ->
                 // Handle upcoming activity click
             })
@@ -85,7 +80,6 @@ class DashboardFragment : Fragment() {
 
         // Initialize overdue tasks RecyclerView
         overdueTasksAdapter = ActivitiesAdapter(
-            viewLifecycleOwner,
             onItemClick = { task ->
                 // Handle overdue task click
             })
@@ -99,7 +93,7 @@ class DashboardFragment : Fragment() {
         val overdueRecyclerView: RecyclerView = view.findViewById(R.id.recyclerViewOverdue)
 
         // Observe upcoming activities with UiState
-        viewModel.upcomingActivities.observe(viewLifecycleOwner) { state ->
+        viewModel.upcomingActivities.collectWhenStarted(viewLifecycleOwner) { state ->
             when (state) {
                 is UiState.Loading -> {
                     upcomingRecyclerView.visibility = View.GONE
@@ -130,7 +124,7 @@ class DashboardFragment : Fragment() {
         }
 
         // Observe overdue tasks with UiState
-        viewModel.overdueTasks.observe(viewLifecycleOwner) { state ->
+        viewModel.overdueTasks.collectWhenStarted(viewLifecycleOwner) { state ->
             when (state) {
                 is UiState.Loading -> {
                     overdueRecyclerView.visibility = View.GONE
@@ -1,91 +1,63 @@
 package com.example.kidtrack.ui.dashboard
 
 import android.util.Log
-import androidx.lifecycle.LiveData
-import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
 import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
-import kotlinx.coroutines.launch
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.stateIn
 
 class DashboardViewModel(private val repository: KidTrackRepository) : ViewModel() {
 
     companion object {
         private const val TAG = "DashboardViewModel"
+        // Number of items shown in each dashboard list
+        private const val PAGE_SIZE = 20
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
     }
 
-    private val _upcomingActivities = MutableLiveData<UiState<List<Activity>>>()
-    val upcomingActivities: LiveData<UiState<List<Activity>>> get() = _upcomingActivities
-
-    private val _overdueTasks = MutableLiveData<UiState<List<Activity>>>()
-    val overdueTasks: LiveData<UiState<List<Activity>>> get() = _overdueTasks
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
 
     /**
-     * Fetch upcoming activities (today and future)
+     * Upcoming activities (today and future), updated whenever activities change
      */
-    fun fetchUpcomingActivities() {
-        viewModelScope.launch {
-            _upcomingActivities.value = UiState.Loading
-            try {
-                val activities = repository.getUpcomingActivities()
-                _upcomingActivities.value = UiState.Success(activities)
-                Log.d(TAG, "Fetched ${activities.size} upcoming activities")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error fetching upcoming activities", e)
-                _upcomingActivities.value = UiState.Error(
-                    message = "Failed to load upcoming activities: ${e.message}",
-                    exception = e
-                )
-            }
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val upcomingActivities: StateFlow<UiState<List<ActivityListItem>>> = reload
+        .flatMapLatest {
+            repository.observeUpcomingActivities(PAGE_SIZE)
+                .asUiState(TAG, "Failed to load upcoming activities")
         }
-    }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     /**
-     * Fetch overdue tasks (past activities)
+     * Overdue tasks (past activities), most recent first, updated whenever activities change
      */
-    fun fetchOverdueTasks() {
-        viewModelScope.launch {
-            _overdueTasks.value = UiState.Loading
-            try {
-                val tasks = repository.getOverdueTasks()
-                _overdueTasks.value = UiState.Success(tasks)
-                Log.d(TAG, "Fetched ${tasks.size} overdue tasks")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error fetching overdue tasks", e)
-                _overdueTasks.value = UiState.Error(
-                    message = "Failed to load overdue tasks: ${e.message}",
-                    exception = e
-                )
-            }
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val overdueTasks: StateFlow<UiState<List<ActivityListItem>>> = reload
+        .flatMapLatest {
+            repository.observeOverdueTasks(PAGE_SIZE)
+                .asUiState(TAG, "Failed to load overdue tasks")
         }
-    }
-
-    /**
-     * Update all dashboard data
-     */
-    fun updateActivities() {
-        fetchUpcomingActivities()
-        fetchOverdueTasks()
-    }
-    
-    /**
-     * Load all dashboard data
-     */
-    fun loadDashboardData() {
-        updateActivities()
-    }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     /**
      * Clear error state and retry loading
      */
     fun retry() {
-        loadDashboardData()
+        reload.value++
     }
 
     override fun onCleared() {
         super.onCleared()
         Log.d(TAG, "ViewModel cleared")
     }
-}
\ No newline at end of file
+}
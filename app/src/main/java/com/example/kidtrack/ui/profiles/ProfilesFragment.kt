@@ -15,10 +15,10 @@ import androidx.appcompat.app.AlertDialog
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.data.model.UserProfile
-import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.collectWhenStarted
 import com.example.kidtrack.utils.ValidationHelper
 import com.example.kidtrack.utils.ValidationResult
 import com.google.android.material.button.MaterialButton
@@ -54,8 +54,7 @@ class ProfilesFragment : Fragment() {
         inflater: LayoutInflater, container: ViewGroup?,
         savedInstanceState: Bundle?
     ): View? {
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         val factory = ProfilesViewModelFactory(repository)
         viewModel = ViewModelProvider(this, factory).get(ProfilesViewModel::class.java)
         
@@ -81,7 +80,7 @@ class ProfilesFragment : Fragment() {
         setupEmptyState()
         
         // Observe profiles data with UiState
-        viewModel.profiles.observe(viewLifecycleOwner) { state ->
+        viewModel.profiles.collectWhenStarted(viewLifecycleOwner) { state ->
             when (state) {
                 is UiState.Loading -> {
                     profilesRecyclerView.visibility = View.GONE
@@ -119,9 +118,6 @@ class ProfilesFragment : Fragment() {
         addProfileButton.setOnClickListener {
             showAddProfileDialog()
         }
-        
-        // Fetch profiles from database
-        viewModel.fetchProfiles()
     }
 
     private fun setupEmptyState() {
@@ -273,9 +269,15 @@ class ProfilesFragment : Fragment() {
     private fun showDeleteConfirmation(profile: UserProfile) {
         AlertDialog.Builder(requireContext())
             .setTitle("Delete Profile")
-            .setMessage("Are you sure you want to delete \"${profile.name}\"'s profile?\n\nThis action cannot be undone.")
+            .setMessage("Are you sure you want to delete \"${profile.name}\"'s profile and all of their activities and reminders?")
             .setPositiveButton("Delete") { _, _ ->
+                // The reminder alarm follows the reminders table, so neither needs scheduling here
                 viewModel.deleteProfile(profile)
+                Snackbar.make(requireView(), "Profile deleted", Snackbar.LENGTH_LONG)
+                    .setAction("Undo") {
+                        viewModel.restoreProfile(profile)
+                    }
+                    .show()
             }
             .setNegativeButton("Cancel", null)
             .setIcon(android.R.drawable.ic_dialog_alert)
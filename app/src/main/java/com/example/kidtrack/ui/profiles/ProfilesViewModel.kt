@@ -8,44 +8,43 @@ import androidx.lifecycle.viewModelScope
 import com.example.kidtrack.data.model.UserProfile
 import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
 
 class ProfilesViewModel(private val repository: KidTrackRepository) : ViewModel() {
 
     companion object {
         private const val TAG = "ProfilesViewModel"
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
     }
 
-    private val _profiles = MutableLiveData<UiState<List<UserProfile>>>()
-    val profiles: LiveData<UiState<List<UserProfile>>> get() = _profiles
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
+
+    /**
+     * All profiles, re-queried once per change to the profiles table
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val profiles: StateFlow<UiState<List<UserProfile>>> = reload
+        .flatMapLatest { repository.observeAllUserProfiles().asUiState(TAG, "Failed to load profiles") }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     private val _operationStatus = MutableLiveData<UiState<String>>()
     val operationStatus: LiveData<UiState<String>> get() = _operationStatus
 
-    fun fetchProfiles() {
-        viewModelScope.launch {
-            _profiles.value = UiState.Loading
-            try {
-                val profilesList = repository.getAllUserProfiles()
-                _profiles.value = UiState.Success(profilesList)
-                Log.d(TAG, "Fetched ${profilesList.size} profiles")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error fetching profiles", e)
-                _profiles.value = UiState.Error(
-                    message = "Failed to load profiles: ${e.message}",
-                    exception = e
-                )
-            }
-        }
-    }
-
     fun addProfile(profile: UserProfile) {
         viewModelScope.launch {
             _operationStatus.value = UiState.Loading
             try {
                 repository.insertUserProfile(profile)
                 _operationStatus.value = UiState.Success("Profile added successfully")
-                fetchProfiles()
                 Log.d(TAG, "Profile added: ${profile.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error adding profile", e)
@@ -63,7 +62,6 @@ class ProfilesViewModel(private val repository: KidTrackRepository) : ViewModel(
             try {
                 repository.insertUserProfile(profile)
                 _operationStatus.value = UiState.Success("Profile updated successfully")
-                fetchProfiles()
                 Log.d(TAG, "Profile updated: ${profile.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error updating profile", e)
@@ -75,13 +73,16 @@ class ProfilesViewModel(private val repository: KidTrackRepository) : ViewModel(
         }
     }
 
+    /**
+     * Delete a profile with its activities and reminders
+     * @param profile The profile to delete
+     */
     fun deleteProfile(profile: UserProfile) {
         viewModelScope.launch {
             _operationStatus.value = UiState.Loading
             try {
                 repository.deleteUserProfile(profile)
                 _operationStatus.value = UiState.Success("Profile and associated data deleted successfully")
-                fetchProfiles()
                 Log.d(TAG, "Profile deleted: ${profile.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error deleting profile", e)
@@ -93,8 +94,27 @@ class ProfilesViewModel(private val repository: KidTrackRepository) : ViewModel(
         }
     }
 
+    /**
+     * Undo a delete, bringing back the profile's activities and reminders too
+     * @param profile The deleted profile
+     */
+    fun restoreProfile(profile: UserProfile) {
+        viewModelScope.launch {
+            try {
+                repository.restoreUserProfile(profile)
+                Log.d(TAG, "Profile restored: ${profile.id}")
+            } catch (e: Exception) {
+                Log.e(TAG, "Error restoring profile", e)
+                _operationStatus.value = UiState.Error(
+                    message = "Failed to restore profile: ${e.message}",
+                    exception = e
+                )
+            }
+        }
+    }
+
     fun retry() {
-        fetchProfiles()
+        reload.value++
     }
 
     fun clearOperationStatus() {
@@ -18,12 +18,12 @@ import androidx.appcompat.app.AlertDialog
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.data.model.Reminder
-import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.DateTimeUtils
 import com.example.kidtrack.utils.ReminderScheduler
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.collectWhenStarted
 import com.example.kidtrack.utils.ValidationHelper
 import com.example.kidtrack.utils.ValidationResult
 import com.google.android.material.button.MaterialButton
@@ -45,8 +45,7 @@ class RemindersFragment : Fragment() {
         inflater: LayoutInflater, container: ViewGroup?,
         savedInstanceState: Bundle?
     ): View? {
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         val factory = RemindersViewModelFactory(repository)
         remindersViewModel = ViewModelProvider(this, factory).get(RemindersViewModel::class.java)
         
@@ -72,7 +71,7 @@ class RemindersFragment : Fragment() {
         setupEmptyState()
         
         // Observe reminders data with UiState
-        remindersViewModel.reminders.observe(viewLifecycleOwner) { state ->
+        remindersViewModel.reminders.collectWhenStarted(viewLifecycleOwner) { state ->
             when (state) {
                 is UiState.Loading -> {
                     remindersRecyclerView.visibility = View.GONE
@@ -110,9 +109,6 @@ class RemindersFragment : Fragment() {
         addReminderButton.setOnClickListener {
             showAddReminderDialog()
         }
-        
-        // Fetch reminders from database
-        remindersViewModel.fetchReminders()
     }
 
     private fun setupEmptyState() {
@@ -135,8 +131,7 @@ class RemindersFragment : Fragment() {
 
     private fun showAddReminderDialog() {
         // Fetch activities and profiles from repository
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         
         // Use coroutine to fetch data
         viewLifecycleOwner.lifecycleScope.launch {
@@ -247,17 +242,10 @@ class RemindersFragment : Fragment() {
                         profileId = profileId,
                         snoozeEnabled = snoozeEnabled
                     )
-                    remindersViewModel.addReminder(reminder)
-                    
-                    // Schedule the notification
-                    viewLifecycleOwner.lifecycleScope.launch {
-                        // Wait a bit for the reminder to be inserted and get its ID
-                        kotlinx.coroutines.delay(100)
-                        val allReminders = repository.getAllReminders()
-                        val newReminder = allReminders.maxByOrNull { it.id }
-                        if (newReminder != null) {
-                            ReminderScheduler.scheduleReminder(requireContext(), newReminder)
-                        }
+                    // Schedule the notification once the reminder has its id
+                    val appContext = requireContext().applicationContext
+                    remindersViewModel.addReminder(reminder) { saved ->
+                        ReminderScheduler.scheduleReminder(appContext, saved)
                     }
                 }
                 .setNegativeButton("Cancel", null)
@@ -267,8 +255,7 @@ class RemindersFragment : Fragment() {
 
     private fun showEditReminderDialog(reminder: Reminder) {
         // Fetch activities and profiles from repository to populate dropdown
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         
         viewLifecycleOwner.lifecycleScope.launch {
             val profiles = repository.getAllUserProfiles()
@@ -306,7 +293,7 @@ class RemindersFragment : Fragment() {
             profileInput.setAdapter(profileAdapter)
             
             // Pre-select current profile
-            val currentProfile = profiles.find { it.id == reminder.profileId }
+            val currentProfile = repository.getUserProfileById(reminder.profileId)
             if (currentProfile != null) {
                 profileInput.setText("${currentProfile.name} (${currentProfile.age} years)", false)
             }
@@ -399,8 +386,7 @@ class RemindersFragment : Fragment() {
                     )
                     remindersViewModel.updateReminder(updatedReminder)
                     
-                    // Cancel old alarm and schedule new one
-                    ReminderScheduler.cancelReminder(requireContext(), reminder.id)
+                    // The reminder alarm follows the saved fire time
                     ReminderScheduler.scheduleReminder(requireContext(), updatedReminder)
                 }
                 .setNegativeButton("Cancel", null)
@@ -412,12 +398,20 @@ class RemindersFragment : Fragment() {
         val timeDisplay = DateTimeUtils.minutesToTimeString(reminder.timeMinutes)
         AlertDialog.Builder(requireContext())
             .setTitle("Delete Reminder")
-            .setMessage("Are you sure you want to delete this reminder?\n\nTime: $timeDisplay\nFrequency: ${reminder.frequency}\n\nThis action cannot be undone.")
+            .setMessage("Are you sure you want to delete this reminder?\n\nTime: $timeDisplay\nFrequency: ${reminder.frequency}")
             .setPositiveButton("Delete") { _, _ ->
                 // Cancel the scheduled alarm
-                ReminderScheduler.cancelReminder(requireContext(), reminder.id)
+                val appContext = requireContext().applicationContext
+                ReminderScheduler.cancelReminder(appContext, reminder.id)
                 
                 remindersViewModel.deleteReminder(reminder)
+                Snackbar.make(requireView(), "Reminder deleted", Snackbar.LENGTH_LONG)
+                    .setAction("Undo") {
+                        remindersViewModel.restoreReminder(reminder) { restored ->
+                            ReminderScheduler.scheduleReminder(appContext, restored)
+                        }
+                    }
+                    .show()
             }
             .setNegativeButton("Cancel", null)
             .setIcon(android.R.drawable.ic_dialog_alert)
@@ -8,45 +8,50 @@ import androidx.lifecycle.viewModelScope
 import com.example.kidtrack.data.model.Reminder
 import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
 
 class RemindersViewModel(private val repository: KidTrackRepository) : ViewModel() {
 
     companion object {
         private const val TAG = "RemindersViewModel"
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
     }
 
-    private val _reminders = MutableLiveData<UiState<List<Reminder>>>()
-    val reminders: LiveData<UiState<List<Reminder>>> get() = _reminders
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
+
+    /**
+     * All reminders, re-queried once per change to the reminders table
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val reminders: StateFlow<UiState<List<Reminder>>> = reload
+        .flatMapLatest { repository.observeAllReminders().asUiState(TAG, "Failed to load reminders") }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     private val _operationStatus = MutableLiveData<UiState<String>>()
     val operationStatus: LiveData<UiState<String>> get() = _operationStatus
 
-    fun fetchReminders() {
-        viewModelScope.launch {
-            _reminders.value = UiState.Loading
-            try {
-                val remindersList = repository.getAllReminders()
-                _reminders.value = UiState.Success(remindersList)
-                Log.d(TAG, "Fetched ${remindersList.size} reminders")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error fetching reminders", e)
-                _reminders.value = UiState.Error(
-                    message = "Failed to load reminders: ${e.message}",
-                    exception = e
-                )
-            }
-        }
-    }
-
-    fun addReminder(reminder: Reminder) {
+    /**
+     * Add a reminder
+     * @param reminder The reminder to add
+     * @param onAdded Called with the saved reminder, including its new id
+     */
+    fun addReminder(reminder: Reminder, onAdded: (Reminder) -> Unit = {}) {
         viewModelScope.launch {
             _operationStatus.value = UiState.Loading
             try {
-                repository.insertReminder(reminder)
+                val id = repository.insertReminder(reminder)
                 _operationStatus.value = UiState.Success("Reminder added successfully")
-                fetchReminders()
-                Log.d(TAG, "Reminder added: ${reminder.id}")
+                Log.d(TAG, "Reminder added: $id")
+                onAdded(reminder.copy(id = id))
             } catch (e: Exception) {
                 Log.e(TAG, "Error adding reminder", e)
                 _operationStatus.value = UiState.Error(
@@ -63,7 +68,6 @@ class RemindersViewModel(private val repository: KidTrackRepository) : ViewModel
             try {
                 repository.insertReminder(reminder)
                 _operationStatus.value = UiState.Success("Reminder updated successfully")
-                fetchReminders()
                 Log.d(TAG, "Reminder updated: ${reminder.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error updating reminder", e)
@@ -81,7 +85,6 @@ class RemindersViewModel(private val repository: KidTrackRepository) : ViewModel
             try {
                 repository.deleteReminder(reminder)
                 _operationStatus.value = UiState.Success("Reminder deleted successfully")
-                fetchReminders()
                 Log.d(TAG, "Reminder deleted: ${reminder.id}")
             } catch (e: Exception) {
                 Log.e(TAG, "Error deleting reminder", e)
@@ -93,12 +96,34 @@ class RemindersViewModel(private val repository: KidTrackRepository) : ViewModel
         }
     }
 
+    /**
+     * Undo a delete
+     * @param reminder The deleted reminder
+     * @param onRestored Called if the reminder was restored, to schedule its alarm again
+     */
+    fun restoreReminder(reminder: Reminder, onRestored: (Reminder) -> Unit = {}) {
+        viewModelScope.launch {
+            try {
+                if (repository.restoreReminder(reminder)) {
+                    Log.d(TAG, "Reminder restored: ${reminder.id}")
+                    onRestored(reminder)
+                }
+            } catch (e: Exception) {
+                Log.e(TAG, "Error restoring reminder", e)
+                _operationStatus.value = UiState.Error(
+                    message = "Failed to restore reminder: ${e.message}",
+                    exception = e
+                )
+            }
+        }
+    }
+
     fun removeReminder(reminder: Reminder) {
         deleteReminder(reminder)
     }
 
     fun retry() {
-        fetchReminders()
+        reload.value++
     }
 
     fun clearOperationStatus() {
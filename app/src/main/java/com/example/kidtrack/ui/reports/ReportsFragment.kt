@@ -12,11 +12,11 @@ import androidx.appcompat.app.AlertDialog
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.kidtrack.R
-import com.example.kidtrack.data.database.KidTrackDatabase
-import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.appContainer
 import com.example.kidtrack.ui.activities.ActivitiesAdapter
 import com.example.kidtrack.utils.ReportExporter
 import com.example.kidtrack.utils.UiState
+import com.example.kidtrack.utils.collectWhenStarted
 import com.github.mikephil.charting.charts.BarChart
 import com.github.mikephil.charting.charts.PieChart
 import com.github.mikephil.charting.data.*
@@ -46,8 +46,7 @@ class ReportsFragment : Fragment() {
         inflater: LayoutInflater, container: ViewGroup?,
         savedInstanceState: Bundle?
     ): View? {
-        val database = KidTrackDatabase.getDatabase(requireContext())
-        val repository = KidTrackRepository(database)
+        val repository = requireContext().appContainer.repository
         val factory = ReportsViewModelFactory(repository)
         reportsViewModel = ViewModelProvider(this, factory).get(ReportsViewModel::class.java)
         
@@ -82,7 +81,6 @@ class ReportsFragment : Fragment() {
         reportsRecyclerView = view.findViewById(R.id.reports_recycler_view)
         reportsRecyclerView.layoutManager = LinearLayoutManager(requireContext())
         activitiesAdapter = ActivitiesAdapter(
-            viewLifecycleOwner,
             onItemClick = { activity ->
             // Handle activity click
         })
@@ -100,7 +98,7 @@ class ReportsFragment : Fragment() {
         }
 
         // Observe statistics with UiState
-        reportsViewModel.statistics.observe(viewLifecycleOwner) { state ->
+        reportsViewModel.statistics.collectWhenStarted(viewLifecycleOwner) { state ->
             when (state) {
                 is UiState.Loading -> {
                     hideCharts()
@@ -117,9 +115,6 @@ class ReportsFragment : Fragment() {
                 }
             }
         }
-
-        // Load initial data
-        reportsViewModel.loadStatistics()
     }
 
     private fun updateStatistics(stats: com.example.kidtrack.data.model.ReportStatistics) {
@@ -324,7 +319,7 @@ class ReportsFragment : Fragment() {
             val file = ReportExporter.exportReportAsPdf(
                 requireContext(),
                 stats,
-                stats.recentActivities
+                stats.recentActivities.map { it.activity }
             )
             if (file != null) {
                 ReportExporter.shareFile(requireContext(), file, "application/pdf")
@@ -342,10 +337,4 @@ class ReportsFragment : Fragment() {
             Toast.makeText(requireContext(), "Failed to generate image", Toast.LENGTH_SHORT).show()
         }
     }
-
-    override fun onResume() {
-        super.onResume()
-        // Refresh statistics when returning to fragment
-        reportsViewModel.loadStatistics()
-    }
 }
\ No newline at end of file
@@ -1,68 +1,58 @@
 package com.example.kidtrack.ui.reports
 
 import android.util.Log
-import androidx.lifecycle.LiveData
-import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.example.kidtrack.data.model.ReportStatistics
 import com.example.kidtrack.data.repository.KidTrackRepository
 import com.example.kidtrack.utils.UiState
-import kotlinx.coroutines.launch
+import com.example.kidtrack.utils.asUiState
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.stateIn
 
 class ReportsViewModel(private val repository: KidTrackRepository) : ViewModel() {
 
     companion object {
         private const val TAG = "ReportsViewModel"
+        // Keep observing briefly across configuration changes
+        private const val STOP_TIMEOUT_MS = 5000L
     }
 
-    private val _statistics = MutableLiveData<UiState<ReportStatistics>>()
-    val statistics: LiveData<UiState<ReportStatistics>> get() = _statistics
-
-    private val _weeklySummary = MutableLiveData<UiState<Map<String, Any>>>()
-    val weeklySummary: LiveData<UiState<Map<String, Any>>> get() = _weeklySummary
-
-    fun loadStatistics() {
-        viewModelScope.launch {
-            _statistics.value = UiState.Loading
-            try {
-                val stats = repository.getReportStatistics()
-                _statistics.value = UiState.Success(stats)
-                Log.d(TAG, "Statistics loaded successfully")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error loading statistics", e)
-                _statistics.value = UiState.Error(
-                    message = "Failed to load statistics: ${e.message}",
-                    exception = e
-                )
-            }
+    // Bumped by retry() to resubscribe after an error
+    private val reload = MutableStateFlow(0)
+
+    /**
+     * Report statistics, recomputed whenever activities change
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val statistics: StateFlow<UiState<ReportStatistics>> = reload
+        .flatMapLatest {
+            repository.observeReportStatistics()
+                .asUiState(TAG, "Failed to load statistics")
         }
-    }
-
-    fun generateWeeklySummary() {
-        viewModelScope.launch {
-            _weeklySummary.value = UiState.Loading
-            try {
-                val summary = repository.getWeeklySummary()
-                _weeklySummary.value = UiState.Success(summary)
-                Log.d(TAG, "Weekly summary generated successfully")
-            } catch (e: Exception) {
-                Log.e(TAG, "Error generating weekly summary", e)
-                _weeklySummary.value = UiState.Error(
-                    message = "Failed to generate weekly summary: ${e.message}",
-                    exception = e
-                )
-            }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
+
+    /**
+     * Weekly summary, recomputed whenever activities change
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val weeklySummary: StateFlow<UiState<Map<String, Any>>> = reload
+        .flatMapLatest {
+            repository.observeWeeklySummary()
+                .asUiState(TAG, "Failed to generate weekly summary")
         }
-    }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), UiState.Loading)
 
     fun retry() {
-        loadStatistics()
-        generateWeeklySummary()
+        reload.value++
     }
 
     override fun onCleared() {
         super.onCleared()
         Log.d(TAG, "ViewModel cleared")
     }
-}
\ No newline at end of file
+}
@@ -21,6 +21,9 @@ object DateTimeUtils {
     // Display time format: hh:mm a (e.g., 02:30 PM)
     private const val DISPLAY_TIME_FORMAT = "hh:mm a"
 
+    // Milliseconds in a calendar day without a DST change
+    const val DAY_MILLIS = 24L * 60 * 60 * 1000
+
     /**
      * Get current date as timestamp (milliseconds)
      */
@@ -119,6 +122,64 @@ object DateTimeUtils {
         return timestampToDateString(getCurrentTimestamp())
     }
 
+    /**
+     * Get the start of today timestamp (00:00:00 local time)
+     * @return Timestamp for the start of the current day
+     */
+    fun getStartOfTodayTimestamp(): Long {
+        return Calendar.getInstance().apply {
+            set(Calendar.HOUR_OF_DAY, 0)
+            set(Calendar.MINUTE, 0)
+            set(Calendar.SECOND, 0)
+            set(Calendar.MILLISECOND, 0)
+        }.timeInMillis
+    }
+
+    /**
+     * Get the local calendar day of a timestamp as days since 1970-01-01
+     * @param timestamp Timestamp in milliseconds
+     * @return Epoch day in the device time zone
+     */
+    fun toEpochDay(timestamp: Long): Long {
+        val offset = TimeZone.getDefault().getOffset(timestamp)
+        return (timestamp + offset).floorDiv(DAY_MILLIS)
+    }
+
+    /**
+     * Get today's local calendar day as days since 1970-01-01
+     */
+    fun getTodayEpochDay(): Long = toEpochDay(getCurrentTimestamp())
+
+    /**
+     * Get the epoch day of a calendar date
+     * @param year Calendar year
+     * @param month Month, 0-based as in [Calendar.MONTH]
+     * @param dayOfMonth Day of the month, 1-based
+     * @return Days since 1970-01-01
+     */
+    fun epochDayOf(year: Int, month: Int, dayOfMonth: Int): Long {
+        val utc = Calendar.getInstance(TimeZone.getTimeZone("UTC")).apply {
+            clear()
+            set(year, month, dayOfMonth)
+        }
+        return utc.timeInMillis.floorDiv(DAY_MILLIS)
+    }
+
+    /**
+     * Get the local midnight that starts an epoch day
+     * @param epochDay Days since 1970-01-01
+     * @return Timestamp of 00:00 on that day in the device time zone
+     */
+    fun startOfEpochDay(epochDay: Long): Long {
+        val utc = Calendar.getInstance(TimeZone.getTimeZone("UTC")).apply {
+            timeInMillis = epochDay * DAY_MILLIS
+        }
+        return Calendar.getInstance().apply {
+            clear()
+            set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH))
+        }.timeInMillis
+    }
+
     /**
      * Check if a timestamp is today
      * @param timestamp Timestamp to check
@@ -142,14 +203,7 @@ object DateTimeUtils {
      * @return true if the timestamp is before today
      */
     fun isPast(timestamp: Long): Boolean {
-        val today = Calendar.getInstance().apply {
-            set(Calendar.HOUR_OF_DAY, 0)
-            set(Calendar.MINUTE, 0)
-            set(Calendar.SECOND, 0)
-            set(Calendar.MILLISECOND, 0)
-        }.timeInMillis
-        
-        return timestamp < today
+        return timestamp < getStartOfTodayTimestamp()
     }
 
     /**
@@ -197,6 +251,42 @@ object DateTimeUtils {
         }.timeInMillis
     }
 
+    /**
+     * Get the time left until local midnight, when results about "today" or "this week" go stale
+     * @return Milliseconds until the start of tomorrow
+     */
+    fun getMillisUntilTomorrow(): Long {
+        return startOfEpochDay(getTodayEpochDay() + 1) - System.currentTimeMillis()
+    }
+
+    /**
+     * Get the start of month timestamp (1st at 00:00:00)
+     * @return Timestamp for the start of the current month
+     */
+    fun getStartOfMonthTimestamp(): Long {
+        return Calendar.getInstance().apply {
+            set(Calendar.DAY_OF_MONTH, 1)
+            set(Calendar.HOUR_OF_DAY, 0)
+            set(Calendar.MINUTE, 0)
+            set(Calendar.SECOND, 0)
+            set(Calendar.MILLISECOND, 0)
+        }.timeInMillis
+    }
+
+    /**
+     * Get the end of month timestamp (last day at 23:59:59)
+     * @return Timestamp for the end of the current month
+     */
+    fun getEndOfMonthTimestamp(): Long {
+        return Calendar.getInstance().apply {
+            set(Calendar.DAY_OF_MONTH, getActualMaximum(Calendar.DAY_OF_MONTH))
+            set(Calendar.HOUR_OF_DAY, 23)
+            set(Calendar.MINUTE, 59)
+            set(Calendar.SECOND, 59)
+            set(Calendar.MILLISECOND, 999)
+        }.timeInMillis
+    }
+
     /**
      * Combine date and time strings into a single timestamp
      * @param dateString Date in yyyy-MM-dd format
@@ -0,0 +1,40 @@
+package com.example.kidtrack.utils
+
+import android.util.Log
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+
+/**
+ * Wrap a data flow in UiState: unchanged results are dropped, every new
+ * result becomes Success, and a failure ends the flow with Error.
+ * @param tag Log tag of the caller
+ * @param errorMessage Message prefix shown to the user on failure
+ */
+fun <T> Flow<T>.asUiState(tag: String, errorMessage: String): Flow<UiState<T>> =
+    distinctUntilChanged()
+        .map<T, UiState<T>> { UiState.Success(it) }
+        .catch { e ->
+            Log.e(tag, errorMessage, e)
+            emit(UiState.Error(message = "$errorMessage: ${e.message}", exception = e))
+        }
+
+/**
+ * Collect the flow while the owner is at least STARTED.
+ * Collection stops in the background, which also stops any upstream database observers.
+ * @param owner Lifecycle owner, typically a fragment's viewLifecycleOwner
+ * @param action Called with each value
+ */
+fun <T> Flow<T>.collectWhenStarted(owner: LifecycleOwner, action: suspend (T) -> Unit) {
+    owner.lifecycleScope.launch {
+        owner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+            collect { action(it) }
+        }
+    }
+}
@@ -23,6 +23,12 @@ object NotificationHelper {
     private const val CHANNEL_ID = "kidtrack_channel"
     private const val CHANNEL_NAME = "KidTrack Notifications"
     private const val CHANNEL_DESCRIPTION = "Notifications for KidTrack activities and reminders"
+    private val VIBRATION_PATTERN = longArrayOf(0, 500, 250, 500)
+
+    private class Templates(val contentIntent: PendingIntent, val soundUri: Uri)
+
+    @Volatile
+    private var cachedTemplates: Templates? = null
 
     fun createNotificationChannel(context: Context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -33,7 +39,7 @@ object NotificationHelper {
             ).apply {
                 description = CHANNEL_DESCRIPTION
                 enableVibration(true)
-                vibrationPattern = longArrayOf(0, 500, 250, 500)
+                vibrationPattern = VIBRATION_PATTERN
                 
                 // Set custom sound
                 val soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION)
@@ -50,37 +56,30 @@ object NotificationHelper {
 
     fun sendNotification(context: Context, title: String, message: String, reminderId: Long = 0, activityId: Long = 0, snoozeEnabled: Boolean = true) {
         // Check for notification permission on Android 13+
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            if (ContextCompat.checkSelfPermission(
-                    context,
-                    Manifest.permission.POST_NOTIFICATIONS
-                ) != PackageManager.PERMISSION_GRANTED
-            ) {
-                // Permission not granted, cannot send notification
-                return
-            }
+        if (!hasNotificationPermission(context)) {
+            // Permission not granted, cannot send notification
+            return
         }
 
-        val intent = Intent(context, MainActivity::class.java).apply {
-            flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
-        }
-        val pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE)
+        val notification = reminderBuilder(context, title, message, reminderId, activityId, snoozeEnabled).build()
 
-        // Create snooze action
-        val snoozeIntent = Intent(context, ReminderReceiver::class.java).apply {
-            action = "ACTION_SNOOZE"
-            putExtra("REMINDER_ID", reminderId)
-            putExtra("ACTIVITY_ID", activityId)
-        }
-        val snoozePendingIntent = PendingIntent.getBroadcast(
-            context,
-            reminderId.toInt() + 10000, // Unique request code
-            snoozeIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
+        val notificationManager = NotificationManagerCompat.from(context)
+        notificationManager.notify(reminderId.toInt(), notification)
+    }
 
-        // Get default notification sound
-        val soundUri: Uri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION)
+    /**
+     * Builder for a reminder notification, from the shared templates.
+     * Only the snooze action is created per reminder.
+     * @param context Context
+     * @param title Notification title
+     * @param message Notification text
+     * @param reminderId Reminder the notification is for, or 0
+     * @param activityId Activity the reminder belongs to
+     * @param snoozeEnabled Whether to add the snooze action
+     * @return Builder ready to build, or to place in a group
+     */
+    fun reminderBuilder(context: Context, title: String, message: String, reminderId: Long = 0, activityId: Long = 0, snoozeEnabled: Boolean = true): NotificationCompat.Builder {
+        val templates = templates(context)
 
         val builder = NotificationCompat.Builder(context, CHANNEL_ID)
         builder.setSmallIcon(android.R.drawable.ic_dialog_info)
@@ -88,14 +87,26 @@ object NotificationHelper {
         builder.setContentText(message)
         builder.setStyle(NotificationCompat.BigTextStyle().bigText(message))
         builder.setPriority(NotificationCompat.PRIORITY_HIGH)
-        builder.setContentIntent(pendingIntent)
+        builder.setContentIntent(templates.contentIntent)
         builder.setAutoCancel(true)
-        builder.setSound(soundUri)
-        builder.setVibrate(longArrayOf(0, 500, 250, 500))
+        builder.setSound(templates.soundUri)
+        builder.setVibrate(VIBRATION_PATTERN)
         builder.setCategory(NotificationCompat.CATEGORY_REMINDER)
-        
+
         // Add snooze action button only if enabled
         if (reminderId > 0 && snoozeEnabled) {
+            // Create snooze action
+            val snoozeIntent = Intent(context, ReminderReceiver::class.java).apply {
+                action = "ACTION_SNOOZE"
+                putExtra("REMINDER_ID", reminderId)
+                putExtra("ACTIVITY_ID", activityId)
+            }
+            val snoozePendingIntent = PendingIntent.getBroadcast(
+                context,
+                reminderId.toInt() + 10000, // Unique request code
+                snoozeIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+            )
             builder.addAction(
                 android.R.drawable.ic_lock_idle_alarm,
                 "Snooze 10min",
@@ -103,10 +114,57 @@ object NotificationHelper {
             )
         }
 
-        val notification = builder.build()
+        return builder
+    }
 
-        val notificationManager = NotificationManagerCompat.from(context)
-        notificationManager.notify(reminderId.toInt(), notification)
+    /**
+     * Builder for the summary of a notification group, listing one line per notification
+     * @param context Context
+     * @param title Summary title
+     * @param lines Lines shown when the summary is expanded
+     * @param summaryText Text under the lines, or null
+     * @param groupKey Group the summary stands for
+     * @return Builder ready to build
+     */
+    fun summaryBuilder(context: Context, title: String, lines: List<String>, summaryText: String?, groupKey: String): NotificationCompat.Builder {
+        val templates = templates(context)
+        val style = NotificationCompat.InboxStyle().setBigContentTitle(title)
+        lines.forEach { style.addLine(it) }
+        summaryText?.let { style.setSummaryText(it) }
+
+        return NotificationCompat.Builder(context, CHANNEL_ID)
+            .setSmallIcon(android.R.drawable.ic_dialog_info)
+            .setContentTitle(title)
+            .setContentText(lines.joinToString(", "))
+            .setStyle(style)
+            .setPriority(NotificationCompat.PRIORITY_HIGH)
+            .setContentIntent(templates.contentIntent)
+            .setAutoCancel(true)
+            .setSound(templates.soundUri)
+            .setVibrate(VIBRATION_PATTERN)
+            .setCategory(NotificationCompat.CATEGORY_REMINDER)
+            .setGroup(groupKey)
+            .setGroupSummary(true)
+            // The summary sounds once for the whole group
+            .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+    }
+
+    /**
+     * Parts shared by every reminder notification, built on first use
+     */
+    private fun templates(context: Context): Templates {
+        cachedTemplates?.let { return it }
+        val appContext = context.applicationContext
+        val intent = Intent(appContext, MainActivity::class.java).apply {
+            flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
+        }
+        val built = Templates(
+            contentIntent = PendingIntent.getActivity(appContext, 0, intent, PendingIntent.FLAG_IMMUTABLE),
+            // Get default notification sound
+            soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION)
+        )
+        cachedTemplates = built
+        return built
     }
 
     /**
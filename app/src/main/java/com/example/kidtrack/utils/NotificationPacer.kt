@@ -0,0 +1,46 @@
+package com.example.kidtrack.utils
+
+import android.os.SystemClock
+import kotlinx.coroutines.delay
+
+/**
+ * Spaces notification posts evenly so a burst stays under the system's per-app
+ * notification rate; posts over that rate are dropped, not delayed.
+ * Each caller reserves the next free slot, so concurrent dispatches share one pace.
+ *
+ * @param intervalMs Minimum time between two posts
+ * @param clock Monotonic time in milliseconds
+ */
+class NotificationPacer(
+    private val intervalMs: Long,
+    private val clock: () -> Long = SystemClock::elapsedRealtime
+) {
+
+    private var nextSlot = Long.MIN_VALUE
+
+    /**
+     * Reserve the next slot for a post, if it comes soon enough
+     * @param deadline Latest acceptable slot, on the pacer's clock
+     * @return How long to wait before posting, in milliseconds, or null if the next slot is
+     *         after [deadline]; nothing is reserved then
+     */
+    @Synchronized
+    fun reserve(deadline: Long = Long.MAX_VALUE): Long? {
+        val now = clock()
+        val slot = maxOf(now, nextSlot)
+        if (slot > deadline) return null
+        nextSlot = slot + intervalMs
+        return slot - now
+    }
+
+    /**
+     * Suspend until the next slot for a post
+     * @param deadline Latest acceptable slot, on the pacer's clock
+     * @return true once it is time to post, false straight away if the slot would be after [deadline]
+     */
+    suspend fun awaitTurn(deadline: Long = Long.MAX_VALUE): Boolean {
+        val wait = reserve(deadline) ?: return false
+        if (wait > 0) delay(wait)
+        return true
+    }
+}
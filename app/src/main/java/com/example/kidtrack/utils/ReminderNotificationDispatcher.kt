@@ -0,0 +1,185 @@
+package com.example.kidtrack.utils
+
+import android.content.Context
+import android.os.SystemClock
+import androidx.core.app.NotificationCompat
+import androidx.core.app.NotificationManagerCompat
+import com.example.kidtrack.data.model.ReminderNotice
+
+/**
+ * Posts the reminders taken by one alarm, which are those firing in the same minute.
+ * A child with one reminder gets a plain notification. A child with several gets a group:
+ * silent notifications for the first few reminders and an InboxStyle summary listing all
+ * of them, which alerts once. Posts are paced under the system's notification rate and
+ * capped by the time left before a deadline, so a morning burst fits inside the alarm
+ * broadcast. Reminders that miss the deadline are handed back to be queued again.
+ */
+object ReminderNotificationDispatcher {
+
+    // The system drops an app's posts above 5 per second; stay just under it
+    private const val POST_INTERVAL_MS = 250L
+
+    // Most posts per dispatch, however much time is left; at the pace above they take under 5 s
+    private const val MAX_POSTS = 20
+
+    // Reminders of one child shown as their own notifications; the rest appear only in the summary
+    private const val MAX_CHILDREN_PER_GROUP = 6
+
+    // Lines an expanded InboxStyle summary shows
+    private const val MAX_SUMMARY_LINES = 6
+
+    private const val GROUP_KEY_PREFIX = "com.example.kidtrack.REMINDERS_PROFILE_"
+
+    private val pacer = NotificationPacer(POST_INTERVAL_MS)
+
+    /**
+     * Reminders of one child in a dispatch
+     * @param profileId Child the reminders belong to
+     * @param notices The reminders, earliest first
+     * @param shown How many of them, from the first, get their own notification
+     */
+    data class Group(val profileId: Long, val notices: List<ReminderNotice>, val shown: Int)
+
+    /**
+     * Post notifications for reminders taken off the queue together.
+     * The posts planned are those that fit before [deadline] at the pace above; a post whose
+     * slot would still fall after it, because another dispatch holds the pace, is not made.
+     * @param context Context
+     * @param notices Due reminders, earliest first
+     * @param deadline Latest time to post, on the [SystemClock.elapsedRealtime] clock
+     * @return Reminders neither posted themselves nor listed in a posted summary, earliest first;
+     *         empty when notifications are not permitted, since posting again would not help
+     */
+    suspend fun dispatch(context: Context, notices: List<ReminderNotice>, deadline: Long): List<ReminderNotice> {
+        if (notices.isEmpty() || !NotificationHelper.hasNotificationPermission(context)) return emptyList()
+        val notificationManager = NotificationManagerCompat.from(context)
+        val timeLeft = maxOf(deadline - SystemClock.elapsedRealtime(), 0L)
+        val maxPosts = minOf(MAX_POSTS.toLong(), 1 + timeLeft / POST_INTERVAL_MS).toInt()
+
+        val unposted = ArrayList<ReminderNotice>()
+        for (group in plan(notices, maxPosts)) {
+            if (!post(context, notificationManager, group, deadline)) {
+                unposted.addAll(group.notices)
+            }
+        }
+        return unposted.sortedBy { it.reminder.nextFireAt }
+    }
+
+    /**
+     * Post one group's notifications
+     * @return true if the group's plain notification or summary was posted
+     */
+    private suspend fun post(
+        context: Context,
+        notificationManager: NotificationManagerCompat,
+        group: Group,
+        deadline: Long
+    ): Boolean {
+        if (group.notices.size == 1) {
+            val notice = group.notices.single()
+            if (!pacer.awaitTurn(deadline)) return false
+            notificationManager.notify(notice.reminder.id.toInt(), builder(context, notice).build())
+            return true
+        }
+
+        val groupKey = GROUP_KEY_PREFIX + group.profileId
+        for (notice in group.notices.take(group.shown)) {
+            val notification = builder(context, notice)
+                .setGroup(groupKey)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .build()
+            if (!pacer.awaitTurn(deadline)) return false
+            notificationManager.notify(notice.reminder.id.toInt(), notification)
+        }
+        // Posted after its children, so the group appears complete
+        if (!pacer.awaitTurn(deadline)) return false
+        notificationManager.notify(summaryId(group.profileId), summary(context, group, groupKey).build())
+        return true
+    }
+
+    /**
+     * Split reminders into one group per child and decide which get their own notification.
+     * Every group gets one post, a plain notification or a summary; the remaining posts are
+     * shared out one at a time across the groups, so no child's reminders crowd out another's.
+     * @param notices Due reminders, earliest first
+     * @param maxPosts Posts allowed for the whole dispatch
+     * @param maxChildren Notifications allowed per group besides its summary
+     * @return Groups in the order of their earliest reminder
+     */
+    fun plan(notices: List<ReminderNotice>, maxPosts: Int = MAX_POSTS, maxChildren: Int = MAX_CHILDREN_PER_GROUP): List<Group> {
+        val byProfile = notices.groupBy { it.reminder.profileId }
+        val shown = byProfile.values.map { if (it.size == 1) 1 else 0 }.toIntArray()
+        val limits = byProfile.values.map { if (it.size == 1) 1 else minOf(it.size, maxChildren) }
+        var slots = maxPosts - byProfile.size
+
+        while (slots > 0) {
+            var assigned = false
+            for (i in shown.indices) {
+                if (slots > 0 && shown[i] < limits[i]) {
+                    shown[i]++
+                    slots--
+                    assigned = true
+                }
+            }
+            if (!assigned) break
+        }
+
+        return byProfile.entries.mapIndexed { i, (profileId, group) -> Group(profileId, group, shown[i]) }
+    }
+
+    /**
+     * Notification title for a reminder
+     */
+    fun title(notice: ReminderNotice): String =
+        notice.reminder.name.ifBlank { "KidTrack Reminder" }
+
+    /**
+     * Notification text for a reminder, with its activity's details where it still has one
+     */
+    fun message(notice: ReminderNotice): String {
+        val reminder = notice.reminder
+        return if (notice.activityDateTimestamp != null && notice.activityTimeMinutes != null) {
+            val dateStr = DateTimeUtils.timestampToDateString(notice.activityDateTimestamp)
+            val timeStr = DateTimeUtils.minutesToTimeString(notice.activityTimeMinutes)
+            val daysBeforeText = if (reminder.daysBefore > 0) " (Tomorrow)" else ""
+            val profileText = notice.profileName?.let { " for $it" } ?: ""
+            "Activity: ${notice.activityCategory} - ${notice.activityDescription}$profileText$daysBeforeText\nScheduled: $dateStr at $timeStr"
+        } else {
+            "You have a scheduled activity at ${DateTimeUtils.minutesToTimeString(reminder.timeMinutes)}"
+        }
+    }
+
+    private fun builder(context: Context, notice: ReminderNotice): NotificationCompat.Builder {
+        val reminder = notice.reminder
+        return NotificationHelper.reminderBuilder(
+            context,
+            title(notice),
+            message(notice),
+            reminder.id,
+            reminder.associatedActivityId,
+            reminder.snoozeEnabled
+        )
+    }
+
+    private fun summary(context: Context, group: Group, groupKey: String): NotificationCompat.Builder {
+        val profileName = group.notices.firstNotNullOfOrNull { it.profileName }
+        val title = if (profileName != null) {
+            "${group.notices.size} reminders for $profileName"
+        } else {
+            "${group.notices.size} KidTrack reminders"
+        }
+        val lines = group.notices.take(MAX_SUMMARY_LINES).map { line(it) }
+        val hidden = group.notices.size - lines.size
+        val summaryText = if (hidden > 0) "+$hidden more" else null
+        return NotificationHelper.summaryBuilder(context, title, lines, summaryText, groupKey)
+    }
+
+    private fun line(notice: ReminderNotice): String {
+        val time = DateTimeUtils.minutesToTimeString(notice.reminder.timeMinutes)
+        val description = notice.activityDescription?.let { " - $it" } ?: ""
+        return "$time ${title(notice)}$description"
+    }
+
+    // Reminder notifications use the reminder id; summaries take negative ids so they never collide
+    private fun summaryId(profileId: Long): Int = -(profileId.toInt() + 1)
+}
@@ -0,0 +1,203 @@
+package com.example.kidtrack.utils
+
+import com.example.kidtrack.data.model.Reminder
+import java.time.Clock
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalTime
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.time.temporal.ChronoUnit
+
+/**
+ * Computes when reminders fire.
+ *
+ * A repeating reminder is a series counted from the day it started
+ * ([Reminder.startDateTimestamp]): occurrence k falls k days, weeks or months later at the
+ * reminder's time of day. Counting from the start rather than from the previous occurrence
+ * keeps monthly reminders on their day: one started on the 31st fires on the last day of
+ * shorter months and on the 31st again afterwards. Local times are resolved in the clock's
+ * time zone, so an occurrence stays at the same wall-clock time across daylight-saving
+ * changes; a time skipped by a spring-forward gap fires just after the gap.
+ *
+ * Pure apart from the injected [clock]: every result depends only on the reminder and the
+ * times passed in. Times are epoch milliseconds, like the rest of the data layer.
+ *
+ * @param clock Supplies the time zone, and the current time where none is passed
+ */
+class ReminderRecurrence(private val clock: Clock = Clock.systemDefaultZone()) {
+
+    /**
+     * How often a reminder repeats, parsed from [Reminder.frequency]
+     */
+    enum class Frequency {
+        ONCE, DAILY, WEEKLY, MONTHLY;
+
+        companion object {
+            fun of(frequency: String): Frequency = when (frequency.lowercase()) {
+                "once" -> ONCE
+                "weekly" -> WEEKLY
+                "monthly" -> MONTHLY
+                else -> DAILY // Default to daily
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * An event reminder whose time has passed before the event fires this long after being saved
+         */
+        const val LATE_EVENT_DELAY_MS = 60_000L
+    }
+
+    private val zone: ZoneId = clock.zone
+
+    /**
+     * Fill in a newly saved reminder's series start, if it has none, and its first fire time
+     * @param reminder The reminder
+     * @param now Current time
+     * @return The reminder with [Reminder.startDateTimestamp] and [Reminder.nextFireAt] set;
+     *         nextFireAt is null if the reminder's event is already over
+     */
+    fun schedule(reminder: Reminder, now: Long = clock.millis()): Reminder {
+        val started = if (reminder.startDateTimestamp > 0 || isEventReminder(reminder)) {
+            reminder
+        } else {
+            reminder.copy(startDateTimestamp = startOfDay(now))
+        }
+        return started.copy(nextFireAt = firstOccurrence(started, now))
+    }
+
+    /**
+     * First fire time after a reminder is saved
+     * @param reminder The reminder
+     * @param now Current time
+     * @return Fire time, or null if the reminder's event is already over
+     */
+    fun firstOccurrence(reminder: Reminder, now: Long = clock.millis()): Long? {
+        if (isEventReminder(reminder)) {
+            val fireAt = eventFireTime(reminder)
+            if (fireAt > now) return fireAt
+            // Reminder time has passed; remind right away unless the event is over too
+            return if (localDate(reminder.eventDateTimestamp) < localDate(now)) null else now + LATE_EVENT_DELAY_MS
+        }
+        // A one-off reminder fires at the next occurrence of its time of day
+        val frequency = Frequency.of(reminder.frequency).takeIf { it != Frequency.ONCE } ?: Frequency.DAILY
+        return nextOccurrence(reminder, frequency, now)
+    }
+
+    /**
+     * Pending fire time of a reminder after the device clock or time zone has changed.
+     * A time already passed is kept, so a reminder missed while the device was off still fires;
+     * a future one is worked out again, since the same wall-clock time may now be a different instant.
+     * @param reminder The reminder, with its pending fire time
+     * @param now Current time
+     * @return The fire time to queue, or null if the reminder has none pending
+     */
+    fun reschedule(reminder: Reminder, now: Long = clock.millis()): Long? {
+        val pending = reminder.nextFireAt ?: return null
+        if (pending <= now) return pending
+        // A late event reminder is already queued to fire right away
+        if (isEventReminder(reminder) && eventFireTime(reminder) <= now) return pending
+        return firstOccurrence(reminder, now)
+    }
+
+    /**
+     * Fire time following one that has just been dispatched. Occurrences missed while the
+     * device was off are skipped, and a snoozed fire does not shift the series.
+     * @param reminder The dispatched reminder, with the fire time it was dispatched for
+     * @param now Current time
+     * @return Next fire time after both [now] and the dispatched one, or null if the reminder does not repeat
+     */
+    fun followingOccurrence(reminder: Reminder, now: Long = clock.millis()): Long? {
+        if (isEventReminder(reminder)) return null
+        val frequency = Frequency.of(reminder.frequency)
+        if (frequency == Frequency.ONCE) return null
+        return nextOccurrence(reminder, frequency, maxOf(now, reminder.nextFireAt ?: now))
+    }
+
+    /**
+     * First occurrence of a repeating reminder strictly after a time
+     * @param reminder The reminder
+     * @param after Exclusive lower bound
+     * @return Fire time, or null if the reminder does not repeat
+     */
+    fun nextOccurrence(reminder: Reminder, after: Long): Long? =
+        nextOccurrences(reminder, after, 1).firstOrNull()
+
+    /**
+     * The next occurrences of a repeating reminder, in order
+     * @param reminder The reminder
+     * @param after Exclusive lower bound
+     * @param count Number of occurrences to compute
+     * @return Up to [count] fire times; empty if the reminder does not repeat
+     */
+    fun nextOccurrences(reminder: Reminder, after: Long, count: Int): List<Long> {
+        require(count >= 0) { "count must not be negative" }
+        val frequency = Frequency.of(reminder.frequency)
+        if (count == 0 || isEventReminder(reminder) || frequency == Frequency.ONCE) return emptyList()
+        val start = seriesStart(reminder, after)
+        val time = localTime(reminder.timeMinutes)
+        var k = firstIndexAfter(start, time, frequency, after)
+        return List(count) { occurrence(start, time, frequency, k++) }
+    }
+
+    private fun nextOccurrence(reminder: Reminder, frequency: Frequency, after: Long): Long {
+        val start = seriesStart(reminder, after)
+        val time = localTime(reminder.timeMinutes)
+        return occurrence(start, time, frequency, firstIndexAfter(start, time, frequency, after))
+    }
+
+    /**
+     * Index of the first occurrence after [after]. The calendar distance from the start
+     * gives the index of an occurrence on or before [after]'s day, at most one step short.
+     */
+    private fun firstIndexAfter(start: LocalDate, time: LocalTime, frequency: Frequency, after: Long): Long {
+        val unit = when (frequency) {
+            Frequency.WEEKLY -> ChronoUnit.WEEKS
+            Frequency.MONTHLY -> ChronoUnit.MONTHS
+            else -> ChronoUnit.DAYS
+        }
+        var k = maxOf(0L, unit.between(start, localDate(after)))
+        while (occurrence(start, time, frequency, k) <= after) k++
+        return k
+    }
+
+    private fun occurrence(start: LocalDate, time: LocalTime, frequency: Frequency, k: Long): Long {
+        val date = when (frequency) {
+            Frequency.WEEKLY -> start.plusWeeks(k)
+            // Always from the start, so a clamped month end does not carry into later months
+            Frequency.MONTHLY -> start.plusMonths(k)
+            else -> start.plusDays(k)
+        }
+        return ZonedDateTime.of(date, time, zone).toInstant().toEpochMilli()
+    }
+
+    /**
+     * Day the series is counted from; reminders saved before series starts were recorded
+     * count from the day of their pending fire time, or failing that the given day
+     */
+    private fun seriesStart(reminder: Reminder, fallback: Long): LocalDate = localDate(
+        when {
+            reminder.startDateTimestamp > 0 -> reminder.startDateTimestamp
+            else -> reminder.nextFireAt ?: fallback
+        }
+    )
+
+    private fun isEventReminder(reminder: Reminder) =
+        reminder.eventDateTimestamp > 0 && reminder.daysBefore > 0
+
+    private fun eventFireTime(reminder: Reminder): Long {
+        val date = localDate(reminder.eventDateTimestamp).minusDays(reminder.daysBefore.toLong())
+        return ZonedDateTime.of(date, localTime(reminder.timeMinutes), zone).toInstant().toEpochMilli()
+    }
+
+    private fun startOfDay(timestamp: Long): Long =
+        localDate(timestamp).atStartOfDay(zone).toInstant().toEpochMilli()
+
+    private fun localDate(timestamp: Long): LocalDate =
+        Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate()
+
+    private fun localTime(timeMinutes: Int): LocalTime =
+        LocalTime.of(timeMinutes / 60, timeMinutes % 60)
+}
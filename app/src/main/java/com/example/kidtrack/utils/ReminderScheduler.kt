@@ -6,135 +6,160 @@ import android.content.Context
 import android.content.Intent
 import android.os.Build
 import android.provider.Settings
+import android.util.Log
 import android.widget.Toast
+import androidx.room.InvalidationTracker
+import com.example.kidtrack.appContainer
+import com.example.kidtrack.data.database.KidTrackDatabase
 import com.example.kidtrack.data.model.Reminder
 import com.example.kidtrack.receivers.ReminderReceiver
-import java.util.Calendar
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 
+/**
+ * Schedules reminder notifications from the queue of fire times kept in reminders.nextFireAt.
+ * Only the earliest fire time is armed with [AlarmManager], so the app holds a single alarm
+ * however many reminders exist. When it goes off, [ReminderReceiver] dispatches every reminder
+ * due within [DISPATCH_WINDOW_MS], advances each one and arms the new earliest time.
+ * Fire times are computed by [ReminderRecurrence].
+ */
 object ReminderScheduler {
-    
+
+    private const val TAG = "ReminderScheduler"
+
+    /**
+     * Intent action of the queue alarm
+     */
+    const val ACTION_FIRE_DUE = "ACTION_FIRE_DUE"
+
+    /**
+     * Reminders due this close after the alarm are dispatched with it instead of waking the device again
+     */
+    const val DISPATCH_WINDOW_MS = 60_000L
+
+    private const val ALARM_REQUEST_CODE = 0
+
+    private var watchedDatabase: KidTrackDatabase? = null
+
+    // Held from reading the earliest fire time until the alarm is set, so calls apply in order
+    private val rearmLock = Mutex()
+
+    /**
+     * Arm the queue alarm and keep it armed: every later change to the reminders table
+     * re-arms it, so saves, deletes and restores need no scheduling of their own.
+     * Call once when the process starts.
+     */
+    @Synchronized
+    fun watch(context: Context) {
+        val appContext = context.applicationContext
+        val database = appContext.appContainer.database
+        if (watchedDatabase !== database) {
+            database.invalidationTracker.addObserver(
+                object : InvalidationTracker.Observer("reminders") {
+                    override fun onInvalidated(tables: Set<String>) {
+                        requestRearm(appContext)
+                    }
+                }
+            )
+            watchedDatabase = database
+        }
+        requestRearm(appContext)
+    }
+
     /**
-     * Schedule a reminder notification
+     * Confirm a saved reminder to the user and make sure the queue alarm covers it.
+     * The reminder's fire time is stored by the repository when it is saved.
      */
     fun scheduleReminder(context: Context, reminder: Reminder) {
-        val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
-        
         // Check for exact alarm permission on Android 12+
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            if (!alarmManager.canScheduleExactAlarms()) {
-                Toast.makeText(
-                    context,
-                    "Please allow exact alarm scheduling in settings",
-                    Toast.LENGTH_LONG
-                ).show()
-                return
-            }
-        }
-        
-        val timeString = DateTimeUtils.minutesToTimeString(reminder.timeMinutes)
-        val intent = Intent(context, ReminderReceiver::class.java).apply {
-            putExtra("REMINDER_ID", reminder.id)
-            putExtra("REMINDER_TIME_MINUTES", reminder.timeMinutes)
-            putExtra("ACTIVITY_ID", reminder.associatedActivityId)
-            putExtra("DAYS_BEFORE", reminder.daysBefore)
-        }
-        
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            reminder.id.toInt(),
-            intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-        
-        val calendar = getNextReminderTime(reminder.timeMinutes, reminder.frequency, reminder.eventDateTimestamp, reminder.daysBefore)
-        
-        // Schedule the alarm
-        try {
-            alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP,
-                calendar.timeInMillis,
-                pendingIntent
-            )
-            
+        if (!canScheduleExactAlarms(context)) {
+            Toast.makeText(
+                context,
+                "Please allow exact alarm scheduling in settings",
+                Toast.LENGTH_LONG
+            ).show()
+        } else if (ReminderRecurrence().firstOccurrence(reminder) != null) {
+            val timeString = DateTimeUtils.minutesToTimeString(reminder.timeMinutes)
             val daysBeforeText = if (reminder.daysBefore > 0) {
                 " (${reminder.daysBefore} day${if (reminder.daysBefore > 1) "s" else ""} before event)"
             } else ""
-            
+
             Toast.makeText(
                 context,
                 "Reminder scheduled for $timeString$daysBeforeText",
                 Toast.LENGTH_SHORT
             ).show()
-        } catch (e: Exception) {
-            Toast.makeText(
-                context,
-                "Failed to schedule reminder: ${e.message}",
-                Toast.LENGTH_SHORT
-            ).show()
         }
+        requestRearm(context)
     }
-    
+
     /**
-     * Cancel a scheduled reminder
+     * Take a deleted reminder out of the queue alarm.
+     * Deleted reminders are never dispatched, so this only re-arms for the remaining ones.
      */
     fun cancelReminder(context: Context, reminderId: Long) {
-        val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
-        
-        val intent = Intent(context, ReminderReceiver::class.java)
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            reminderId.toInt(),
-            intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-        
-        alarmManager.cancel(pendingIntent)
-        pendingIntent.cancel()
+        Log.d(TAG, "Reminder $reminderId cancelled")
+        requestRearm(context)
     }
-    
+
     /**
-     * Calculate the next reminder time based on current time and frequency
+     * Re-arm the queue alarm in the background
      */
-    private fun getNextReminderTime(timeMinutes: Int, frequency: String, eventDateTimestamp: Long = 0, daysBefore: Int = 0): Calendar {
-        val calendar = Calendar.getInstance()
-        
-        // If we have an event date and daysBefore is set, calculate reminder date based on event
-        if (eventDateTimestamp > 0 && daysBefore > 0) {
-            calendar.timeInMillis = eventDateTimestamp
-            // Subtract the days before
-            calendar.add(Calendar.DAY_OF_MONTH, -daysBefore)
+    fun requestRearm(context: Context) {
+        val appContext = context.applicationContext
+        appContext.appContainer.applicationScope.launch {
+            try {
+                rearm(appContext)
+            } catch (e: Exception) {
+                Log.e(TAG, "Error re-arming reminder alarm", e)
+            }
         }
-        
-        // Convert minutes to hours and minutes
-        val hour = timeMinutes / 60
-        val minute = timeMinutes % 60
-        
-        calendar.set(Calendar.HOUR_OF_DAY, hour)
-        calendar.set(Calendar.MINUTE, minute)
-        calendar.set(Calendar.SECOND, 0)
-        calendar.set(Calendar.MILLISECOND, 0)
-        
-        // If the time has already passed, schedule for next occurrence
-        if (calendar.timeInMillis <= System.currentTimeMillis()) {
-            // For event-based reminders (with daysBefore), don't reschedule if time has passed
-            if (eventDateTimestamp > 0 && daysBefore > 0) {
-                // If reminder time has passed, the event likely already happened
-                // Just schedule for 1 minute from now as a fallback
-                calendar.timeInMillis = System.currentTimeMillis() + 60000
-            } else {
-                // For recurring reminders, schedule next occurrence
-                when (frequency.lowercase()) {
-                    "daily" -> calendar.add(Calendar.DAY_OF_MONTH, 1)
-                    "weekly" -> calendar.add(Calendar.WEEK_OF_YEAR, 1)
-                    "monthly" -> calendar.add(Calendar.MONTH, 1)
-                    else -> calendar.add(Calendar.DAY_OF_MONTH, 1) // Default to daily
+    }
+
+    /**
+     * Arm the queue alarm for the earliest pending fire time, or cancel it if nothing is pending.
+     * Idempotent: the alarm is a single PendingIntent, replaced on every call.
+     * Calls are serialised, so one that read an older fire time cannot set the alarm after
+     * one that read a newer time, which would leave the alarm armed for a stale time.
+     * @throws Exception if the database read fails
+     */
+    suspend fun rearm(context: Context) {
+        rearmLock.withLock {
+            val next = context.appContainer.repository.getNextReminderFireTime()
+            val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
+            val pendingIntent = queuePendingIntent(context)
+            if (next == null) {
+                alarmManager.cancel(pendingIntent)
+                Log.d(TAG, "No reminders pending")
+                return
+            }
+            try {
+                if (canScheduleExactAlarms(context)) {
+                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pendingIntent)
+                } else {
+                    // Without the permission the reminder still fires, only less precisely
+                    alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pendingIntent)
                 }
+                Log.d(TAG, "Reminder alarm armed for $next")
+            } catch (e: SecurityException) {
+                Log.e(TAG, "Not allowed to arm reminder alarm", e)
             }
         }
-        
-        return calendar
     }
-    
+
+    private fun queuePendingIntent(context: Context): PendingIntent {
+        val intent = Intent(context, ReminderReceiver::class.java).apply {
+            action = ACTION_FIRE_DUE
+        }
+        return PendingIntent.getBroadcast(
+            context,
+            ALARM_REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+        )
+    }
+
     /**
      * Check if the app can schedule exact alarms (Android 12+)
      */
@@ -146,7 +171,7 @@ object ReminderScheduler {
             true
         }
     }
-    
+
     /**
      * Open settings to allow exact alarm scheduling
      */
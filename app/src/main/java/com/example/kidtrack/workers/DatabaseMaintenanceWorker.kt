@@ -0,0 +1,70 @@
+package com.example.kidtrack.workers
+
+import android.content.Context
+import android.util.Log
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import androidx.work.workDataOf
+import com.example.kidtrack.appContainer
+import com.example.kidtrack.utils.DateTimeUtils
+import java.util.concurrent.TimeUnit
+
+/**
+ * Daily background job that archives finished activities, purges old tombstones and returns
+ * the freed pages to the file system.
+ * Deletes only mark rows, so they stay instant and undoable, and old activities move to the
+ * archive, so day-to-day queries stay small; this job keeps both from growing over years of use.
+ */
+class DatabaseMaintenanceWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "DatabaseMaintenance"
+        private const val WORK_NAME = "database_maintenance"
+        // How long deleted rows are kept before they are purged
+        private val TOMBSTONE_RETENTION_MS = TimeUnit.DAYS.toMillis(30)
+        // Default age, in days before today, at which activities move to the archive
+        const val DEFAULT_ARCHIVE_HORIZON_DAYS = 180
+        private const val KEY_ARCHIVE_HORIZON_DAYS = "archive_horizon_days"
+
+        /**
+         * Schedule the daily job; an existing schedule keeps its timing but takes the new parameters
+         * @param context Any context
+         * @param archiveHorizonDays Activities dated more than this many days before today are archived
+         */
+        fun schedule(context: Context, archiveHorizonDays: Int = DEFAULT_ARCHIVE_HORIZON_DAYS) {
+            val constraints = Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build()
+            val request = PeriodicWorkRequestBuilder<DatabaseMaintenanceWorker>(1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInputData(workDataOf(KEY_ARCHIVE_HORIZON_DAYS to archiveHorizonDays))
+                .build()
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.UPDATE, request)
+        }
+    }
+
+    override suspend fun doWork(): Result {
+        val repository = applicationContext.appContainer.repository
+        return try {
+            val horizonDays = inputData.getInt(KEY_ARCHIVE_HORIZON_DAYS, DEFAULT_ARCHIVE_HORIZON_DAYS)
+            val archived = repository.archiveActivities(
+                DateTimeUtils.getStartOfTodayTimestamp() - TimeUnit.DAYS.toMillis(horizonDays.toLong())
+            )
+            val purged = repository.purgeDeletedRows(System.currentTimeMillis() - TOMBSTONE_RETENTION_MS)
+            repository.vacuum()
+            Log.d(TAG, "Maintenance finished, $archived activities archived, $purged rows purged")
+            Result.success()
+        } catch (e: Exception) {
+            Log.e(TAG, "Maintenance failed", e)
+            Result.retry()
+        }
+    }
+}
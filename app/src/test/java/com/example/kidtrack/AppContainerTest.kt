@@ -0,0 +1,47 @@
+package com.example.kidtrack
+
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Checks that the process holds exactly one container, database and repository,
+ * however and from however many threads they are reached.
+ */
+@RunWith(RobolectricTestRunner::class)
+class AppContainerTest {
+
+    @Test
+    fun oneInstancePerProcess() {
+        val application = ApplicationProvider.getApplicationContext<KidTrackApplication>()
+        val container = application.appContainer
+
+        assertSame(container, application.container)
+        assertSame(container.repository, application.appContainer.repository)
+        assertSame(container.database, application.appContainer.database)
+        assertSame(container.profileCache, application.appContainer.profileCache)
+        assertSame(container.activityIndex, application.appContainer.activityIndex)
+        assertSame(container.queryCache, application.appContainer.queryCache)
+    }
+
+    @Test
+    fun concurrentFirstUseCreatesOneRepository() {
+        val application = ApplicationProvider.getApplicationContext<KidTrackApplication>()
+        val threads = 8
+        val pool = Executors.newFixedThreadPool(threads)
+        try {
+            val repositories = pool.invokeAll(List(threads) { Callable { application.appContainer.repository } })
+                .map { it.get(5, TimeUnit.SECONDS) }
+
+            assertEquals(1, repositories.map { System.identityHashCode(it) }.toSet().size)
+        } finally {
+            pool.shutdown()
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.kidtrack
+
+/**
+ * JUnit category for tests that time code rather than check behaviour.
+ * Timings depend on the machine, so these are left out of the normal test run;
+ * pass -PrunBenchmarks to Gradle to include them.
+ */
+interface Benchmark
@@ -0,0 +1,129 @@
+package com.example.kidtrack.data.database
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.repository.ActivityIndex
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.data.repository.ProfileCache
+import com.example.kidtrack.data.repository.QueryResultCache
+import com.example.kidtrack.utils.PredefinedTasks
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that activities stay linked to the categories table, whichever way they are
+ * written, and that a rename reaches every place the category name is read.
+ */
+@RunWith(RobolectricTestRunner::class)
+class CategoryTableTest {
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun predefinedCategoriesAreSeeded() = runBlocking {
+        val names = repository.getAllCategories().map { it.name }
+        assertTrue(names.containsAll(PredefinedTasks.getCategories()))
+        assertTrue(repository.getActivityCategories().isEmpty())
+    }
+
+    @Test
+    fun everyWriteLinksItsCategory() = runBlocking {
+        val schoolId = database.categoryDao().getCategoryId("School")
+        val id = repository.insertActivity(activity("School"))
+        assertEquals(schoolId, database.activityDao().getActivityById(id)?.categoryId)
+
+        // Moving an activity to a category nobody has used before creates and links it
+        repository.updateActivity(database.activityDao().getActivityById(id)!!.copy(category = "Chess", categoryId = null))
+        val chessId = database.categoryDao().getCategoryId("Chess")
+        val moved = database.activityDao().getActivityById(id)!!
+        assertEquals(chessId, moved.categoryId)
+        assertEquals("Chess", moved.category)
+
+        assertEquals(listOf("Chess"), repository.getActivityCategories().map { it.name })
+    }
+
+    @Test
+    fun renameIsOneRowAndReachesActivities() = runBlocking {
+        val id = repository.insertActivity(activity("School"))
+        repository.insertActivity(activity("Sport"))
+        val schoolId = database.categoryDao().getCategoryId("School")!!
+        repository.getActivityById(id) // load the index
+        val db = database.openHelper.writableDatabase
+        val version = ActivityVersionSchema.read(db)
+        val summaryRows = summaryRows()
+
+        assertTrue(repository.renameCategory(schoolId, "Lessons"))
+
+        // Neither the activity nor its summary row was rewritten
+        assertEquals(version, ActivityVersionSchema.read(db))
+        assertEquals(summaryRows, summaryRows())
+
+        val renamed = database.activityDao().getActivityById(id)!!
+        assertEquals("Lessons", renamed.category)
+        assertEquals(schoolId, renamed.categoryId)
+        assertEquals(renamed, repository.getActivityById(id))
+        assertEquals(listOf(renamed), repository.getActivitiesByCategory(schoolId))
+        assertEquals(listOf(id), database.activityDao().searchActivities("lesson*", schoolId, 10).map { it.activity.id })
+        assertEquals(
+            mapOf("Lessons" to 1, "Sport" to 1),
+            database.reportDao().getCategoryCounts().associate { it.category to it.count }
+        )
+        assertEquals(mapOf("Lessons" to 1, "Sport" to 1), repository.getReportStatistics().categoryBreakdown)
+    }
+
+    @Test
+    fun filtersCompareCategoryIds() = runBlocking {
+        repository.insertActivity(activity("School"))
+        repository.insertActivity(activity("Sport"))
+        repository.insertActivity(activity("School"))
+        val schoolId = database.categoryDao().getCategoryId("School")
+
+        val page = database.activityDao().pageActivitiesAfter(Long.MIN_VALUE, -1, 0L, schoolId, 10)
+
+        assertEquals(2, page.size)
+        assertTrue(page.all { it.activity.category == "School" })
+    }
+
+    private fun summaryRows(): List<String> =
+        database.openHelper.readableDatabase
+            .query("SELECT epochDay, profileId, categoryId, count FROM daily_activity_summary ORDER BY epochDay, profileId, categoryId")
+            .use { cursor ->
+                val rows = ArrayList<String>()
+                while (cursor.moveToNext()) {
+                    rows.add("${cursor.getLong(0)}:${cursor.getLong(1)}:${cursor.getLong(2)}:${cursor.getInt(3)}")
+                }
+                rows
+            }
+
+    private fun activity(category: String) = Activity(
+        category = category,
+        description = "$category activity",
+        notes = "",
+        dateTimestamp = 0L,
+        timeMinutes = 9 * 60,
+        profileId = 1L
+    )
+}
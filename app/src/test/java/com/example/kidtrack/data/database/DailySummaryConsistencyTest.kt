@@ -0,0 +1,182 @@
+package com.example.kidtrack.data.database
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.model.UserProfile
+import com.example.kidtrack.data.repository.ActivityIndex
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.data.repository.ProfileCache
+import com.example.kidtrack.data.repository.QueryResultCache
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that the trigger-maintained daily_activity_summary always equals a recount of
+ * the activities table, whatever mix of writes produced it.
+ */
+@RunWith(RobolectricTestRunner::class)
+class DailySummaryConsistencyTest {
+
+    companion object {
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+
+        // Rows where the recount of activities and the summary disagree
+        private val MISMATCHES = """
+            SELECT epochDay, profileId, categoryId FROM (
+                SELECT ${DailySummarySchema.epochDaySql("dateTimestamp")} AS epochDay, profileId, categoryId,
+                       COUNT(*) AS expected, 0 AS actual
+                FROM (
+                    SELECT dateTimestamp, profileId, categoryId FROM activities WHERE deletedAt IS NULL
+                    UNION ALL
+                    SELECT dateTimestamp, profileId, categoryId FROM activities_archive WHERE deletedAt IS NULL
+                )
+                GROUP BY 1, 2, 3
+                UNION ALL
+                SELECT epochDay, profileId, categoryId, 0, count FROM daily_activity_summary
+            ) GROUP BY epochDay, profileId, categoryId
+            HAVING SUM(expected) != SUM(actual)
+        """
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun summaryFollowsEveryKindOfWrite() = runBlocking {
+        val sam = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        val alex = repository.insertUserProfile(UserProfile(name = "Alex", age = 6))
+        repository.importActivities((0 until 60).asSequence().map { i ->
+            ActivityImport(activity(day = i % 20, category = if (i % 3 == 0) "Sport" else "School", profileId = if (i % 2 == 0) sam else alex))
+        })
+        assertConsistent()
+
+        val id = repository.insertActivity(activity(day = 2, category = "Music", profileId = sam))
+        assertConsistent()
+
+        // Each of the summarized columns moving on its own
+        val inserted = repository.getActivityById(id)!!
+        repository.updateActivity(inserted.copy(dateTimestamp = 9 * DAY_MS))
+        assertConsistent()
+        repository.updateActivity(inserted.copy(dateTimestamp = 9 * DAY_MS, category = "Sport"))
+        assertConsistent()
+        repository.updateActivity(inserted.copy(dateTimestamp = 9 * DAY_MS, category = "Sport", profileId = alex))
+        assertConsistent()
+        // Columns the summary ignores
+        repository.updateActivity(inserted.copy(dateTimestamp = 9 * DAY_MS, category = "Sport", profileId = alex, description = "Swim"))
+        assertConsistent()
+
+        val moved = repository.getActivityById(id)!!
+        repository.deleteActivity(moved)
+        assertConsistent()
+        repository.restoreActivity(moved)
+        assertConsistent()
+        repository.deleteActivity(moved)
+
+        // Moving old activities to the archive leaves the summary as it was
+        repository.archiveActivities(horizon = 10 * DAY_MS, batchSize = 7)
+        assertConsistent()
+        assertTrue(countRows("SELECT COUNT(*) FROM activities_archive") > 0)
+
+        val samProfile = repository.getUserProfileById(sam)!!
+        repository.deleteUserProfile(samProfile)
+        assertConsistent()
+        assertEquals(0, countRows("SELECT COUNT(*) FROM daily_activity_summary WHERE profileId = $sam"))
+        repository.restoreUserProfile(samProfile)
+        assertConsistent()
+        repository.deleteUserProfile(samProfile)
+
+        // Purging tombstones must not count them out a second time
+        repository.purgeDeletedRows(cutoff = Long.MAX_VALUE, batchSize = 7)
+        assertConsistent()
+    }
+
+    @Test
+    fun activitiesLaterInTheDayShareTheDayRow() = runBlocking {
+        val profile = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        val midnight = DateTimeUtils.startOfEpochDay(100)
+        repository.insertActivity(activity(day = 0, category = "Sport", profileId = profile).copy(dateTimestamp = midnight))
+        repository.insertActivity(activity(day = 0, category = "Sport", profileId = profile).copy(dateTimestamp = midnight + DAY_MS - 1))
+
+        assertConsistent()
+        val rows = database.reportDao().getDailySummaries(100, 100)
+        assertEquals(1, rows.size)
+        assertEquals(2, rows.single().count)
+    }
+
+    @Test
+    fun rebuildRestoresALostSummary() = runBlocking {
+        val profile = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        repository.importActivities((0 until 10).asSequence().map {
+            ActivityImport(activity(day = it, category = "School", profileId = profile))
+        })
+        val db = database.openHelper.writableDatabase
+        db.execSQL("DELETE FROM daily_activity_summary")
+
+        DailySummarySchema.rebuild(db)
+
+        assertConsistent()
+        assertEquals(10, database.reportDao().getActivityCounts(0, 0, 0).total)
+    }
+
+    @Test
+    fun zoneChangeRebuildRealignsTheDays() = runBlocking {
+        val profile = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        val first = activity(day = 3, category = "School", profileId = profile)
+        val firstId = repository.insertActivity(first)
+        repository.importActivities((4 until 10).asSequence().map {
+            ActivityImport(activity(day = it, category = "Sport", profileId = profile))
+        })
+        // Rows counted under the previous zone, where every activity fell a day earlier
+        database.openHelper.writableDatabase.execSQL("UPDATE daily_activity_summary SET epochDay = epochDay - 1")
+
+        repository.rebuildDailySummary()
+        assertConsistent()
+
+        // Later writes adjust the realigned rows, not the stale ones
+        repository.deleteActivity(first.copy(id = firstId))
+        assertConsistent()
+    }
+
+    private fun assertConsistent() {
+        assertEquals(0, countRows("SELECT COUNT(*) FROM ($MISMATCHES)"))
+    }
+
+    private fun countRows(sql: String): Int =
+        database.openHelper.readableDatabase.query(sql).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+
+    private fun activity(day: Int, category: String, profileId: Long) = Activity(
+        category = category,
+        description = "Activity",
+        notes = "",
+        dateTimestamp = day * DAY_MS,
+        timeMinutes = 9 * 60,
+        profileId = profileId
+    )
+}
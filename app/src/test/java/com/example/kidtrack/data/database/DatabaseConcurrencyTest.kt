@@ -0,0 +1,139 @@
+package com.example.kidtrack.data.database
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.repository.ActivityIndex
+import com.example.kidtrack.data.repository.KidTrackRepository
+import com.example.kidtrack.data.repository.ProfileCache
+import com.example.kidtrack.data.repository.QueryResultCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs dashboard reads on a file-backed database while a bulk import holds
+ * the write transaction open. With WAL and separate reader/writer executors,
+ * reads must complete, from the last committed snapshot, before the import does.
+ */
+@RunWith(RobolectricTestRunner::class)
+class DatabaseConcurrencyTest {
+
+    companion object {
+        private const val DATABASE_NAME = "kidtrack-concurrency-test"
+        private const val SEED_ROWS = 500
+        private const val IMPORT_ROWS = 100
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        // Only stops a broken test from hanging; a passing run never waits this long
+        private const val LATCH_TIMEOUT_SECONDS = 10L
+    }
+
+    private val importedRows = AtomicInteger()
+
+    @Volatile
+    private var holding = false
+
+    @Volatile
+    private var released = false
+
+    private val writeOpen = CountDownLatch(1)
+    private val readsDone = CountDownLatch(1)
+
+    /**
+     * Holds the import on its transaction thread, between its first and second activity insert,
+     * until the test's reads are done; the write transaction is open and has written a row
+     */
+    private val holdImport = RoomDatabase.QueryCallback { sql, _ ->
+        if (holding && sql.contains("INTO `activities`") && importedRows.incrementAndGet() == 2) {
+            writeOpen.countDown()
+            readsDone.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            released = true
+        }
+    }
+
+    private lateinit var context: Context
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        context.deleteDatabase(DATABASE_NAME)
+        database = DatabaseConfig.configure(
+            Room.databaseBuilder(context, KidTrackDatabase::class.java, DATABASE_NAME)
+        ).setQueryCallback(holdImport, Executor { it.run() }).build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun usesWriteAheadLogging() {
+        val mode = database.openHelper.writableDatabase
+            .query(SimpleSQLiteQuery("PRAGMA journal_mode"))
+            .use { cursor ->
+                cursor.moveToFirst()
+                cursor.getString(0)
+            }
+        assertEquals("wal", mode.lowercase())
+    }
+
+    @Test
+    fun dashboardReadsAreNotBlockedByBulkWrite() = runBlocking {
+        val seedIds = repository.importActivities(activities(SEED_ROWS, startDay = -30)).activityIds.toSet()
+        holding = true
+
+        val import = async(Dispatchers.Default) {
+            repository.importActivities(activities(IMPORT_ROWS, startDay = 0), chunkSize = IMPORT_ROWS)
+        }
+        assertTrue("Import never opened its transaction", writeOpen.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+
+        val upcoming = repository.getUpcomingActivities(20)
+        val overdue = repository.getOverdueTasks(20)
+        // Reads blocked behind the writer would only get here once the import gave up waiting
+        assertFalse("Dashboard reads waited for the import transaction", released)
+        readsDone.countDown()
+        val imported = import.await()
+
+        assertTrue(upcoming.isNotEmpty())
+        assertTrue(overdue.isNotEmpty())
+        // The reads saw the last committed snapshot, not the import's uncommitted rows
+        assertTrue((upcoming + overdue).all { it.id in seedIds })
+        assertEquals(IMPORT_ROWS, imported.activityIds.size)
+        assertEquals(IMPORT_ROWS, repository.getUpcomingActivities(SEED_ROWS + IMPORT_ROWS).count { it.id !in seedIds })
+    }
+
+    private fun activities(count: Int, startDay: Int): Sequence<ActivityImport> =
+        (0 until count).asSequence().map { i ->
+            ActivityImport(
+                Activity(
+                    category = "School",
+                    description = "Activity $i",
+                    notes = "",
+                    dateTimestamp = System.currentTimeMillis() + (startDay + i / 10) * DAY_MS,
+                    timeMinutes = (i % 10) * 60,
+                    profileId = 1L
+                )
+            )
+        }
+}
@@ -0,0 +1,187 @@
+package com.example.kidtrack.data.database
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.test.core.app.ApplicationProvider
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Executor
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every statement issued by the DAOs and fails
+ * if any of them falls back to a full table scan or a temporary B-tree sort.
+ *
+ * Statements are captured through Room's query callback, so a new DAO method
+ * is covered as soon as it is called from [exerciseDaos].
+ */
+@RunWith(RobolectricTestRunner::class)
+class QueryPlanTest {
+
+    companion object {
+        // Tables small enough that reading them whole is a scan by design: profiles holds a
+        // handful of rows per household, daily_activity_summary one row per day, child and category
+        private val FULL_SCAN_ALLOWED_TABLES = setOf("profiles", "daily_activity_summary")
+
+        // Search results are ordered by a relevance score worked out per row, so sorting them
+        // is the point; LIMIT bounds the sort. The matched rows are read whole for the same reason,
+        // and the FTS lookup that finds them has its own plan line.
+        private val SORTED_BY_DESIGN = listOf("matchinfo(")
+        private val DERIVED_TABLES = setOf(FtsSearch.HITS)
+
+        private val FULL_SCAN = Regex("^SCAN (?:TABLE )?(\\w+)(.*)$")
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private val statements = mutableListOf<Pair<String, List<Any?>>>()
+
+    @Volatile
+    private var capturing = true
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .setQueryCallback(RoomDatabase.QueryCallback { sql, args ->
+                if (capturing) {
+                    synchronized(statements) { statements.add(sql to args.toList()) }
+                }
+            }, Executor { it.run() })
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun everyDaoQueryIsIndexed() {
+        exerciseDaos()
+        capturing = false
+
+        val queries = synchronized(statements) { statements.toList() }
+            .filter { (sql, _) -> isPlannable(sql) }
+            .distinctBy { (sql, _) -> sql }
+        assertTrue("No DAO statements were captured", queries.isNotEmpty())
+
+        val failures = queries.mapNotNull { (sql, args) ->
+            val plan = explain(sql, args)
+            val sortAllowed = SORTED_BY_DESIGN.any { sql.contains(it) }
+            val problems = plan.filter { isFullScan(it) || (!sortAllowed && it.contains("USE TEMP B-TREE")) }
+            if (problems.isEmpty()) null else "$sql\n    ${plan.joinToString("\n    ")}"
+        }
+
+        assertTrue(
+            "Queries falling back to a full scan or temp B-tree:\n\n${failures.joinToString("\n\n")}",
+            failures.isEmpty()
+        )
+    }
+
+    private fun exerciseDaos() = runBlocking {
+        val activityDao = database.activityDao()
+        activityDao.getActivityById(1L)
+        activityDao.getAllActivities()
+        activityDao.observeAllActivities().first()
+        activityDao.getActivitiesByProfile(1L)
+        activityDao.getActivitiesByDateRange(0L, Long.MAX_VALUE)
+        activityDao.getActivityItemsByDateRange(0L, Long.MAX_VALUE)
+        activityDao.getActivitiesAfter(0L, -1, 0L, 20)
+        activityDao.getActivitiesBefore(Long.MAX_VALUE, 0, 0L, 20)
+        activityDao.observeActivitiesAfter(0L, -1, 0L, 20).first()
+        activityDao.observeActivitiesBefore(Long.MAX_VALUE, 0, 0L, 20).first()
+        activityDao.pageActivitiesAfter(Long.MIN_VALUE, -1, 0L, null, 30)
+        activityDao.pageActivitiesAfter(0L, -1, 0L, 1L, 30)
+        activityDao.pageActivitiesBefore(Long.MAX_VALUE, 0, 0L, 1L, 30)
+        activityDao.searchActivities("home*", null, 500)
+        activityDao.searchActivities("swim* les*", 1L, 500)
+        activityDao.softDeleteActivity(1L, 1L)
+        activityDao.softDeleteActivitiesByProfile(1L, 1L)
+        activityDao.restoreActivity(1L)
+        activityDao.restoreActivitiesByProfile(1L)
+        activityDao.purgeDeletedActivities(1L, 500)
+
+        val archiveDao = database.archiveDao()
+        archiveDao.archiveBatch(Long.MAX_VALUE, 500)
+        archiveDao.getLatestArchivedTimestamp()
+        archiveDao.getActivitiesByDateRange(0L, Long.MAX_VALUE)
+        archiveDao.getActivityItemsByDateRange(0L, Long.MAX_VALUE)
+        archiveDao.getAnalyticsCursor().use { it.count }
+        archiveDao.softDeleteByProfile(1L, 1L)
+        archiveDao.restoreByProfile(1L)
+        archiveDao.purgeDeleted(1L, 500)
+
+        val categoryDao = database.categoryDao()
+        categoryDao.getOrCreateCategoryId("School")
+        categoryDao.getAllCategories()
+        categoryDao.getCategoriesInUse()
+        categoryDao.renameCategory(1L, "Lessons")
+
+        val reminderDao = database.reminderDao()
+        reminderDao.getReminderById(1L)
+        reminderDao.getAllReminders()
+        reminderDao.observeAllReminders().first()
+        reminderDao.getRemindersByProfile(1L)
+        reminderDao.getRemindersByActivity(1L)
+        reminderDao.getFirstReminderForActivity(1L)
+        reminderDao.getEarliestFireTime()
+        reminderDao.getDueReminderNotices(1L)
+        reminderDao.getPendingReminders()
+        reminderDao.setNextFireAt(1L, 1L)
+        reminderDao.softDeleteReminder(1L, 1L)
+        reminderDao.softDeleteRemindersByProfile(1L, 1L)
+        reminderDao.restoreReminder(1L)
+        reminderDao.restoreRemindersByProfile(1L)
+        reminderDao.purgeDeletedReminders(1L, 500)
+
+        val profileDao = database.profileDao()
+        profileDao.getProfileById(1L)
+        profileDao.getAllProfiles()
+        profileDao.observeAllProfiles().first()
+        profileDao.softDeleteProfile(1L, 1L)
+        profileDao.restoreProfile(1L)
+        profileDao.purgeDeletedProfiles(1L, 500)
+
+        val reportDao = database.reportDao()
+        reportDao.getActivityCounts(0L, 0L, Long.MAX_VALUE)
+        reportDao.getCategoryCounts()
+        reportDao.getMostRecentActivities(5)
+        reportDao.getDailySummaries(0L, 7L)
+        reportDao.getAnalyticsCursor().use { it.count }
+    }
+
+    private fun isPlannable(sql: String): Boolean {
+        val verb = sql.trim().split(Regex("\\s+"), limit = 2).first().uppercase()
+        return verb == "SELECT" || verb == "UPDATE" || verb == "DELETE" || verb == "WITH"
+    }
+
+    private fun isFullScan(detail: String): Boolean {
+        val match = FULL_SCAN.find(detail.trim()) ?: return false
+        val table = match.groupValues[1]
+        val rest = match.groupValues[2]
+        if (table == "SUBQUERY" || table == "CONSTANT" || table in DERIVED_TABLES) return false
+        if (table in FULL_SCAN_ALLOWED_TABLES) return false
+        return !rest.contains("INDEX")
+    }
+
+    private fun explain(sql: String, args: List<Any?>): List<String> {
+        val plan = mutableListOf<String>()
+        database.openHelper.writableDatabase
+            .query(SimpleSQLiteQuery("EXPLAIN QUERY PLAN $sql", args.toTypedArray()))
+            .use { cursor ->
+                val detail = cursor.getColumnIndexOrThrow("detail")
+                while (cursor.moveToNext()) {
+                    plan.add(cursor.getString(detail))
+                }
+            }
+        return plan
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.kidtrack.data.repository
+
+import android.database.MatrixCursor
+import com.example.kidtrack.Benchmark
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.utils.DateTimeUtils
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Compares report calculations over a columnar snapshot with the same calculations
+ * over a list of activities, as getReportStatistics used to do them.
+ * Both must agree; the timing comparison only runs as a [Benchmark].
+ */
+@RunWith(RobolectricTestRunner::class)
+class ActivityColumnsBenchmarkTest {
+
+    companion object {
+        private const val ACTIVITIES = 100_000
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        private val CATEGORIES = listOf("School", "Sport", "Music", "Chores", "Play", "Health")
+
+        private const val NOW = 900 * DAY_MS
+        private const val WEEK_START = 896 * DAY_MS
+        private const val WEEK_END = 903 * DAY_MS - 1
+
+        private const val WARM_UP_ROUNDS = 5
+        private const val ROUNDS = 20
+        // Minimum speed-up of the columnar calculations over the list-based ones
+        private const val MIN_SPEEDUP = 2.0
+    }
+
+    private data class Totals(val total: Int, val completed: Int, val thisWeek: Int, val byCategory: Map<Long, Int>)
+
+    @Test
+    fun columnarReportAgrees() {
+        val activities = List(ACTIVITIES) { i -> activity(i) }
+        val columns = columnsOf(activities)
+
+        assertEquals(listBased(activities, NOW, WEEK_START, WEEK_END), columnar(columns, NOW, WEEK_START, WEEK_END))
+        assertEquals(
+            activities.filter { it.dateTimestamp in WEEK_START..WEEK_END }.groupBy { it.categoryId }.mapValues { it.value.size },
+            columns.categoryBreakdown(WEEK_START, WEEK_END)
+        )
+        assertEquals(
+            activities.filter { it.dateTimestamp in WEEK_START..WEEK_END }.groupBy { DateTimeUtils.toEpochDay(it.dateTimestamp) }.mapValues { it.value.size },
+            columns.dayBreakdown(WEEK_START, WEEK_END)
+        )
+    }
+
+    @Test
+    @Category(Benchmark::class)
+    fun columnarReportIsFaster() {
+        val activities = List(ACTIVITIES) { i -> activity(i) }
+        val columns = columnsOf(activities)
+
+        repeat(WARM_UP_ROUNDS) {
+            listBased(activities, NOW, WEEK_START, WEEK_END)
+            columnar(columns, NOW, WEEK_START, WEEK_END)
+        }
+        val listNs = time { listBased(activities, NOW, WEEK_START, WEEK_END) }
+        val columnarNs = time { columnar(columns, NOW, WEEK_START, WEEK_END) }
+        val speedup = listNs.toDouble() / columnarNs
+
+        assertTrue(
+            "Columnar report over $ACTIVITIES activities was only ${"%.1f".format(speedup)}x faster " +
+                "(list ${listNs / 1_000} us, columnar ${columnarNs / 1_000} us)",
+            speedup >= MIN_SPEEDUP
+        )
+    }
+
+    @Test
+    fun readsCursorAndEncodesDictionaries() {
+        val cursor = MatrixCursor(ActivityColumns.COLUMNS).apply {
+            addRow(arrayOf<Any>(0L, 8 * 60, 7L, 1L))
+            addRow(arrayOf<Any>(DAY_MS, 17 * 60 + 30, 9L, 2L))
+            addRow(arrayOf<Any>(2 * DAY_MS, 8 * 60 + 15, 7L, 1L))
+        }
+
+        val columns = cursor.use { ActivityColumns.fromCursor(it) }
+
+        assertEquals(3, columns.size)
+        assertArrayEquals(longArrayOf(1L, 2L), columns.categoryIds)
+        assertArrayEquals(longArrayOf(7L, 9L), columns.profileIds)
+        assertArrayEquals(intArrayOf(2, 1), columns.countByProfileCode())
+        assertArrayEquals(intArrayOf(2, 0, 0, 1), columns.countByProfileAndCategory())
+        assertEquals(mapOf(1L to 2, 2L to 1), columns.categoryBreakdown())
+        assertEquals(2, columns.timeOfDayHistogram(60)[8])
+        assertEquals(1, columns.timeOfDayHistogram(60)[17])
+        assertEquals(3, columns.dayOfWeekHistogram().sum())
+    }
+
+    // The calculations getReportStatistics made over List<Activity> before counts moved to SQL
+    private fun listBased(activities: List<Activity>, now: Long, weekStart: Long, weekEnd: Long): Totals {
+        val thisWeek = activities.filter { it.dateTimestamp in weekStart..weekEnd }
+        val completed = activities.filter { it.dateTimestamp < now }
+        val byCategory = activities.groupBy { it.categoryId!! }.mapValues { it.value.size }
+        return Totals(activities.size, completed.size, thisWeek.size, byCategory)
+    }
+
+    private fun columnar(columns: ActivityColumns, now: Long, weekStart: Long, weekEnd: Long): Totals =
+        Totals(columns.size, columns.countBefore(now), columns.countInRange(weekStart, weekEnd), columns.categoryBreakdown())
+
+    private fun columnsOf(activities: List<Activity>): ActivityColumns =
+        ActivityColumns.Builder(activities.size).apply {
+            activities.forEach { add(it.dateTimestamp, it.timeMinutes, it.profileId, it.categoryId!!) }
+        }.build()
+
+    private inline fun time(block: () -> Unit): Long {
+        val start = System.nanoTime()
+        repeat(ROUNDS) { block() }
+        return (System.nanoTime() - start) / ROUNDS
+    }
+
+    private fun activity(i: Int) = Activity(
+        id = i + 1L,
+        category = CATEGORIES[i % CATEGORIES.size],
+        description = "Activity $i",
+        notes = "",
+        dateTimestamp = (i / 100) * DAY_MS + DAY_MS / 2,
+        timeMinutes = (i * 37) % (24 * 60),
+        profileId = 1L + i % 3,
+        categoryId = 1L + i % CATEGORIES.size
+    )
+}
@@ -0,0 +1,194 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.model.ActivityRecord
+import com.example.kidtrack.data.model.UserProfile
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that reads served by the in-memory activity index match the database
+ * after repository writes and after writes made behind the repository's back.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ActivityIndexTest {
+
+    companion object {
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        // A year of activities for two children
+        private const val DAYS = 365
+        private const val ACTIVITIES_PER_DAY = 4
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun rangeReadsMatchDatabase() = runBlocking {
+        repository.importActivities(year())
+
+        val start = 30 * DAY_MS
+        val end = 60 * DAY_MS - 1
+        assertEquals(
+            database.activityDao().getActivitiesByDateRange(start, end).map { it.id },
+            repository.getActivitiesInRange(start, end).map { it.id }
+        )
+        assertEquals(
+            database.activityDao().getActivitiesByProfile(2L).map { it.id },
+            repository.getActivitiesByProfile(2L).map { it.id }
+        )
+        assertEquals(
+            database.activityDao().getAllActivities().map { it.id },
+            repository.getAllActivities().map { it.id }
+        )
+    }
+
+    @Test
+    fun repositoryWritesAreVisibleImmediately() = runBlocking {
+        repository.getActivitiesByProfile(1L) // load the index
+        val id = repository.insertActivity(activity(day = 3, slot = 0, profileId = 1L))
+
+        assertEquals(listOf(id), repository.getActivitiesInRange(3 * DAY_MS, 4 * DAY_MS - 1).map { it.id })
+
+        val moved = activity(day = 10, slot = 1, profileId = 1L).copy(id = id, description = "Moved")
+        repository.updateActivity(moved)
+        assertTrue(repository.getActivitiesInRange(3 * DAY_MS, 4 * DAY_MS - 1).isEmpty())
+        val stored = database.activityDao().getActivityById(id)
+        assertEquals("Moved", stored?.description)
+        assertEquals(stored, repository.getActivityById(id))
+        val sportId = database.categoryDao().getCategoryId("Sport")!!
+        assertEquals(listOf(stored), repository.getActivitiesByCategory(sportId))
+
+        repository.deleteActivity(moved)
+        assertNull(repository.getActivityById(id))
+        assertTrue(repository.getActivitiesByCategory(sportId).isEmpty())
+    }
+
+    @Test
+    fun deletingProfileRemovesItsActivities() = runBlocking {
+        repository.importActivities(year().take(40))
+        repository.getActivitiesByProfile(1L) // load the index
+
+        repository.deleteUserProfile(UserProfile(id = 1L, name = "Sam", age = 8))
+
+        assertTrue(repository.getActivitiesByProfile(1L).isEmpty())
+        assertEquals(20, repository.getActivitiesByProfile(2L).size)
+    }
+
+    @Test
+    fun rebuildsAfterExternalWrite() = runBlocking {
+        repository.getActivitiesByProfile(1L) // load the index
+        database.activityDao().insertActivity(record(activity(day = 5, slot = 0, profileId = 1L)))
+
+        withTimeout(5_000) {
+            while (repository.getActivitiesByProfile(1L).isEmpty()) {
+                delay(10)
+            }
+        }
+        assertEquals(1, repository.getActivitiesInRange(5 * DAY_MS, 6 * DAY_MS - 1).size)
+    }
+
+    @Test
+    fun externalWriteIsNotTakenForRepositoryWrite() = runBlocking {
+        repository.getActivitiesByProfile(1L) // load the index
+        // Straight before a repository write, so Room may report both in one invalidation
+        database.activityDao().insertActivity(record(activity(day = 5, slot = 0, profileId = 1L)))
+        repository.insertActivity(activity(day = 6, slot = 0, profileId = 1L))
+
+        withTimeout(5_000) {
+            while (repository.getActivitiesByProfile(1L).size < 2) {
+                delay(10)
+            }
+        }
+        assertEquals(
+            database.activityDao().getActivitiesByProfile(1L).map { it.id },
+            repository.getActivitiesByProfile(1L).map { it.id }
+        )
+    }
+
+    @Test
+    fun readIsRepeatedWhenAWriteCommitsDuringIt() = runBlocking {
+        val index = ActivityIndex(database)
+        var attempts = 0
+
+        val count = index.readConsistently {
+            attempts++
+            val count = database.activityDao().getAllActivities().size
+            // A write landing between the version reads
+            if (attempts == 1) database.activityDao().insertActivity(record(activity(day = 1, slot = 0, profileId = 1L)))
+            count
+        }
+
+        assertEquals(2, attempts)
+        assertEquals(1, count)
+    }
+
+    @Test
+    fun rangeLookupsOverAYearMatchTheDatabase() = runBlocking {
+        repository.importActivities(year())
+        repository.getActivitiesByProfile(1L) // load the index
+
+        for (day in 0L until DAYS step 7) {
+            val start = day * DAY_MS
+            val end = (day + 7) * DAY_MS - 1
+            val expected = database.activityDao().getActivitiesByDateRange(start, end)
+            assertEquals(expected, repository.getActivitiesInRange(start, end))
+        }
+        val today = DateTimeUtils.getStartOfTodayTimestamp()
+        assertEquals(
+            database.activityDao().getActivitiesByDateRange(today, today + DAY_MS - 1),
+            repository.getTodayActivities()
+        )
+    }
+
+    private fun year(): Sequence<ActivityImport> = sequence {
+        for (day in 0 until DAYS) {
+            for (slot in 0 until ACTIVITIES_PER_DAY) {
+                yield(ActivityImport(activity(day, slot, profileId = 1L + slot % 2)))
+            }
+        }
+    }
+
+    // As written by code that bypasses the repository
+    private suspend fun record(activity: Activity): ActivityRecord =
+        activity.copy(categoryId = database.categoryDao().getOrCreateCategoryId(activity.category)).toRecord()
+
+    private fun activity(day: Int, slot: Int, profileId: Long) = Activity(
+        category = if (slot % 2 == 0) "School" else "Sport",
+        description = "Activity $slot",
+        notes = "",
+        dateTimestamp = day * DAY_MS,
+        timeMinutes = 8 * 60 + slot * 60,
+        profileId = profileId
+    )
+}
@@ -0,0 +1,117 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.model.UserProfile
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that archiving moves old activities out of the current table while date-range
+ * reads, reports and profile deletes still see the whole history.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ArchiveTieringTest {
+
+    companion object {
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        private const val DAYS = 60
+        private const val HORIZON = 40 * DAY_MS
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun rangesSpanBothTiers() = runBlocking {
+        repository.importActivities((0 until DAYS).asSequence().map { ActivityImport(activity(it, profileId = 1L)) })
+        val everything = repository.getActivitiesInRange(0L, DAYS * DAY_MS)
+        val items = repository.getActivityItemsInRange(0L, DAYS * DAY_MS)
+
+        assertEquals(40, repository.archiveActivities(HORIZON, batchSize = 7))
+
+        assertEquals(20, countRows("SELECT COUNT(*) FROM activities"))
+        assertEquals(40, countRows("SELECT COUNT(*) FROM activities_archive"))
+        assertEquals(everything, repository.getActivitiesInRange(0L, DAYS * DAY_MS))
+        assertEquals(items.map { it.activity }, repository.getActivityItemsInRange(0L, DAYS * DAY_MS).map { it.activity })
+        // Day-to-day reads see only the current tier
+        assertEquals(20, repository.getActivitiesByProfile(1L).size)
+        assertEquals(everything.takeLast(5), repository.getActivitiesInRange(55 * DAY_MS, DAYS * DAY_MS))
+    }
+
+    @Test
+    fun reportsKeepTheFullHistory() = runBlocking {
+        repository.importActivities((0 until DAYS).asSequence().map { ActivityImport(activity(it, profileId = 1L)) })
+        val columnsBefore = repository.getActivityColumns()
+        val countsBefore = database.reportDao().getCategoryCounts()
+
+        repository.archiveActivities(HORIZON)
+
+        assertEquals(countsBefore, database.reportDao().getCategoryCounts())
+        val columnsAfter = repository.getActivityColumns()
+        assertEquals(columnsBefore.size, columnsAfter.size)
+        assertEquals(columnsBefore.categoryBreakdown(), columnsAfter.categoryBreakdown())
+    }
+
+    @Test
+    fun profileDeleteAndCategoryRenameReachTheArchive() = runBlocking {
+        val sam = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        repository.importActivities((0 until DAYS).asSequence().map { ActivityImport(activity(it, profileId = sam)) })
+        repository.archiveActivities(HORIZON)
+        val profile = repository.getUserProfileById(sam)!!
+
+        repository.deleteUserProfile(profile)
+        assertTrue(repository.getActivitiesInRange(0L, DAYS * DAY_MS).isEmpty())
+        assertEquals(0, database.reportDao().getActivityCounts(0, 0, 0).total)
+
+        repository.restoreUserProfile(profile)
+        assertEquals(DAYS, repository.getActivitiesInRange(0L, DAYS * DAY_MS).size)
+
+        val schoolId = database.categoryDao().getCategoryId("School")!!
+        repository.renameCategory(schoolId, "Lessons")
+        val archived = database.archiveDao().getActivitiesByDateRange(0L, DAYS * DAY_MS)
+        assertEquals(40, archived.size)
+        assertTrue(archived.all { it.category == "Lessons" })
+        assertEquals(listOf("Lessons"), database.reportDao().getCategoryCounts().map { it.category })
+    }
+
+    private fun countRows(sql: String): Int =
+        database.openHelper.readableDatabase.query(sql).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+
+    private fun activity(day: Int, profileId: Long) = Activity(
+        category = "School",
+        description = "Day $day",
+        notes = "",
+        dateTimestamp = day * DAY_MS + DAY_MS / 2,
+        timeMinutes = 9 * 60,
+        profileId = profileId
+    )
+}
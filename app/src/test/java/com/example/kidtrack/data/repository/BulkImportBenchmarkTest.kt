@@ -0,0 +1,153 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.Benchmark
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import com.example.kidtrack.data.model.Reminder
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Imports a full school term for several children into an in-memory database and checks
+ * every row arrives, linked and reported. Timing the import only runs as a [Benchmark].
+ */
+@RunWith(RobolectricTestRunner::class)
+class BulkImportBenchmarkTest {
+
+    companion object {
+        private const val CHILDREN = 3
+        private const val WEEKS = 13
+        private const val SCHOOL_DAYS_PER_WEEK = 5
+        private const val ACTIVITIES_PER_DAY = 6
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+
+        // Upper bound for importing the whole term, activities and reminders
+        private const val TERM_BUDGET_MS = 1000L
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun importsWholeSchoolTerm() = runBlocking {
+        val items = (1L..CHILDREN).asSequence().flatMap { termFor(it) }
+        val expected = CHILDREN * WEEKS * SCHOOL_DAYS_PER_WEEK * ACTIVITIES_PER_DAY
+        val progress = mutableListOf<Int>()
+
+        val result = repository.importActivities(items) { progress.add(it) }
+
+        assertEquals(expected, result.activityIds.size)
+        assertEquals(expected, result.reminderIds.size)
+        assertEquals(expected, countRows("SELECT COUNT(*) FROM activities"))
+        assertEquals(expected, countRows("SELECT COUNT(*) FROM reminders"))
+        // Ids come back in input order, each row once
+        assertEquals(result.activityIds.sorted(), result.activityIds)
+        assertEquals(result.activityIds.size, result.activityIds.toSet().size)
+        // One callback per committed chunk, the last one covering the whole term
+        val chunks = (expected + KidTrackRepository.DEFAULT_IMPORT_CHUNK_SIZE - 1) / KidTrackRepository.DEFAULT_IMPORT_CHUNK_SIZE
+        assertEquals(chunks, progress.size)
+        assertEquals(progress.sorted(), progress)
+        assertEquals(expected, progress.last())
+        // Each child's term is in the index as well as the table
+        for (profileId in 1L..CHILDREN) {
+            assertEquals(expected / CHILDREN, repository.getActivitiesByProfile(profileId).size)
+        }
+    }
+
+    @Test
+    @Category(Benchmark::class)
+    fun importsSchoolTermWithinBudget() = runBlocking {
+        // Warm up the SQLite and Room code paths so the measurement covers the import only
+        repository.importActivities(termFor(profileId = 99L).take(200))
+        database.clearAllTables()
+
+        val items = (1L..CHILDREN).asSequence().flatMap { termFor(it) }
+        val start = System.nanoTime()
+        val result = repository.importActivities(items)
+        val elapsedMs = (System.nanoTime() - start) / 1_000_000
+
+        val rows = result.activityIds.size + result.reminderIds.size
+        assertTrue(
+            "Importing $rows rows took $elapsedMs ms, budget is $TERM_BUDGET_MS ms",
+            elapsedMs < TERM_BUDGET_MS
+        )
+    }
+
+    @Test
+    fun linksRemindersToImportedActivities() = runBlocking {
+        val items = termFor(profileId = 1L).take(25).toList()
+        val result = repository.importActivities(items.asSequence(), chunkSize = 10)
+
+        result.activityIds.zip(result.reminderIds).forEach { (activityId, reminderId) ->
+            val reminder = database.reminderDao().getReminderById(reminderId)
+            assertEquals(activityId, reminder?.associatedActivityId)
+        }
+    }
+
+    @Test
+    fun reportsProgressOncePerChunk() = runBlocking {
+        val progress = mutableListOf<Int>()
+        repository.importActivities(termFor(profileId = 1L).take(25), chunkSize = 10) { progress.add(it) }
+
+        assertEquals(listOf(10, 20, 25), progress)
+    }
+
+    private fun countRows(sql: String): Int =
+        database.openHelper.readableDatabase.query(sql).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+
+    private fun termFor(profileId: Long): Sequence<ActivityImport> = sequence {
+        for (week in 0 until WEEKS) {
+            for (day in 0 until SCHOOL_DAYS_PER_WEEK) {
+                val dateTimestamp = (week * 7L + day) * DAY_MS
+                for (slot in 0 until ACTIVITIES_PER_DAY) {
+                    val activity = Activity(
+                        category = "School",
+                        description = "Lesson ${slot + 1}",
+                        notes = "Week ${week + 1}, day ${day + 1}",
+                        dateTimestamp = dateTimestamp,
+                        timeMinutes = 8 * 60 + slot * 60,
+                        profileId = profileId
+                    )
+                    val reminder = Reminder(
+                        name = "Lesson ${slot + 1}",
+                        timeMinutes = 7 * 60,
+                        frequency = "once",
+                        associatedActivityId = 0,
+                        profileId = profileId,
+                        eventDateTimestamp = dateTimestamp
+                    )
+                    yield(ActivityImport(activity, reminder))
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.UserProfile
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that cached profile reads follow writes made through the repository
+ * and writes made directly on the profiles table.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ProfileCacheTest {
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun followsRepositoryWrites() = runBlocking {
+        repository.warmProfileCache()
+        val id = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        assertEquals("Sam", repository.getProfileName(id))
+
+        repository.insertUserProfile(UserProfile(id = id, name = "Samantha", age = 9))
+        assertEquals("Samantha", repository.getProfileName(id))
+        assertEquals(1, repository.getAllUserProfiles().size)
+
+        repository.deleteUserProfile(UserProfile(id = id, name = "Samantha", age = 9))
+        assertNull(repository.getProfileName(id))
+        assertEquals(0, repository.getAllUserProfiles().size)
+    }
+
+    @Test
+    fun reloadsAfterDirectTableWrite() = runBlocking {
+        repository.warmProfileCache()
+        val id = database.profileDao().insertProfile(UserProfile(name = "Alex", age = 6))
+
+        withTimeout(5_000) {
+            while (repository.getProfileName(id) == null) {
+                delay(10)
+            }
+        }
+        assertEquals("Alex", repository.getUserProfileById(id)?.name)
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that cached report results are reused until a table they depend on changes,
+ * and that the size bound and time to live are honoured.
+ */
+@RunWith(RobolectricTestRunner::class)
+class QueryResultCacheTest {
+
+    private lateinit var database: KidTrackDatabase
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun repeatVisitsAreServedFromMemory() = runBlocking {
+        val repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+
+        repository.getWeeklySummary()
+        repository.getReportStatistics()
+        repository.getWeeklySummary()
+        repository.getReportStatistics()
+
+        // Both reports read the cached activity snapshot, loaded once on the first visit
+        val stats = repository.getQueryCacheStats()
+        assertEquals(3L, stats.misses)
+        assertEquals(3L, stats.hits)
+    }
+
+    @Test
+    fun tableChangeDropsDependentEntries() = runBlocking {
+        val repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+        assertEquals(0, repository.getWeeklySummary()["totalActivities"])
+
+        repository.insertActivity(
+            Activity(
+                category = "School",
+                description = "Reading",
+                notes = "",
+                dateTimestamp = DateTimeUtils.getStartOfTodayTimestamp(),
+                timeMinutes = 9 * 60,
+                profileId = 1L
+            )
+        )
+
+        withTimeout(5_000) {
+            while (repository.getWeeklySummary()["totalActivities"] != 1) {
+                delay(10)
+            }
+        }
+        assertTrue(repository.getQueryCacheStats().invalidations > 0)
+    }
+
+    @Test
+    fun repositoryWritesAreVisibleToTheNextRead() = runBlocking {
+        val repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+        assertEquals(0, repository.getWeeklySummary()["totalActivities"])
+        assertEquals(0, repository.getReportStatistics().totalActivities)
+
+        val activity = Activity(
+            category = "School",
+            description = "Reading",
+            notes = "",
+            dateTimestamp = DateTimeUtils.getStartOfTodayTimestamp(),
+            timeMinutes = 9 * 60,
+            profileId = 1L
+        )
+        val id = repository.insertActivity(activity)
+        // No waiting for the invalidation tracker: the write dropped the entries as it returned
+        assertEquals(1, repository.getWeeklySummary()["totalActivities"])
+        assertEquals(mapOf("School" to 1), repository.getReportStatistics().categoryBreakdown)
+
+        val schoolId = database.categoryDao().getCategoryId("School")!!
+        repository.renameCategory(schoolId, "Lessons")
+        assertEquals(mapOf("Lessons" to 1), repository.getReportStatistics().categoryBreakdown)
+
+        repository.deleteActivity(activity.copy(id = id))
+        assertEquals(0, repository.getWeeklySummary()["totalActivities"])
+        assertEquals(0, repository.getReportStatistics().totalActivities)
+    }
+
+    @Test
+    fun leastRecentlyUsedEntryIsEvicted() = runBlocking {
+        val cache = QueryResultCache(database, maxEntries = 2)
+        var loads = 0
+        suspend fun read(key: String) = cache.get(key, setOf("activities")) { ++loads }
+
+        read("a")
+        read("b")
+        read("a") // "b" is now least recently used
+        read("c")
+        read("a")
+        read("b")
+
+        assertEquals(4, loads)
+        assertEquals(2L, cache.stats().evictions)
+    }
+
+    @Test
+    fun entriesExpireAfterTheirTimeToLive() = runBlocking {
+        var now = 1_000L
+        val cache = QueryResultCache(database, clock = { now })
+        var loads = 0
+
+        cache.get("today", setOf("activities"), ttlMillis = 500) { ++loads }
+        now += 499
+        cache.get("today", setOf("activities"), ttlMillis = 500) { ++loads }
+        now += 1
+        cache.get("today", setOf("activities"), ttlMillis = 500) { ++loads }
+
+        assertEquals(2, loads)
+        assertEquals(QueryResultCache.Stats(hits = 1, misses = 2, evictions = 0, invalidations = 0), cache.stats())
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.data.model.UserProfile
+import com.example.kidtrack.utils.ReminderRecurrence
+import com.example.kidtrack.utils.ReminderScheduler
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks the queue of reminder fire times behind the single reminder alarm:
+ * the earliest time is the one armed, and dispatching takes everything due and advances it.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ReminderQueueTest {
+
+    companion object {
+        private const val MINUTE_MS = 60_000L
+        private const val DAY_MS = 24 * 60 * MINUTE_MS
+        // A daylight-saving change can stretch a day by this much
+        private const val DST_MS = 60 * MINUTE_MS
+    }
+
+    // Saved reminders start their series today, so the queue is exercised around the real time
+    private val now = System.currentTimeMillis()
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun savedRemindersAreQueued() = runBlocking {
+        val id = repository.insertReminder(reminder("daily"))
+
+        val nextFireAt = repository.getReminderById(id)?.nextFireAt
+        assertNotNull(nextFireAt)
+        assertTrue(nextFireAt!! > System.currentTimeMillis())
+        assertEquals(nextFireAt, repository.getNextReminderFireTime())
+    }
+
+    @Test
+    fun dispatchTakesEverythingDueAndAdvancesIt() = runBlocking {
+        val daily = queue(reminder("daily"), now)
+        val once = queue(reminder("once"), now + 30_000)
+        val later = queue(reminder("daily"), now + 2 * MINUTE_MS)
+        assertEquals(now, repository.getNextReminderFireTime())
+
+        val due = repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now)
+
+        assertEquals(listOf(daily, once), due.map { it.reminder.id })
+        val advanced = repository.getReminderById(daily)?.nextFireAt!!
+        assertTrue(advanced > now && advanced <= now + DAY_MS + DST_MS)
+        assertNull(repository.getReminderById(once)?.nextFireAt)
+        assertEquals(now + 2 * MINUTE_MS, repository.getNextReminderFireTime())
+        // A repeated alarm finds nothing left to dispatch
+        assertTrue(repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now).isEmpty())
+        assertEquals(later, repository.takeDueReminders(now + 2 * MINUTE_MS, now + 2 * MINUTE_MS).single().reminder.id)
+    }
+
+    @Test
+    fun snoozeQueuesAFinishedReminderAgain() = runBlocking {
+        val once = queue(reminder("once"), now)
+        repository.takeDueReminders(now, now)
+        assertNull(repository.getNextReminderFireTime())
+
+        repository.snoozeReminder(once, now + 10 * MINUTE_MS)
+
+        assertEquals(now + 10 * MINUTE_MS, repository.getNextReminderFireTime())
+        assertEquals(once, repository.takeDueReminders(now + 10 * MINUTE_MS, now + 10 * MINUTE_MS).single().reminder.id)
+        assertNull(repository.getNextReminderFireTime())
+    }
+
+    @Test
+    fun unpostedRemindersGoBackUnlessChangedMeanwhile() = runBlocking {
+        val daily = queue(reminder("daily"), now)
+        val once = queue(reminder("once"), now + 1)
+        val snoozed = queue(reminder("daily"), now + 2)
+        val due = repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now)
+        repository.snoozeReminder(snoozed, now + 10 * MINUTE_MS)
+
+        assertEquals(2, repository.requeueReminders(due, now))
+
+        assertEquals(now, repository.getReminderById(daily)?.nextFireAt)
+        assertEquals(now + 1, repository.getReminderById(once)?.nextFireAt)
+        assertEquals(now + 10 * MINUTE_MS, repository.getReminderById(snoozed)?.nextFireAt)
+        // Taken again by the next alarm
+        assertEquals(listOf(daily, once), repository.takeDueReminders(now + 2, now).map { it.reminder.id })
+    }
+
+    @Test
+    fun deletedRemindersLeaveTheQueue() = runBlocking {
+        val first = queue(reminder("daily"), now)
+        queue(reminder("daily"), now + MINUTE_MS)
+
+        repository.deleteReminder(repository.getReminderById(first)!!)
+
+        assertEquals(now + MINUTE_MS, repository.getNextReminderFireTime())
+        assertEquals(1, repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now).size)
+    }
+
+    @Test
+    fun dueRemindersCarryTheirActivityAndChild() = runBlocking {
+        val sam = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        val lesson = repository.insertActivity(activity("Piano", DAY_MS, sam))
+        val practice = repository.insertActivity(activity("Football", now, sam))
+        // The first activity is old enough to move to the archive table
+        repository.archiveActivities(now - DAY_MS)
+        val archived = queue(reminder("daily").copy(associatedActivityId = lesson, profileId = sam), now)
+        val current = queue(reminder("daily").copy(associatedActivityId = practice, profileId = sam), now + 1)
+        val orphaned = queue(reminder("daily").copy(associatedActivityId = 999L, profileId = sam), now + 2)
+
+        val due = repository.takeDueReminders(now + ReminderScheduler.DISPATCH_WINDOW_MS, now)
+
+        assertEquals(listOf(archived, current, orphaned), due.map { it.reminder.id })
+        assertEquals(listOf("Piano", "Football", null), due.map { it.activityDescription })
+        // The child comes from the reminder, so one whose activity is gone is still named
+        assertEquals(listOf("Sam", "Sam", "Sam"), due.map { it.profileName })
+        assertEquals(now, due[1].activityDateTimestamp)
+    }
+
+    @Test
+    fun repeatingRemindersSkipMissedOccurrences() {
+        val firedAt = now + 9 * 60 * MINUTE_MS
+        val daily = reminder("daily").copy(timeMinutes = 0, nextFireAt = firedAt)
+
+        val following = ReminderRecurrence().followingOccurrence(daily, now = firedAt + 3 * DAY_MS)!!
+
+        assertTrue(following > firedAt + 3 * DAY_MS && following <= firedAt + 4 * DAY_MS + DST_MS)
+        assertNull(ReminderRecurrence().followingOccurrence(daily.copy(frequency = "once"), firedAt))
+    }
+
+    private suspend fun queue(reminder: Reminder, nextFireAt: Long): Long {
+        val id = repository.insertReminder(reminder)
+        database.reminderDao().setNextFireAt(id, nextFireAt)
+        return id
+    }
+
+    private fun activity(description: String, dateTimestamp: Long, profileId: Long) = Activity(
+        category = "Lessons",
+        description = description,
+        notes = "",
+        dateTimestamp = dateTimestamp,
+        timeMinutes = 16 * 60,
+        profileId = profileId
+    )
+
+    private fun reminder(frequency: String) = Reminder(
+        name = "Pack books",
+        timeMinutes = 8 * 60,
+        frequency = frequency,
+        associatedActivityId = 1L,
+        profileId = 1L
+    )
+}
@@ -0,0 +1,101 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.withTransaction
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.utils.ReminderRecurrence
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.time.Instant
+import java.time.LocalTime
+import java.time.ZoneId
+import java.util.TimeZone
+
+/**
+ * Seeds thousands of pending reminders, moves the device to another time zone and
+ * reschedules them all, as the receiver does after a time zone change or a reboot.
+ * Every future reminder must keep its local time in the new zone, and the pass must be idempotent.
+ */
+@RunWith(RobolectricTestRunner::class)
+class RescheduleBenchmarkTest {
+
+    companion object {
+        private const val REMINDERS = 5_000
+        private const val MISSED = 100
+        private const val MINUTE_MS = 60_000L
+        private val FREQUENCIES = listOf("once", "daily", "weekly", "monthly")
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+    private lateinit var defaultZone: TimeZone
+
+    @Before
+    fun setUp() {
+        defaultZone = TimeZone.getDefault()
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        TimeZone.setDefault(defaultZone)
+    }
+
+    @Test
+    fun reschedulesThousandsAfterTimeZoneChange() = runBlocking {
+        val now = System.currentTimeMillis()
+        seed(now)
+        // Nothing changes while the zone stays the same
+        assertEquals(0, repository.rescheduleReminders(now))
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        val changed = repository.rescheduleReminders(now)
+
+        assertEquals(REMINDERS - MISSED, changed)
+        // Repeated broadcasts do no further work
+        assertEquals(0, repository.rescheduleReminders(now))
+
+        val tokyo = ZoneId.of("Asia/Tokyo")
+        val pending = database.reminderDao().getPendingReminders()
+        assertEquals(REMINDERS, pending.size)
+        pending.filter { it.nextFireAt!! > now }.forEach { reminder ->
+            val local = Instant.ofEpochMilli(reminder.nextFireAt!!).atZone(tokyo).toLocalTime()
+            assertEquals(LocalTime.of(reminder.timeMinutes / 60, reminder.timeMinutes % 60), local)
+        }
+        // Reminders missed while the device was off keep their time and fire on re-arm
+        assertEquals(MISSED, pending.count { it.nextFireAt!! <= now })
+    }
+
+    private suspend fun seed(now: Long) {
+        val recurrence = ReminderRecurrence()
+        val reminders = List(REMINDERS) { i ->
+            val reminder = recurrence.schedule(
+                Reminder(
+                    name = "Reminder $i",
+                    timeMinutes = (i % 24) * 60,
+                    frequency = FREQUENCIES[i % FREQUENCIES.size],
+                    associatedActivityId = i.toLong(),
+                    profileId = 1L
+                ),
+                now
+            )
+            if (i < MISSED) reminder.copy(nextFireAt = now - (i + 1) * MINUTE_MS) else reminder
+        }
+        database.withTransaction { database.reminderDao().insertReminders(reminders) }
+    }
+}
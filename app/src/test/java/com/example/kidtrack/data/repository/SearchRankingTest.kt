@@ -0,0 +1,87 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityImport
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that search ranks every match before applying its limit, so the best match is found
+ * however many weaker, newer ones there are.
+ */
+@RunWith(RobolectricTestRunner::class)
+class SearchRankingTest {
+
+    companion object {
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        // More weak matches than any fixed candidate window would hold
+        private const val WEAK_MATCHES = 1_000
+    }
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun oldestBestMatchComesFirst() = runBlocking {
+        // Inserted first, so it has the lowest id of all the matches
+        val best = repository.insertActivity(activity("Swimming lesson", notes = "", day = 0))
+        repository.importActivities(
+            (1..WEAK_MATCHES).asSequence().map { ActivityImport(activity("Reading", notes = "after swimming", day = it)) }
+        )
+
+        val results = repository.searchActivities("swim", null, 5)
+
+        assertEquals(5, results.size)
+        assertEquals(best, results.first().activity.id)
+        // Equal scores fall back to newest first
+        val rest = results.drop(1).map { it.activity.id }
+        assertEquals(rest.sortedDescending(), rest)
+    }
+
+    @Test
+    fun categoryFilterAndLimitApplyAfterRanking() = runBlocking {
+        repository.insertActivity(activity("Swimming lesson", notes = "", day = 0, category = "Sport"))
+        val school = repository.insertActivity(activity("Swimming gala", notes = "swimming cap", day = 1, category = "School"))
+        repository.insertActivity(activity("Reading", notes = "swimming kit", day = 2, category = "School"))
+        val schoolId = database.categoryDao().getCategoryId("School")!!
+
+        val results = repository.searchActivities("swim", schoolId, 1)
+
+        assertEquals(listOf(school), results.map { it.activity.id })
+        assertTrue(repository.searchActivities("!!", null, 5).isEmpty())
+    }
+
+    private fun activity(description: String, notes: String, day: Int, category: String = "Sport") = Activity(
+        category = category,
+        description = description,
+        notes = notes,
+        dateTimestamp = day * DAY_MS,
+        timeMinutes = 9 * 60,
+        profileId = 1L
+    )
+}
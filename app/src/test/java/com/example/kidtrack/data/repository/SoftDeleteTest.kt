@@ -0,0 +1,143 @@
+package com.example.kidtrack.data.repository
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.kidtrack.data.database.DatabaseConfig
+import com.example.kidtrack.data.database.KidTrackDatabase
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.data.model.UserProfile
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Checks that deletes leave tombstones every read skips, that they can be undone,
+ * and that maintenance purges only tombstones older than the cutoff.
+ */
+@RunWith(RobolectricTestRunner::class)
+class SoftDeleteTest {
+
+    private lateinit var database: KidTrackDatabase
+    private lateinit var repository: KidTrackRepository
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = DatabaseConfig.configure(Room.inMemoryDatabaseBuilder(context, KidTrackDatabase::class.java))
+            .allowMainThreadQueries()
+            .build()
+        repository = KidTrackRepository(database, ActivityIndex(database), ProfileCache(database), QueryResultCache(database))
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun deletedActivityIsHiddenUntilRestored() = runBlocking {
+        val id = repository.insertActivity(activity(profileId = 1L))
+        val activity = repository.getActivityById(id)!!
+
+        repository.deleteActivity(activity)
+
+        assertNull(repository.getActivityById(id))
+        assertTrue(repository.getAllActivities().isEmpty())
+        assertTrue(database.activityDao().searchActivities("reading*", null, 10).isEmpty())
+        assertEquals(0, database.reportDao().getActivityCounts(0, 0, 0).total)
+        assertEquals(1, countRows("SELECT COUNT(*) FROM activities"))
+
+        assertTrue(repository.restoreActivity(activity))
+
+        assertEquals(activity, repository.getActivityById(id))
+        assertEquals(1, database.reportDao().getActivityCounts(0, 0, 0).total)
+        assertFalse(repository.restoreActivity(activity))
+    }
+
+    @Test
+    fun profileRestoreBringsBackOnlyWhatItDeleted() = runBlocking {
+        val profileId = repository.insertUserProfile(UserProfile(name = "Sam", age = 8))
+        val kept = repository.insertActivity(activity(profileId))
+        val deletedEarlier = repository.insertActivity(activity(profileId))
+        repository.insertReminder(reminder(kept, profileId))
+        repository.deleteActivity(repository.getActivityById(deletedEarlier)!!)
+        // Restores match on the deletion time, so keep the two deletes apart
+        Thread.sleep(5)
+        val profile = repository.getUserProfileById(profileId)!!
+
+        val deletedReminders = repository.deleteUserProfile(profile)
+
+        assertEquals(1, deletedReminders.size)
+        assertNull(repository.getUserProfileById(profileId))
+        assertTrue(repository.getActivitiesByProfile(profileId).isEmpty())
+        assertTrue(repository.getAllReminders().isEmpty())
+
+        val restoredReminders = repository.restoreUserProfile(profile)
+
+        assertEquals(deletedReminders, restoredReminders)
+        assertEquals(profile, repository.getUserProfileById(profileId))
+        assertEquals(listOf(kept), repository.getActivitiesByProfile(profileId).map { it.id })
+        assertNull(repository.getActivityById(deletedEarlier))
+    }
+
+    @Test
+    fun purgeRemovesOldTombstonesInBatches() = runBlocking {
+        val ids = (0 until 30).map { repository.insertActivity(activity(profileId = 1L)) }
+        val dao = database.activityDao()
+        ids.take(20).forEach { dao.softDeleteActivity(it, deletedAt = 1_000L) }
+        ids.subList(20, 25).forEach { dao.softDeleteActivity(it, deletedAt = 5_000L) }
+        val reminderId = repository.insertReminder(reminder(ids.last(), profileId = 1L))
+        database.reminderDao().softDeleteReminder(reminderId, deletedAt = 1_000L)
+
+        val purged = repository.purgeDeletedRows(cutoff = 2_000L, batchSize = 6)
+
+        assertEquals(21, purged)
+        assertEquals(10, countRows("SELECT COUNT(*) FROM activities"))
+        assertEquals(5, countRows("SELECT COUNT(*) FROM activities WHERE deletedAt IS NOT NULL"))
+        assertEquals(0, countRows("SELECT COUNT(*) FROM reminders"))
+        assertEquals(5, repository.getAllActivities().size)
+    }
+
+    @Test
+    fun vacuumSwitchesToIncrementalMode() = runBlocking {
+        repository.insertActivity(activity(profileId = 1L))
+
+        repository.vacuum()
+        repository.vacuum()
+
+        assertEquals(2, countRows("PRAGMA auto_vacuum"))
+        assertEquals(1, repository.getAllActivities().size)
+    }
+
+    private fun countRows(sql: String): Int =
+        database.openHelper.readableDatabase.query(sql).use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+
+    private fun activity(profileId: Long) = Activity(
+        category = "School",
+        description = "Reading",
+        notes = "",
+        dateTimestamp = 0L,
+        timeMinutes = 9 * 60,
+        profileId = profileId
+    )
+
+    private fun reminder(activityId: Long, profileId: Long) = Reminder(
+        name = "Pack books",
+        timeMinutes = 8 * 60,
+        frequency = "once",
+        associatedActivityId = activityId,
+        profileId = profileId
+    )
+}
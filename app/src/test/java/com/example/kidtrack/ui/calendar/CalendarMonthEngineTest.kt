@@ -0,0 +1,100 @@
+package com.example.kidtrack.ui.calendar
+
+import com.example.kidtrack.data.model.Activity
+import com.example.kidtrack.data.model.ActivityListItem
+import com.example.kidtrack.utils.DateTimeUtils
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.advanceUntilIdle
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Calendar
+
+/**
+ * Checks day bucketing, neighbour prefetch and the three-month memory bound
+ * of the calendar engine against an in-memory activity list.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class CalendarMonthEngineTest {
+
+    private val items = mutableListOf<ActivityListItem>()
+    private val loadedMonths = mutableListOf<Int>()
+
+    private suspend fun loadRange(start: Long, end: Long): List<ActivityListItem> {
+        loadedMonths.add(CalendarMonthEngine.monthKeyOf(DateTimeUtils.toEpochDay(start)))
+        return items.filter { it.activity.dateTimestamp in start..end }
+            .sortedWith(compareBy({ it.activity.dateTimestamp }, { it.activity.timeMinutes }))
+    }
+
+    @Test
+    fun activitiesNotSavedAtMidnightLandOnTheirDay() = runTest {
+        // Saved mid-afternoon, which an exact midnight comparison would miss
+        items.add(item(id = 1, year = 2026, month = Calendar.MARCH, day = 14, hour = 15))
+        items.add(item(id = 2, year = 2026, month = Calendar.MARCH, day = 15, hour = 0))
+        val engine = CalendarMonthEngine(this, ::loadRange)
+
+        val day = engine.getDay(DateTimeUtils.epochDayOf(2026, Calendar.MARCH, 14))
+
+        assertEquals(listOf(1L), day.activities.map { it.activity.id })
+        assertEquals(
+            mapOf(
+                DateTimeUtils.epochDayOf(2026, Calendar.MARCH, 14) to 1,
+                DateTimeUtils.epochDayOf(2026, Calendar.MARCH, 15) to 1
+            ),
+            day.monthDayCounts
+        )
+    }
+
+    @Test
+    fun prefetchesNeighboursAndKeepsThreeMonths() = runTest {
+        val engine = CalendarMonthEngine(this, ::loadRange)
+        val march = 2026 * 12 + Calendar.MARCH
+
+        engine.getMonth(march)
+        advanceUntilIdle()
+        assertEquals(setOf(march - 1, march, march + 1), loadedMonths.toSet())
+
+        // Moving forward one month only loads the new neighbour
+        loadedMonths.clear()
+        engine.getMonth(march + 1)
+        advanceUntilIdle()
+        assertEquals(listOf(march + 2), loadedMonths)
+        assertEquals(3, engine.cachedMonthCount)
+
+        // Jumping far away evicts everything that was cached
+        engine.getMonth(march + 12)
+        advanceUntilIdle()
+        assertEquals(3, engine.cachedMonthCount)
+    }
+
+    @Test
+    fun invalidateReloadsVisibleMonth() = runTest {
+        val engine = CalendarMonthEngine(this, ::loadRange)
+        val epochDay = DateTimeUtils.epochDayOf(2026, Calendar.MAY, 2)
+        assertTrue(engine.getDay(epochDay).activities.isEmpty())
+        advanceUntilIdle()
+
+        items.add(item(id = 7, year = 2026, month = Calendar.MAY, day = 2, hour = 9))
+        engine.invalidate()
+
+        assertEquals(listOf(7L), engine.getDay(epochDay).activities.map { it.activity.id })
+    }
+
+    private fun item(id: Long, year: Int, month: Int, day: Int, hour: Int): ActivityListItem {
+        val timestamp = Calendar.getInstance().apply {
+            clear()
+            set(year, month, day, hour, 30)
+        }.timeInMillis
+        val activity = Activity(
+            id = id,
+            category = "School",
+            description = "Activity $id",
+            notes = "",
+            dateTimestamp = timestamp,
+            timeMinutes = hour * 60 + 30,
+            profileId = 1L
+        )
+        return ActivityListItem(activity, profileName = "Sam", reminderName = null, reminderSnoozeEnabled = null)
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.kidtrack.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks that notification posts are spaced at the pacer's interval, that idle time is not banked
+ * and that no slot is handed out past a deadline.
+ */
+class NotificationPacerTest {
+
+    private var now = 1_000L
+    private val pacer = NotificationPacer(intervalMs = 250L, clock = { now })
+
+    @Test
+    fun burstIsSpacedEvenly() {
+        assertEquals(listOf(0L, 250L, 500L, 750L), List(4) { pacer.reserve() })
+    }
+
+    @Test
+    fun waitShrinksAsTimePasses() {
+        pacer.reserve()
+        now += 100
+        assertEquals(150L, pacer.reserve())
+    }
+
+    @Test
+    fun idleTimeDoesNotAllowALaterBurst() {
+        pacer.reserve()
+        now += 10_000
+        assertEquals(0L, pacer.reserve())
+        assertEquals(250L, pacer.reserve())
+    }
+
+    @Test
+    fun slotsPastTheDeadlineAreRefusedWithoutReserving() {
+        val deadline = now + 500
+        assertEquals(listOf(0L, 250L, 500L, null), List(4) { pacer.reserve(deadline) })
+        // The refused slot is still free for a caller without a deadline
+        assertEquals(750L, pacer.reserve())
+    }
+}
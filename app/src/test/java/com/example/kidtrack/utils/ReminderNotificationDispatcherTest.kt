@@ -0,0 +1,82 @@
+package com.example.kidtrack.utils
+
+import com.example.kidtrack.data.model.Reminder
+import com.example.kidtrack.data.model.ReminderNotice
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks how a burst of reminders is split into one notification group per child,
+ * and how the posts allowed for one alarm are shared between the groups.
+ */
+class ReminderNotificationDispatcherTest {
+
+    @Test
+    fun remindersAreGroupedPerChildInFiringOrder() {
+        val notices = listOf(notice(1, profileId = 2), notice(2, profileId = 1), notice(3, profileId = 2))
+
+        val groups = ReminderNotificationDispatcher.plan(notices)
+
+        assertEquals(listOf(2L, 1L), groups.map { it.profileId })
+        assertEquals(listOf(1L, 3L), groups[0].notices.map { it.reminder.id })
+        assertEquals(listOf(2, 1), groups.map { it.shown })
+    }
+
+    @Test
+    fun schoolRunBurstStaysWithinThePostLimit() {
+        // 20 reminders for two children and one for a third
+        val notices = (1..20L).map { notice(it, profileId = it % 2) } + notice(21, profileId = 7)
+
+        val groups = ReminderNotificationDispatcher.plan(notices, maxPosts = 12, maxChildren = 6)
+
+        assertEquals(21, groups.sumOf { it.notices.size })
+        // One summary per group of several, plus the notifications shown
+        val posts = groups.sumOf { it.shown + if (it.notices.size > 1) 1 else 0 }
+        assertEquals(12, posts)
+        assertEquals(listOf(5, 4, 1), groups.map { it.shown })
+    }
+
+    @Test
+    fun groupsAreCappedEvenWithPostsToSpare() {
+        val notices = (1..15L).map { notice(it, profileId = 1) }
+
+        val group = ReminderNotificationDispatcher.plan(notices, maxPosts = 20, maxChildren = 6).single()
+
+        assertEquals(6, group.shown)
+        assertEquals(15, group.notices.size)
+    }
+
+    @Test
+    fun everyGroupGetsAPostWhenThereAreMoreGroupsThanPosts() {
+        val notices = (1..6L).map { notice(it, profileId = it / 2) }
+
+        val groups = ReminderNotificationDispatcher.plan(notices, maxPosts = 3, maxChildren = 6)
+
+        assertEquals(4, groups.size)
+        assertEquals(listOf(1, 0, 0, 1), groups.map { it.shown })
+    }
+
+    @Test
+    fun titleFallsBackWhenTheReminderHasNoName() {
+        assertEquals("Pack books", ReminderNotificationDispatcher.title(notice(1, profileId = 1)))
+        val unnamed = notice(2, profileId = 1).let { it.copy(reminder = it.reminder.copy(name = "")) }
+        assertEquals("KidTrack Reminder", ReminderNotificationDispatcher.title(unnamed))
+    }
+
+    private fun notice(id: Long, profileId: Long) = ReminderNotice(
+        reminder = Reminder(
+            id = id,
+            name = "Pack books",
+            timeMinutes = 8 * 60,
+            frequency = "daily",
+            associatedActivityId = id,
+            profileId = profileId,
+            nextFireAt = 0L
+        ),
+        activityCategory = null,
+        activityDescription = null,
+        activityDateTimestamp = null,
+        activityTimeMinutes = null,
+        profileName = null
+    )
+}
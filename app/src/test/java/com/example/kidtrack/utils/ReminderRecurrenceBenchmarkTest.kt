@@ -0,0 +1,46 @@
+package com.example.kidtrack.utils
+
+import com.example.kidtrack.data.model.Reminder
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import kotlin.random.Random
+
+/**
+ * Computes the next 52 occurrences of 10,000 reminders of every frequency and checks
+ * each reminder gets its full year, in order and after now.
+ */
+class ReminderRecurrenceBenchmarkTest {
+
+    companion object {
+        private const val REMINDERS = 10_000
+        private const val OCCURRENCES = 52
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+        private val ZONE = ZoneId.of("Europe/London")
+        private val NOW = Instant.parse("2025-01-15T12:00:00Z")
+    }
+
+    @Test
+    fun nextYearOfOccurrencesForEveryReminder() {
+        val random = Random(7)
+        val reminders = List(REMINDERS) {
+            Reminder(
+                timeMinutes = random.nextInt(0, 1440),
+                frequency = listOf("daily", "weekly", "monthly").random(random),
+                associatedActivityId = it.toLong(),
+                startDateTimestamp = NOW.toEpochMilli() - random.nextLong(0, 400) * DAY_MS
+            )
+        }
+        val recurrence = ReminderRecurrence(Clock.fixed(NOW, ZONE))
+        val now = NOW.toEpochMilli()
+
+        for (reminder in reminders) {
+            val occurrences = recurrence.nextOccurrences(reminder, now, OCCURRENCES)
+            assertEquals(OCCURRENCES, occurrences.size)
+            assertEquals(occurrences.distinct().sorted(), occurrences)
+            assertEquals(0, occurrences.count { it <= now })
+        }
+    }
+}
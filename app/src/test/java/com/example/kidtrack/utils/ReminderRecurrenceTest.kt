@@ -0,0 +1,175 @@
+package com.example.kidtrack.utils
+
+import com.example.kidtrack.data.model.Reminder
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.Clock
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.LocalTime
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.time.temporal.ChronoUnit
+import kotlin.random.Random
+
+/**
+ * Checks reminder occurrences at month ends and daylight-saving changes, the first fire time
+ * of each kind of reminder, and general properties of the series across time zones.
+ */
+class ReminderRecurrenceTest {
+
+    companion object {
+        private const val MINUTE_MS = 60_000L
+        private val NEW_YORK = ZoneId.of("America/New_York")
+        private val ZONES = listOf(
+            "UTC", "America/New_York", "America/Sao_Paulo", "Europe/London", "Europe/Berlin",
+            "Asia/Kolkata", "Asia/Tokyo", "Australia/Sydney", "Australia/Lord_Howe", "Pacific/Chatham"
+        ).map { ZoneId.of(it) }
+        private const val OCCURRENCES = 52
+    }
+
+    @Test
+    fun monthlyReminderKeepsItsDayAfterShortMonths() {
+        val recurrence = recurrenceAt(LocalDateTime.of(2025, 1, 1, 0, 0), NEW_YORK)
+        val reminder = reminder("monthly", 10 * 60, start = LocalDate.of(2025, 1, 31), zone = NEW_YORK)
+
+        val dates = recurrence.nextOccurrences(reminder, millis(LocalDateTime.of(2025, 1, 1, 0, 0), NEW_YORK), 6)
+            .map { Instant.ofEpochMilli(it).atZone(NEW_YORK).toLocalDate() }
+
+        assertEquals(
+            listOf("2025-01-31", "2025-02-28", "2025-03-31", "2025-04-30", "2025-05-31", "2025-06-30"),
+            dates.map { it.toString() }
+        )
+    }
+
+    @Test
+    fun dailyReminderKeepsItsWallClockTimeAcrossDaylightSaving() {
+        val recurrence = recurrenceAt(LocalDateTime.of(2025, 3, 1, 0, 0), NEW_YORK)
+        val nine = reminder("daily", 9 * 60, start = LocalDate.of(2025, 3, 8), zone = NEW_YORK)
+        val halfPastTwo = reminder("daily", 2 * 60 + 30, start = LocalDate.of(2025, 3, 8), zone = NEW_YORK)
+        val after = millis(LocalDateTime.of(2025, 3, 7, 0, 0), NEW_YORK)
+
+        val nines = recurrence.nextOccurrences(nine, after, 3)
+        assertEquals(listOf(23 * 60 * MINUTE_MS, 24 * 60 * MINUTE_MS), nines.zipWithNext { a, b -> b - a })
+        assertTrue(nines.all { Instant.ofEpochMilli(it).atZone(NEW_YORK).toLocalTime() == LocalTime.of(9, 0) })
+
+        // 02:30 does not exist on the 9th; that occurrence fires just after the gap
+        val gapped = recurrence.nextOccurrences(halfPastTwo, after, 3).map { Instant.ofEpochMilli(it).atZone(NEW_YORK).toLocalDateTime() }
+        assertEquals(
+            listOf(LocalDateTime.of(2025, 3, 8, 2, 30), LocalDateTime.of(2025, 3, 9, 3, 30), LocalDateTime.of(2025, 3, 10, 2, 30)),
+            gapped
+        )
+
+        // 01:30 happens twice on November 2nd; the reminder fires once, at the first
+        val overlap = reminder("daily", 90, start = LocalDate.of(2025, 11, 1), zone = NEW_YORK)
+        val november = recurrence.nextOccurrences(overlap, millis(LocalDateTime.of(2025, 11, 1, 0, 0), NEW_YORK), 3)
+        assertEquals(listOf(24 * 60 * MINUTE_MS, 25 * 60 * MINUTE_MS), november.zipWithNext { a, b -> b - a })
+    }
+
+    @Test
+    fun firstOccurrenceFollowsTheKindOfReminder() {
+        val now = LocalDateTime.of(2025, 6, 10, 12, 0)
+        val recurrence = recurrenceAt(now, NEW_YORK)
+        val nowMillis = millis(now, NEW_YORK)
+
+        // One-off and weekly reminders whose time has passed today fire on the next day or week
+        assertEquals(millis(LocalDateTime.of(2025, 6, 11, 8, 0), NEW_YORK), recurrence.schedule(reminder("once", 8 * 60)).nextFireAt)
+        assertEquals(millis(LocalDateTime.of(2025, 6, 10, 18, 0), NEW_YORK), recurrence.schedule(reminder("weekly", 18 * 60)).nextFireAt)
+        assertEquals(millis(LocalDateTime.of(2025, 6, 17, 8, 0), NEW_YORK), recurrence.schedule(reminder("weekly", 8 * 60)).nextFireAt)
+
+        // Event reminders fire the given days before the event, late if that has passed, never once it is over
+        val event = reminder("once", 9 * 60).copy(daysBefore = 1, eventDateTimestamp = millis(LocalDateTime.of(2025, 6, 20, 0, 0), NEW_YORK))
+        assertEquals(millis(LocalDateTime.of(2025, 6, 19, 9, 0), NEW_YORK), recurrence.firstOccurrence(event))
+        val tomorrow = event.copy(eventDateTimestamp = millis(LocalDateTime.of(2025, 6, 11, 0, 0), NEW_YORK))
+        assertEquals(nowMillis + ReminderRecurrence.LATE_EVENT_DELAY_MS, recurrence.firstOccurrence(tomorrow))
+        val over = event.copy(eventDateTimestamp = millis(LocalDateTime.of(2025, 6, 9, 0, 0), NEW_YORK))
+        assertNull(recurrence.firstOccurrence(over))
+        assertNull(recurrence.followingOccurrence(event.copy(nextFireAt = nowMillis)))
+    }
+
+    @Test
+    fun snoozedFireDoesNotShiftTheSeries() {
+        val recurrence = recurrenceAt(LocalDateTime.of(2025, 3, 31, 10, 10), NEW_YORK)
+        val snoozed = reminder("monthly", 10 * 60, start = LocalDate.of(2025, 1, 31), zone = NEW_YORK)
+            .copy(nextFireAt = millis(LocalDateTime.of(2025, 3, 31, 10, 10), NEW_YORK))
+
+        assertEquals(millis(LocalDateTime.of(2025, 4, 30, 10, 0), NEW_YORK), recurrence.followingOccurrence(snoozed))
+    }
+
+    @Test
+    fun seriesPropertiesHoldInEveryTimeZone() {
+        val random = Random(42)
+        for (zone in ZONES) {
+            val recurrence = recurrenceAt(LocalDateTime.of(2024, 1, 1, 0, 0), zone)
+            repeat(200) {
+                val frequency = listOf("daily", "weekly", "monthly").random(random)
+                val start = LocalDate.of(2024, 1, 1).plusDays(random.nextLong(0, 730))
+                val timeMinutes = random.nextInt(0, 1440)
+                val reminder = reminder(frequency, timeMinutes, start, zone)
+                val after = millis(start.atStartOfDay(), zone) + random.nextLong(-10, 60) * 24 * 60 * MINUTE_MS
+
+                val occurrences = recurrence.nextOccurrences(reminder, after, OCCURRENCES)
+                val context = "$frequency at $timeMinutes from $start in $zone"
+
+                assertEquals(context, OCCURRENCES, occurrences.size)
+                assertTrue(context, occurrences.first() > after)
+                assertTrue(context, occurrences.zipWithNext().all { (a, b) -> a < b })
+                val first = stepsFromStart(frequency, start, localDate(occurrences.first(), zone))
+                occurrences.forEachIndexed { i, occurrence ->
+                    val local = Instant.ofEpochMilli(occurrence).atZone(zone)
+                    assertEquals(context, stepDate(frequency, start, first + i), local.toLocalDate())
+                    val wanted = LocalTime.of(timeMinutes / 60, timeMinutes % 60)
+                    if (local.toLocalTime() != wanted) {
+                        // Only a time skipped by a daylight-saving gap may move
+                        assertTrue(context, zone.rules.getValidOffsets(LocalDateTime.of(local.toLocalDate(), wanted)).isEmpty())
+                    }
+                }
+                // The series is the same however it is walked
+                for (i in 0 until OCCURRENCES - 1) {
+                    assertEquals(context, occurrences[i + 1], recurrence.nextOccurrence(reminder, occurrences[i]))
+                    assertEquals(context, occurrences[i], recurrence.nextOccurrence(reminder, occurrences[i] - 1))
+                }
+                // Nothing is skipped between the bound and the first occurrence
+                if (first > 0) {
+                    val wanted = LocalTime.of(timeMinutes / 60, timeMinutes % 60)
+                    assertTrue(context, millis(LocalDateTime.of(stepDate(frequency, start, first - 1), wanted), zone) <= after)
+                }
+            }
+        }
+    }
+
+    private fun stepsFromStart(frequency: String, start: LocalDate, date: LocalDate): Long {
+        var k = when (frequency) {
+            "weekly" -> ChronoUnit.WEEKS.between(start, date)
+            "monthly" -> ChronoUnit.MONTHS.between(start, date)
+            else -> ChronoUnit.DAYS.between(start, date)
+        }
+        while (stepDate(frequency, start, k) < date) k++
+        return k
+    }
+
+    private fun stepDate(frequency: String, start: LocalDate, k: Long): LocalDate = when (frequency) {
+        "weekly" -> start.plusWeeks(k)
+        "monthly" -> start.plusMonths(k)
+        else -> start.plusDays(k)
+    }
+
+    private fun recurrenceAt(now: LocalDateTime, zone: ZoneId) =
+        ReminderRecurrence(Clock.fixed(ZonedDateTime.of(now, zone).toInstant(), zone))
+
+    private fun millis(dateTime: LocalDateTime, zone: ZoneId): Long =
+        ZonedDateTime.of(dateTime, zone).toInstant().toEpochMilli()
+
+    private fun localDate(timestamp: Long, zone: ZoneId): LocalDate =
+        Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate()
+
+    private fun reminder(frequency: String, timeMinutes: Int, start: LocalDate? = null, zone: ZoneId = NEW_YORK) = Reminder(
+        timeMinutes = timeMinutes,
+        frequency = frequency,
+        associatedActivityId = 1L,
+        startDateTimestamp = start?.let { millis(it.atStartOfDay(), zone) } ?: 0L
+    )
+}